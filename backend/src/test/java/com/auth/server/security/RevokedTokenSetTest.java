@@ -0,0 +1,130 @@
+package com.auth.server.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Lives in the package of the package-private {@link RevokedTokenSet}.
+ */
+@DisplayName("RevokedTokenSet Tests")
+class RevokedTokenSetTest {
+
+    private static final long NOW = 1_700_000_000L;
+
+    private static List<String> uuids(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Should report an id as revoked until its expiry and no longer after it")
+    void contains_shouldHonourExpiry() {
+        // Arrange
+        RevokedTokenSet set = new RevokedTokenSet(100, 0.01);
+        String tokenId = UUID.randomUUID().toString();
+
+        // Act
+        boolean added = set.add(tokenId, NOW + 60);
+        boolean addedAgain = set.add(tokenId, NOW + 30);
+
+        // Assert
+        assertThat(added).isTrue();
+        assertThat(addedAgain).isFalse();
+        assertThat(set.size()).isEqualTo(1);
+        assertThat(set.contains(tokenId, NOW)).isTrue();
+        assertThat(set.contains(tokenId, NOW + 59)).isTrue();
+        assertThat(set.contains(tokenId, NOW + 60)).isFalse();
+        assertThat(set.contains(UUID.randomUUID().toString(), NOW)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep every id when it grows well past the expected number of entries")
+    void add_shouldGrowPastExpectedEntries() {
+        // Arrange
+        RevokedTokenSet set = new RevokedTokenSet(16, 0.01);
+        long initialFootprint = set.getMemoryFootprintBytes();
+        List<String> tokenIds = uuids(5_000);
+
+        // Act
+        tokenIds.forEach(tokenId -> set.add(tokenId, NOW + 3600));
+
+        // Assert
+        assertThat(set.size()).isEqualTo(5_000);
+        assertThat(tokenIds).allMatch(tokenId -> set.contains(tokenId, NOW));
+        assertThat(set.getMemoryFootprintBytes()).isGreaterThan(initialFootprint);
+        assertThat(set.getExpectedFalsePositiveRate()).isLessThan(0.05);
+    }
+
+    @Test
+    @DisplayName("Should purge only the ids that have expired")
+    void purge_shouldDropOnlyExpiredIds() {
+        // Arrange
+        RevokedTokenSet set = new RevokedTokenSet(100, 0.01);
+        List<String> expiring = uuids(50);
+        List<String> live = uuids(50);
+        expiring.forEach(tokenId -> set.add(tokenId, NOW + 10));
+        live.forEach(tokenId -> set.add(tokenId, NOW + 100));
+
+        // Act
+        int purged = set.purge(NOW + 10);
+
+        // Assert
+        assertThat(purged).isEqualTo(50);
+        assertThat(set.size()).isEqualTo(50);
+        assertThat(live).allMatch(tokenId -> set.contains(tokenId, NOW));
+        assertThat(expiring).noneMatch(tokenId -> set.contains(tokenId, NOW));
+    }
+
+    @Test
+    @DisplayName("Should store ids that are not UUIDs, including 36-character ones")
+    void add_shouldAcceptNonUuidIds() {
+        // Arrange
+        RevokedTokenSet set = new RevokedTokenSet(100, 0.01);
+        String opaque = "opaque-token-1";
+        String uuidLength = "x".repeat(36);
+
+        // Act
+        set.add(opaque, NOW + 60);
+        set.add(uuidLength, NOW + 60);
+
+        // Assert
+        assertThat(set.contains(opaque, NOW)).isTrue();
+        assertThat(set.contains(uuidLength, NOW)).isTrue();
+        assertThat(set.contains("opaque-token-2", NOW)).isFalse();
+        assertThat(set.contains("y".repeat(36), NOW)).isFalse();
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should count lookups and keep the observed false-positive rate near the configured one")
+    void statistics_shouldTrackLookupsAndFalsePositives() {
+        // Arrange
+        RevokedTokenSet set = new RevokedTokenSet(1_000, 0.01);
+        uuids(1_000).forEach(tokenId -> set.add(tokenId, NOW + 3600));
+        List<String> neverRevoked = uuids(20_000);
+
+        // Act
+        long hits = neverRevoked.stream().filter(tokenId -> set.contains(tokenId, NOW)).count();
+
+        // Assert
+        assertThat(hits).isZero();
+        assertThat(set.getLookups()).isEqualTo(20_000);
+        assertThat(set.getBloomRejections()).isGreaterThan(19_000);
+        assertThat(set.getObservedFalsePositiveRate())
+                .isEqualTo(1 - set.getBloomRejections() / 20_000.0, within(1e-9))
+                .isLessThan(0.03);
+        assertThat(set.getExpectedFalsePositiveRate()).isBetween(0.001, 0.02);
+        // 2048 slots of three longs for 1000 entries, plus about 9.6 bits per entry of Bloom filter
+        assertThat(set.getMemoryFootprintBytes()).isBetween(49_152L + 1_000L, 49_152L + 2_000L);
+    }
+
+}
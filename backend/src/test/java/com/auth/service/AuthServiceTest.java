@@ -1,33 +1,180 @@
 package com.auth.service;
 
+import com.auth.server.config.SessionConfig;
 import com.auth.server.entity.AuthUser;
+import com.auth.server.entity.OAuthAuthorization;
+import com.auth.server.event.AccessTokenRevokedEvent;
+import com.auth.server.event.AuthUserChangedEvent;
 import com.auth.server.entity.OAuthClient;
+import com.auth.server.entity.UserImportCheckpoint;
 import com.auth.server.entity.UserRole;
+import com.auth.server.event.OAuthClientChangedEvent;
+import com.auth.server.jwt.JwkSetEndpointFilter;
+import com.auth.server.jwt.JwkSourceJwtDecoder;
+import com.auth.server.jwt.JwkSourceJwtEncoder;
+import com.auth.server.jwt.SigningAlgorithm;
+import com.auth.server.jwt.SigningAlgorithms;
+import com.auth.server.jwt.SigningKey;
+import com.auth.server.jwt.SigningKeyRing;
+import com.auth.server.jwt.TimedJwtEncoder;
 import com.auth.server.repository.AuthUserRepository;
 import com.auth.server.repository.OAuthClientRepository;
+import com.auth.server.repository.OAuthAuthorizationRepository;
+import com.auth.server.repository.RevokedTokenRepository;
+import com.auth.server.repository.UserImportCheckpointRepository;
+import com.auth.server.security.CachingClientSecretAuthenticationProvider;
+import com.auth.server.security.ClientCredentialsTokenCache;
+import com.auth.server.security.ClientTokenRateLimitFilter;
+import com.auth.server.security.LocalJwtIntrospectionAuthenticationProvider;
+import com.auth.server.security.LoginAttemptTracker;
+import com.auth.server.security.PasswordHashingExecutor;
+import com.auth.server.security.PasswordHashingRejectedException;
+import com.auth.server.security.PasswordHashingRejectionFilter;
+import com.auth.server.security.ReusingClientCredentialsAuthenticationProvider;
+import com.auth.server.security.RevokedTokenIndex;
+import com.auth.server.security.ServerTiming;
+import com.auth.server.security.ServerTimingFilter;
+import com.auth.server.security.TokenEndpointMetricsFilter;
+import com.auth.server.security.TokenRateLimitFilter;
+import com.auth.server.security.TokenRateLimiter;
+import com.auth.server.security.UserDetailsCache;
+import com.auth.server.security.VerifiedClientSecretCache;
+import com.auth.server.service.CachingOAuth2AuthorizationConsentService;
+import com.auth.server.service.CachingRegisteredClientRepository;
+import com.auth.server.service.ClientCatalog;
 import com.auth.server.service.ClientRegistrationService;
 import com.auth.server.service.CustomUserDetailsService;
+import com.auth.server.service.JpaOAuth2AuthorizationService;
+import com.auth.server.service.OAuthAuthorizationMapper;
+import com.auth.server.service.RedisOAuth2AuthorizationConsentService;
+import com.auth.server.service.RedisOAuth2AuthorizationService;
+import com.auth.server.service.TokenHashes;
+import com.auth.server.service.UserDirectoryService;
+import com.auth.server.service.UserImportService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import com.nimbusds.jwt.SignedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
-
-
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenIntrospection;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.security.web.PortResolverImpl;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.security.web.savedrequest.DefaultSavedRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import redis.embedded.RedisServer;
+
+import javax.persistence.EntityManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +190,9 @@ class AuthServiceTest {
         @Mock
         private PasswordEncoder passwordEncoder;
 
+        @Mock
+        private ApplicationEventPublisher eventPublisher;
+
         @InjectMocks
         private ClientRegistrationService clientRegistrationService;
 
@@ -237,6 +387,25 @@ class AuthServiceTest {
             // The persisted secret should be the encoded version
             assertThat(persisted.getClientSecret()).isEqualTo("bcrypt-encoded-hash");
         }
+
+        @Test
+        @DisplayName("Should publish a change event so cached client views pick up the new client")
+        void registerClient_shouldPublishClientChangedEvent() {
+            // Arrange
+            when(passwordEncoder.encode(anyString())).thenReturn("encoded");
+            when(oAuthClientRepository.save(any(OAuthClient.class))).thenAnswer(invocation -> {
+                OAuthClient saved = invocation.getArgument(0);
+                saved.setId(6L);
+                return saved;
+            });
+
+            // Act
+            OAuthClient result = clientRegistrationService.registerClient(
+                    "Cached App", List.of("http://localhost/cb"), null, null);
+
+            // Assert
+            verify(eventPublisher).publishEvent(new OAuthClientChangedEvent(result.getClientId()));
+        }
     }
 
     @Nested
@@ -246,6 +415,12 @@ class AuthServiceTest {
         @Mock
         private AuthUserRepository authUserRepository;
 
+        @Spy
+        private UserDetailsCache userDetailsCache = new UserDetailsCache(Duration.ofMinutes(1), 100);
+
+        @Spy
+        private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
         @InjectMocks
         private CustomUserDetailsService customUserDetailsService;
 
@@ -362,6 +537,2147 @@ class AuthServiceTest {
             verify(authUserRepository, times(1)).findByUsername("johndoe");
             verifyNoMoreInteractions(authUserRepository);
         }
+
+        @Test
+        @DisplayName("Should serve repeat lookups from the cache until the user changes")
+        void loadUserByUsername_shouldCacheUntilUserChanged() {
+            // Arrange
+            when(authUserRepository.findByUsername("johndoe")).thenReturn(Optional.of(activeUser));
+
+            // Act
+            customUserDetailsService.loadUserByUsername("johndoe");
+            customUserDetailsService.loadUserByUsername("johndoe");
+            userDetailsCache.onUserChanged(new AuthUserChangedEvent("johndoe"));
+            UserDetails reloaded = customUserDetailsService.loadUserByUsername("johndoe");
+
+            // Assert
+            assertThat(reloaded.getUsername()).isEqualTo("johndoe");
+            verify(authUserRepository, times(2)).findByUsername("johndoe");
+            assertThat(userDetailsCache.getHitCount()).isEqualTo(1);
+            assertThat(userDetailsCache.getMissCount()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should keep the cached password when a returned instance is erased")
+        void loadUserByUsername_erasedCredentials_shouldNotReachCache() {
+            // Arrange
+            when(authUserRepository.findByUsername("johndoe")).thenReturn(Optional.of(activeUser));
+
+            // Act
+            ((User) customUserDetailsService.loadUserByUsername("johndoe")).eraseCredentials();
+            UserDetails first = customUserDetailsService.loadUserByUsername("johndoe");
+            ((User) first).eraseCredentials();
+            UserDetails second = customUserDetailsService.loadUserByUsername("johndoe");
+
+            // Assert
+            assertThat(second.getPassword()).isEqualTo("$2a$10$encodedpassword");
+        }
+    }
+
+    @Nested
+    @DisplayName("Redis authorization store Tests")
+    @TestInstance(TestInstance.Lifecycle.PER_CLASS)
+    class RedisAuthorizationStoreTests {
+
+        private RedisServer redisServer;
+        private LettuceConnectionFactory connectionFactory;
+        private StringRedisTemplate redisTemplate;
+        private ApplicationEventPublisher eventPublisher;
+        private RedisOAuth2AuthorizationService authorizationService;
+        private RedisOAuth2AuthorizationConsentService consentService;
+        private RegisteredClient registeredClient;
+
+        @BeforeAll
+        void startRedis() throws IOException {
+            int port;
+            try (ServerSocket socket = new ServerSocket(0)) {
+                port = socket.getLocalPort();
+            }
+            redisServer = new RedisServer(port);
+            redisServer.start();
+            connectionFactory = new LettuceConnectionFactory("localhost", port);
+            connectionFactory.afterPropertiesSet();
+            redisTemplate = new StringRedisTemplate(connectionFactory);
+        }
+
+        @AfterAll
+        void stopRedis() throws IOException {
+            connectionFactory.destroy();
+            redisServer.stop();
+        }
+
+        @BeforeEach
+        void setUp() {
+            redisTemplate.execute((RedisCallback<Object>) connection -> {
+                connection.flushDb();
+                return null;
+            });
+            registeredClient = RegisteredClient.withId("web-client")
+                    .clientId("web-client")
+                    .clientSecret("secret")
+                    .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                    .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                    .redirectUri("http://localhost:4200/callback")
+                    .scope("read")
+                    .build();
+            RegisteredClientRepository registeredClientRepository = new InMemoryRegisteredClientRepository(registeredClient);
+            eventPublisher = mock(ApplicationEventPublisher.class);
+            authorizationService = new RedisOAuth2AuthorizationService(redisTemplate,
+                    new OAuthAuthorizationMapper(registeredClientRepository), eventPublisher,
+                    "test:", Duration.ofMinutes(10));
+            consentService = new RedisOAuth2AuthorizationConsentService(redisTemplate,
+                    registeredClientRepository, "test:");
+        }
+
+        @Test
+        @DisplayName("Should find a saved authorization by id and by each of its tokens")
+        void save_shouldBeFoundByIdAndToken() {
+            // Arrange
+            OAuth2Authorization authorization = authorization("access-1", "jti-1", "refresh-1");
+
+            // Act
+            authorizationService.save(authorization);
+
+            // Assert
+            assertThat(authorizationService.findById(authorization.getId())).isNotNull();
+            assertThat(authorizationService.findByToken("access-1", OAuth2TokenType.ACCESS_TOKEN).getId())
+                    .isEqualTo(authorization.getId());
+            assertThat(authorizationService.findByToken("refresh-1", null).getId())
+                    .isEqualTo(authorization.getId());
+            assertThat(authorizationService.findByToken("access-1", OAuth2TokenType.REFRESH_TOKEN)).isNull();
+            assertThat(authorizationService.findByToken("unknown", null)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should expire the authorization and token keys with the tokens")
+        void save_shouldSetKeyTtlsFromTokenExpiry() {
+            // Arrange
+            OAuth2Authorization authorization = authorization("access-1", "jti-1", "refresh-1");
+
+            // Act
+            authorizationService.save(authorization);
+
+            // Assert
+            Long accessTokenTtl = redisTemplate.getExpire(
+                    "test:access_token:" + TokenHashes.sha256("access-1"), TimeUnit.SECONDS);
+            Long authorizationTtl = redisTemplate.getExpire(
+                    "test:authorization:" + authorization.getId(), TimeUnit.SECONDS);
+            assertThat(accessTokenTtl).isBetween(3500L, 3600L);
+            assertThat(authorizationTtl).isBetween(Duration.ofDays(1).getSeconds() - 100, Duration.ofDays(1).getSeconds());
+        }
+
+        @Test
+        @DisplayName("Should drop the replaced access token's key on refresh without revoking it")
+        void save_withNewAccessToken_shouldRemoveOldTokenKey() {
+            // Arrange
+            OAuth2Authorization authorization = authorization("access-1", "jti-1", "refresh-1");
+            authorizationService.save(authorization);
+            Instant issuedAt = Instant.now();
+            OAuth2Authorization refreshed = OAuth2Authorization.from(authorization)
+                    .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-2",
+                                    issuedAt, issuedAt.plus(Duration.ofHours(1))),
+                            metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, new HashMap<>(Map.of("jti", "jti-2"))))
+                    .build();
+
+            // Act
+            authorizationService.save(refreshed);
+
+            // Assert
+            assertThat(authorizationService.findByToken("access-1", OAuth2TokenType.ACCESS_TOKEN)).isNull();
+            assertThat(authorizationService.findByToken("access-2", OAuth2TokenType.ACCESS_TOKEN)).isNotNull();
+            assertThat(redisTemplate.hasKey("test:access_token:" + TokenHashes.sha256("access-1"))).isFalse();
+            verify(eventPublisher, never()).publishEvent(any(AccessTokenRevokedEvent.class));
+        }
+
+        @Test
+        @DisplayName("Should delete the authorization and every token key on remove")
+        void remove_shouldDeleteAllKeys() {
+            // Arrange
+            OAuth2Authorization authorization = authorization("access-1", "jti-1", "refresh-1");
+            authorizationService.save(authorization);
+
+            // Act
+            authorizationService.remove(authorization);
+
+            // Assert
+            assertThat(redisTemplate.keys("test:*")).isEmpty();
+            assertThat(authorizationService.findByToken("refresh-1", null)).isNull();
+        }
+
+        @Test
+        @DisplayName("Should save, find and remove consents")
+        void consent_shouldRoundTrip() {
+            // Arrange
+            OAuth2AuthorizationConsent consent = OAuth2AuthorizationConsent.withId("web-client", "alice")
+                    .scope("read")
+                    .scope("openid")
+                    .build();
+
+            // Act
+            consentService.save(consent);
+            OAuth2AuthorizationConsent found = consentService.findById("web-client", "alice");
+
+            // Assert
+            assertThat(found.getScopes()).containsExactlyInAnyOrder("read", "openid");
+            consentService.remove(consent);
+            assertThat(consentService.findById("web-client", "alice")).isNull();
+        }
+
+        private OAuth2Authorization authorization(String accessToken, String tokenId, String refreshToken) {
+            Instant issuedAt = Instant.now();
+            return OAuth2Authorization.withRegisteredClient(registeredClient)
+                    .id(UUID.randomUUID().toString())
+                    .principalName("alice")
+                    .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                    .authorizedScopes(Set.of("read"))
+                    .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, accessToken,
+                                    issuedAt, issuedAt.plus(Duration.ofHours(1)), Set.of("read")),
+                            metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME, new HashMap<>(Map.of("jti", tokenId))))
+                    .refreshToken(new OAuth2RefreshToken(refreshToken, issuedAt, issuedAt.plus(Duration.ofDays(1))))
+                    .build();
+        }
+    }
+
+    @Nested
+    @DisplayName("JPA authorization store Tests")
+    class JpaAuthorizationStoreTests {
+
+        private static final OAuth2TokenType STATE = new OAuth2TokenType(OAuth2ParameterNames.STATE);
+        private static final OAuth2TokenType CODE = new OAuth2TokenType(OAuth2ParameterNames.CODE);
+        private static final OAuth2TokenType ID_TOKEN = new OAuth2TokenType(OidcParameterNames.ID_TOKEN);
+
+        @Mock
+        private OAuthAuthorizationRepository authorizationRepository;
+
+        @Mock
+        private ApplicationEventPublisher eventPublisher;
+
+        @Captor
+        private ArgumentCaptor<AccessTokenRevokedEvent> revokedEventCaptor;
+
+        private RegisteredClient registeredClient;
+        private OAuthAuthorizationMapper authorizationMapper;
+        private JpaOAuth2AuthorizationService authorizationService;
+
+        @BeforeEach
+        void setUp() {
+            registeredClient = RegisteredClient.withId("web-client")
+                    .clientId("web-client")
+                    .clientSecret("secret")
+                    .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                    .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
+                    .redirectUri("http://localhost:4200/callback")
+                    .scope("openid")
+                    .scope("read")
+                    .build();
+            authorizationMapper = new OAuthAuthorizationMapper(new InMemoryRegisteredClientRepository(registeredClient));
+            authorizationService = new JpaOAuth2AuthorizationService(
+                    authorizationRepository, authorizationMapper, eventPublisher);
+        }
+
+        @Test
+        @DisplayName("Should look each token type up through its own hash index")
+        void findByToken_shouldUseIndexForTokenType() {
+            // Arrange
+            OAuth2Authorization authorization = authorization();
+            OAuthAuthorization entity = authorizationMapper.toEntity(authorization);
+            when(authorizationRepository.findByStateHash(TokenHashes.sha256("state-1"))).thenReturn(Optional.of(entity));
+            when(authorizationRepository.findByAuthorizationCodeHash(TokenHashes.sha256("code-1")))
+                    .thenReturn(Optional.of(entity));
+            when(authorizationRepository.findByAccessTokenHash(TokenHashes.sha256("access-1")))
+                    .thenReturn(Optional.of(entity));
+            when(authorizationRepository.findByRefreshTokenHash(TokenHashes.sha256("refresh-1")))
+                    .thenReturn(Optional.of(entity));
+            when(authorizationRepository.findByOidcIdTokenHash(TokenHashes.sha256("id-1"))).thenReturn(Optional.of(entity));
+
+            // Act
+            List<OAuth2Authorization> found = List.of(
+                    authorizationService.findByToken("state-1", STATE),
+                    authorizationService.findByToken("code-1", CODE),
+                    authorizationService.findByToken("access-1", OAuth2TokenType.ACCESS_TOKEN),
+                    authorizationService.findByToken("refresh-1", OAuth2TokenType.REFRESH_TOKEN),
+                    authorizationService.findByToken("id-1", ID_TOKEN));
+            OAuth2Authorization unknownType = authorizationService.findByToken("access-1", new OAuth2TokenType("custom"));
+
+            // Assert
+            assertThat(found).extracting(OAuth2Authorization::getId).containsOnly(authorization.getId());
+            assertThat(found.get(2).getAccessToken().getClaims()).containsEntry("jti", "jti-1");
+            assertThat(unknownType).isNull();
+            verifyNoMoreInteractions(authorizationRepository);
+        }
+
+        @Test
+        @DisplayName("Should try every index in turn when the token type is not given")
+        void findByToken_withoutTokenType_shouldFallThroughIndexes() {
+            // Arrange
+            OAuthAuthorization entity = authorizationMapper.toEntity(authorization());
+            String hash = TokenHashes.sha256("id-1");
+            when(authorizationRepository.findByAccessTokenHash(hash)).thenReturn(Optional.empty());
+            when(authorizationRepository.findByRefreshTokenHash(hash)).thenReturn(Optional.empty());
+            when(authorizationRepository.findByAuthorizationCodeHash(hash)).thenReturn(Optional.empty());
+            when(authorizationRepository.findByStateHash(hash)).thenReturn(Optional.empty());
+            when(authorizationRepository.findByOidcIdTokenHash(hash)).thenReturn(Optional.of(entity));
+
+            // Act
+            OAuth2Authorization found = authorizationService.findByToken("id-1", null);
+
+            // Assert
+            assertThat(found.getId()).isEqualTo(entity.getId());
+            InOrder lookups = inOrder(authorizationRepository);
+            lookups.verify(authorizationRepository).findByAccessTokenHash(hash);
+            lookups.verify(authorizationRepository).findByRefreshTokenHash(hash);
+            lookups.verify(authorizationRepository).findByAuthorizationCodeHash(hash);
+            lookups.verify(authorizationRepository).findByStateHash(hash);
+            lookups.verify(authorizationRepository).findByOidcIdTokenHash(hash);
+        }
+
+        @Test
+        @DisplayName("Should not return an authorization whose stored token differs from the one presented")
+        void findByToken_withHashCollision_shouldReturnNull() {
+            // Arrange
+            OAuthAuthorization entity = authorizationMapper.toEntity(authorization());
+            when(authorizationRepository.findByAccessTokenHash(TokenHashes.sha256("access-2")))
+                    .thenReturn(Optional.of(entity));
+
+            // Act
+            OAuth2Authorization found = authorizationService.findByToken("access-2", OAuth2TokenType.ACCESS_TOKEN);
+
+            // Assert
+            assertThat(found).isNull();
+        }
+
+        @Test
+        @DisplayName("Should publish a revocation when the access token is invalidated, not on an ordinary save")
+        void save_shouldPublishRevocationOnlyForInvalidatedAccessToken() {
+            // Arrange
+            OAuth2Authorization authorization = authorization();
+            OAuth2Authorization revoked = OAuth2Authorization.from(authorization)
+                    .token(authorization.getAccessToken().getToken(), metadata ->
+                            metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, true))
+                    .build();
+
+            // Act
+            authorizationService.save(authorization);
+            verify(eventPublisher, never()).publishEvent(any(AccessTokenRevokedEvent.class));
+            authorizationService.save(revoked);
+
+            // Assert
+            verify(authorizationRepository, times(2)).save(any(OAuthAuthorization.class));
+            verify(eventPublisher).publishEvent(revokedEventCaptor.capture());
+            assertThat(revokedEventCaptor.getValue().getTokenId()).isEqualTo("jti-1");
+            assertThat(revokedEventCaptor.getValue().getExpiresAt())
+                    .isEqualTo(authorization.getAccessToken().getToken().getExpiresAt());
+        }
+
+        @Test
+        @DisplayName("Should not publish the revocation again when an already invalidated token is saved")
+        void save_withTokenAlreadyInvalidated_shouldNotPublishAgain() {
+            // Arrange
+            OAuth2Authorization authorization = authorization();
+            OAuth2Authorization revoked = OAuth2Authorization.from(authorization)
+                    .token(authorization.getAccessToken().getToken(), metadata ->
+                            metadata.put(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME, true))
+                    .build();
+            when(authorizationRepository.findById(revoked.getId()))
+                    .thenReturn(Optional.of(authorizationMapper.toEntity(revoked)));
+
+            // Act
+            authorizationService.save(revoked);
+
+            // Assert
+            verify(authorizationRepository).save(any(OAuthAuthorization.class));
+            verify(eventPublisher, never()).publishEvent(any(AccessTokenRevokedEvent.class));
+        }
+
+        @Test
+        @DisplayName("Should delete the authorization on remove and revoke its still active access token")
+        void remove_shouldDeleteAndRevokeActiveAccessToken() {
+            // Arrange
+            OAuth2Authorization authorization = authorization();
+
+            // Act
+            authorizationService.remove(authorization);
+
+            // Assert
+            verify(authorizationRepository).deleteAuthorizationById(authorization.getId());
+            verify(eventPublisher).publishEvent(revokedEventCaptor.capture());
+            assertThat(revokedEventCaptor.getValue().getTokenId()).isEqualTo("jti-1");
+        }
+
+        private OAuth2Authorization authorization() {
+            Instant issuedAt = Instant.now();
+            Instant expiresAt = issuedAt.plus(Duration.ofHours(1));
+            return OAuth2Authorization.withRegisteredClient(registeredClient)
+                    .id(UUID.randomUUID().toString())
+                    .principalName("alice")
+                    .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                    .authorizedScopes(Set.of("openid", "read"))
+                    .attribute(OAuth2ParameterNames.STATE, "state-1")
+                    .token(new OAuth2AuthorizationCode("code-1", issuedAt, issuedAt.plus(Duration.ofMinutes(5))))
+                    .token(new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, "access-1",
+                                    issuedAt, expiresAt, Set.of("openid", "read")),
+                            metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME,
+                                    new HashMap<>(Map.of("jti", "jti-1"))))
+                    .refreshToken(new OAuth2RefreshToken("refresh-1", issuedAt, issuedAt.plus(Duration.ofDays(1))))
+                    .token(new OidcIdToken("id-1", issuedAt, expiresAt, Map.of("sub", "alice")),
+                            metadata -> metadata.put(OAuth2Authorization.Token.CLAIMS_METADATA_NAME,
+                                    new HashMap<>(Map.of("sub", "alice"))))
+                    .build();
+        }
+    }
+
+    @Nested
+    @DisplayName("CachingOAuth2AuthorizationConsentService Tests")
+    class ConsentCacheTests {
+
+        @Mock
+        private OAuth2AuthorizationConsentService store;
+
+        private CachingOAuth2AuthorizationConsentService consentService;
+
+        @BeforeEach
+        void setUp() {
+            consentService = new CachingOAuth2AuthorizationConsentService(store,
+                    Duration.ofMinutes(30), Duration.ofMinutes(1), 100);
+        }
+
+        @Test
+        @DisplayName("Should remember a missing consent until one is saved")
+        void findById_shouldCacheMissUntilSaved() {
+            // Arrange
+            OAuth2AuthorizationConsent consent = OAuth2AuthorizationConsent.withId("web-client", "alice")
+                    .scope("read")
+                    .build();
+
+            // Act
+            OAuth2AuthorizationConsent first = consentService.findById("web-client", "alice");
+            OAuth2AuthorizationConsent second = consentService.findById("web-client", "alice");
+            consentService.save(consent);
+            OAuth2AuthorizationConsent afterSave = consentService.findById("web-client", "alice");
+
+            // Assert
+            assertThat(first).isNull();
+            assertThat(second).isNull();
+            assertThat(afterSave).isSameAs(consent);
+            verify(store, times(1)).findById("web-client", "alice");
+            verify(store).save(consent);
+            assertThat(consentService.getHitCount()).isEqualTo(2);
+            assertThat(consentService.getMissCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should serve a stored consent from the cache and forget it on removal")
+        void findById_shouldCacheHitUntilRemoved() {
+            // Arrange
+            OAuth2AuthorizationConsent consent = OAuth2AuthorizationConsent.withId("web-client", "bob")
+                    .scope("openid")
+                    .build();
+            when(store.findById("web-client", "bob")).thenReturn(consent);
+
+            // Act
+            consentService.findById("web-client", "bob");
+            OAuth2AuthorizationConsent cached = consentService.findById("web-client", "bob");
+            consentService.remove(consent);
+            OAuth2AuthorizationConsent afterRemove = consentService.findById("web-client", "bob");
+
+            // Assert
+            assertThat(cached).isSameAs(consent);
+            assertThat(afterRemove).isNull();
+            verify(store, times(1)).findById("web-client", "bob");
+            verify(store).remove(consent);
+        }
+    }
+
+    @Nested
+    @DisplayName("UserImportService Tests")
+    class UserImportTests {
+
+        private static final String BCRYPT_HASH = "$2a$10$lUBTBBcmYcaXMqb/06xvWeRBg.KGazfwZBCAxnyBIIoi.odNOl0qm";
+
+        @Mock
+        private AuthUserRepository authUserRepository;
+
+        @Mock
+        private UserImportCheckpointRepository checkpointRepository;
+
+        @Mock
+        private EntityManager entityManager;
+
+        @Mock
+        private Session session;
+
+        @Mock
+        private PlatformTransactionManager transactionManager;
+
+        @Captor
+        private ArgumentCaptor<Iterable<AuthUser>> usersCaptor;
+
+        @Captor
+        private ArgumentCaptor<UserImportCheckpoint> checkpointCaptor;
+
+        private UserImportService userImportService;
+
+        @BeforeEach
+        void setUp() {
+            userImportService = new UserImportService(authUserRepository, checkpointRepository,
+                    entityManager, transactionManager, 10, 10, 1, 10);
+            lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+            lenient().when(entityManager.unwrap(Session.class)).thenReturn(session);
+        }
+
+        private InputStream stream(String content) {
+            return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Test
+        @DisplayName("Should import valid CSV rows and report the rejected ones")
+        void importUsers_csv_shouldPersistValidRowsAndRejectInvalid() {
+            // Arrange
+            String csv = "username,email,password,passwordHash,roles\n"
+                    + "alice,alice@example.com,\"pa,ss\",,USER;ADMIN\n"
+                    + "bob,bob@example.com,," + BCRYPT_HASH + ",\n"
+                    + "carol,carol@example.com,,md5:abc,\n"
+                    + "alice,other@example.com,secret,,\n"
+                    + "dave,dave@example.com,secret,,\n";
+            when(checkpointRepository.findById("import-1")).thenReturn(Optional.empty());
+            when(authUserRepository.findExistingUsernames(any())).thenReturn(List.of("dave"));
+            when(authUserRepository.findExistingEmails(any())).thenReturn(List.of());
+
+            // Act
+            UserImportService.ImportReport report = userImportService.importUsers(
+                    "import-1", UserImportService.Format.CSV, stream(csv));
+
+            // Assert
+            assertThat(report.getImported()).isEqualTo(2);
+            assertThat(report.getRejected()).isEqualTo(3);
+            assertThat(report.getRejections())
+                    .extracting(UserImportService.Rejection::getRecordNumber, UserImportService.Rejection::getReason)
+                    .containsExactly(
+                            tuple(3L, "Unsupported password hash format"),
+                            tuple(4L, "Duplicate username in file"),
+                            tuple(5L, "Username already exists"));
+
+            verify(authUserRepository).saveAll(usersCaptor.capture());
+            List<AuthUser> users = new ArrayList<>();
+            usersCaptor.getValue().forEach(users::add);
+            assertThat(users).extracting(AuthUser::getUsername).containsExactly("alice", "bob");
+            assertThat(users.get(0).getPassword()).startsWith("{bcrypt}$2a$");
+            assertThat(users.get(0).getRoles()).containsExactlyInAnyOrder(UserRole.USER, UserRole.ADMIN);
+            assertThat(users.get(1).getPassword()).isEqualTo("{bcrypt}" + BCRYPT_HASH);
+            assertThat(users.get(1).getRoles()).containsExactly(UserRole.USER);
+
+            verify(checkpointRepository).save(checkpointCaptor.capture());
+            assertThat(checkpointCaptor.getValue().getRecordsProcessed()).isEqualTo(5);
+            assertThat(checkpointCaptor.getValue().getImported()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should skip records already committed by an earlier run")
+        void importUsers_withCheckpoint_shouldResumeAfterIt() {
+            // Arrange
+            String ndjson = "{\"username\":\"alice\",\"email\":\"alice@example.com\",\"passwordHash\":\"" + BCRYPT_HASH + "\"}\n"
+                    + "\n"
+                    + "{\"username\":\"bob\",\"email\":\"bob@example.com\",\"passwordHash\":\"" + BCRYPT_HASH + "\"}\n";
+            when(checkpointRepository.findById("import-2")).thenReturn(Optional.of(UserImportCheckpoint.builder()
+                    .importId("import-2").recordsProcessed(1).imported(1).updatedAt(Instant.now()).build()));
+            when(authUserRepository.findExistingUsernames(any())).thenReturn(List.of());
+            when(authUserRepository.findExistingEmails(any())).thenReturn(List.of());
+
+            // Act
+            UserImportService.ImportReport report = userImportService.importUsers(
+                    "import-2", UserImportService.Format.NDJSON, stream(ndjson));
+
+            // Assert
+            assertThat(report.getSkipped()).isEqualTo(1);
+            assertThat(report.getImported()).isEqualTo(1);
+            verify(authUserRepository).saveAll(usersCaptor.capture());
+            assertThat(usersCaptor.getValue()).extracting(AuthUser::getUsername).containsExactly("bob");
+            verify(checkpointRepository).save(checkpointCaptor.capture());
+            assertThat(checkpointCaptor.getValue().getRecordsProcessed()).isEqualTo(2);
+            assertThat(checkpointCaptor.getValue().getImported()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should fall back to single inserts when a batch hits a unique index")
+        void importUsers_whenBatchViolatesConstraint_shouldRetryRowByRow() {
+            // Arrange
+            String ndjson = "{\"username\":\"alice\",\"email\":\"alice@example.com\",\"passwordHash\":\"" + BCRYPT_HASH + "\"}\n"
+                    + "{\"username\":\"bob\",\"email\":\"bob@example.com\",\"passwordHash\":\"" + BCRYPT_HASH + "\"}\n";
+            when(checkpointRepository.findById("import-3")).thenReturn(Optional.empty());
+            when(authUserRepository.findExistingUsernames(any())).thenReturn(List.of());
+            when(authUserRepository.findExistingEmails(any())).thenReturn(List.of());
+            doThrow(new DataIntegrityViolationException("duplicate")).doNothing().when(authUserRepository).flush();
+            when(authUserRepository.saveAndFlush(any(AuthUser.class))).thenAnswer(invocation -> {
+                AuthUser user = invocation.getArgument(0);
+                if (user.getUsername().equals("bob")) {
+                    throw new DataIntegrityViolationException("duplicate");
+                }
+                return user;
+            });
+
+            // Act
+            UserImportService.ImportReport report = userImportService.importUsers(
+                    "import-3", UserImportService.Format.NDJSON, stream(ndjson));
+
+            // Assert
+            assertThat(report.getImported()).isEqualTo(1);
+            assertThat(report.getRejections()).extracting(UserImportService.Rejection::getUsername)
+                    .containsExactly("bob");
+            verify(checkpointRepository, times(2)).save(checkpointCaptor.capture());
+            assertThat(checkpointCaptor.getValue().getRecordsProcessed()).isEqualTo(2);
+            assertThat(checkpointCaptor.getValue().getImported()).isEqualTo(1);
+            assertThat(checkpointCaptor.getValue().getRejected()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("UserDirectoryService Tests")
+    class UserDirectoryTests {
+
+        @Mock
+        private AuthUserRepository authUserRepository;
+
+        private UserDirectoryService userDirectoryService;
+
+        private final UserDirectoryService.UserFilter noFilter = UserDirectoryService.UserFilter.builder().build();
+
+        @BeforeEach
+        void setUp() {
+            userDirectoryService = new UserDirectoryService(authUserRepository, new ObjectMapper().findAndRegisterModules());
+        }
+
+        private AuthUserRepository.UserExportRow row(long id, String username, UserRole role) {
+            return new AuthUserRepository.UserExportRow() {
+                public Long getId() { return id; }
+                public String getUsername() { return username; }
+                public String getEmail() { return username + "@example.com"; }
+                public Boolean getEnabled() { return true; }
+                public LocalDateTime getCreatedAt() { return LocalDateTime.of(2024, 1, 1, 0, 0); }
+                public UserRole getRole() { return role; }
+            };
+        }
+
+        private AuthUserRepository.UserRoleRow roleRow(long userId, UserRole role) {
+            return new AuthUserRepository.UserRoleRow() {
+                public Long getUserId() { return userId; }
+                public UserRole getRole() { return role; }
+            };
+        }
+
+        @Test
+        @DisplayName("Should attach roles from one query and return a cursor for a full page")
+        void findUsers_withFullPage_shouldLoadRolesOnceAndReturnCursor() {
+            // Arrange
+            when(authUserRepository.findUserRows(eq(10L), isNull(), isNull(), isNull(), isNull(), any()))
+                    .thenReturn(List.of(row(11, "alice", null), row(12, "bob", null)));
+            when(authUserRepository.findUserRoles(List.of(11L, 12L)))
+                    .thenReturn(List.of(roleRow(11, UserRole.USER), roleRow(11, UserRole.ADMIN), roleRow(12, UserRole.USER)));
+
+            // Act
+            UserDirectoryService.UserPage page = userDirectoryService.findUsers(noFilter, 10L, 2);
+
+            // Assert
+            assertThat(page.getUsers()).extracting(UserDirectoryService.UserSummary::getUsername)
+                    .containsExactly("alice", "bob");
+            assertThat(page.getUsers().get(0).getRoles()).containsExactlyInAnyOrder(UserRole.USER, UserRole.ADMIN);
+            assertThat(page.getUsers().get(1).getRoles()).containsExactly(UserRole.USER);
+            assertThat(page.getNextCursor()).isEqualTo(12L);
+            verify(authUserRepository, times(1)).findUserRoles(any());
+        }
+
+        @Test
+        @DisplayName("Should export one NDJSON line per user from per-role rows")
+        void exportUsers_shouldGroupConsecutiveRoleRows() throws IOException {
+            // Arrange
+            when(authUserRepository.streamUserRows(null, null, null, null)).thenReturn(Stream.of(
+                    row(1, "alice", UserRole.ADMIN), row(1, "alice", UserRole.USER), row(2, "bob", null)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // Act
+            long exported = userDirectoryService.exportUsers(noFilter, out);
+
+            // Assert
+            String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+            assertThat(exported).isEqualTo(2);
+            assertThat(lines).hasSize(2);
+            assertThat(lines[0]).contains("\"username\":\"alice\"").contains("ADMIN").contains("USER");
+            assertThat(lines[1]).contains("\"username\":\"bob\"").contains("\"roles\":[]");
+        }
+    }
+
+    @Nested
+    @DisplayName("ClientCatalog Tests")
+    class ClientCatalogTests {
+
+        @Mock
+        private OAuthClientRepository oAuthClientRepository;
+
+        @InjectMocks
+        private ClientCatalog clientCatalog;
+
+        private OAuthClientRepository.ClientRow clientRow(long id, String clientId) {
+            return new OAuthClientRepository.ClientRow() {
+                public Long getId() { return id; }
+                public String getClientId() { return clientId; }
+                public String getClientSecret() { return "{bcrypt}hash"; }
+                // As read back from the database: microsecond precision.
+                public LocalDateTime getCreatedAt() { return LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_456_000); }
+                public Integer getTokenRateLimit() { return null; }
+            };
+        }
+
+        private OAuthClientRepository.ClientValueRow valueRow(long clientKey, String value) {
+            return new OAuthClientRepository.ClientValueRow() {
+                public Long getClientKey() { return clientKey; }
+                public String getValue() { return value; }
+            };
+        }
+
+        @Test
+        @DisplayName("Should build the catalog from bulk rows and page through it by id")
+        void reload_shouldBuildPagedCatalogFromBulkRows() {
+            // Arrange
+            when(oAuthClientRepository.findAllClientRows())
+                    .thenReturn(List.of(clientRow(3, "app-c"), clientRow(1, "app-a"), clientRow(2, "app-b")));
+            when(oAuthClientRepository.findAllRedirectUris()).thenReturn(List.of(valueRow(1, "http://a/cb")));
+            when(oAuthClientRepository.findAllScopes()).thenReturn(List.of(valueRow(1, "read"), valueRow(1, "openid")));
+            when(oAuthClientRepository.findAllGrantTypes()).thenReturn(List.of());
+
+            // Act
+            clientCatalog.reload();
+            ClientCatalog.ClientPage first = clientCatalog.snapshot().page(0, 2);
+            ClientCatalog.ClientPage second = clientCatalog.snapshot().page(first.getNextCursor(), 2);
+
+            // Assert
+            assertThat(first.getClients()).extracting(ClientCatalog.ClientSummary::getClientId)
+                    .containsExactly("app-a", "app-b");
+            assertThat(first.getClients().get(0).getScopes()).containsExactly("openid", "read");
+            assertThat(first.getClients().get(0).getClientSecret()).isEqualTo("********");
+            assertThat(first.getTotal()).isEqualTo(3);
+            assertThat(second.getClients()).extracting(ClientCatalog.ClientSummary::getClientId)
+                    .containsExactly("app-c");
+            assertThat(second.getNextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Should change the ETag only when a client's summary changes")
+        void onClientChanged_shouldKeepETagUnlessSummaryChanges() {
+            // Arrange
+            when(oAuthClientRepository.findAllClientRows()).thenReturn(List.of(clientRow(1, "app-a")));
+            when(oAuthClientRepository.findAllRedirectUris()).thenReturn(List.of());
+            when(oAuthClientRepository.findAllScopes()).thenReturn(List.of(valueRow(1, "openid")));
+            when(oAuthClientRepository.findAllGrantTypes()).thenReturn(List.of());
+            clientCatalog.reload();
+            String initial = clientCatalog.snapshot().getETag();
+            OAuthClient rotated = OAuthClient.builder().id(1L).clientId("app-a").clientSecret("{bcrypt}other")
+                    .scopes(new HashSet<>(Set.of("openid")))
+                    .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_456_789))
+                    .build();
+            OAuthClient rescoped = OAuthClient.builder().id(1L).clientId("app-a").clientSecret("{bcrypt}other")
+                    .scopes(new HashSet<>(Set.of("openid", "write")))
+                    .createdAt(LocalDateTime.of(2024, 1, 1, 0, 0, 0, 123_456_789))
+                    .build();
+            when(oAuthClientRepository.findByClientId("app-a"))
+                    .thenReturn(Optional.of(rotated), Optional.of(rescoped));
+
+            // Act
+            clientCatalog.onClientChanged(new OAuthClientChangedEvent("app-a"));
+            String afterRotation = clientCatalog.snapshot().getETag();
+            clientCatalog.onClientChanged(new OAuthClientChangedEvent("app-a"));
+            String afterRescope = clientCatalog.snapshot().getETag();
+
+            // Assert
+            assertThat(afterRotation).isEqualTo(initial);
+            assertThat(afterRescope).isNotEqualTo(initial);
+            assertThat(clientCatalog.snapshot().findByClientId("app-a")).get()
+                    .extracting(ClientCatalog.ClientSummary::getScopes)
+                    .isEqualTo(List.of("openid", "write"));
+        }
+    }
+
+    @Nested
+    @DisplayName("CachingRegisteredClientRepository Tests")
+    class CachingRegisteredClientRepositoryTests {
+
+        @Mock
+        private OAuthClientRepository oAuthClientRepository;
+
+        private CachingRegisteredClientRepository repository;
+
+        @BeforeEach
+        void setUp() {
+            RegisteredClient staticClient = RegisteredClient.withId("static-1")
+                    .clientId("static-client")
+                    .clientSecret("{noop}secret")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .build();
+            repository = new CachingRegisteredClientRepository(oAuthClientRepository, List.of(staticClient),
+                    new SimpleMeterRegistry());
+            repository.afterPropertiesSet();
+        }
+
+        @Test
+        @DisplayName("Should reject saves so clients are only registered through the registration service")
+        void save_shouldBeRejected() {
+            // Arrange
+            RegisteredClient client = RegisteredClient.withId("new-1")
+                    .clientId("new-client")
+                    .clientSecret("{noop}secret")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .build();
+
+            // Act & Assert
+            assertThatThrownBy(() -> repository.save(client))
+                    .isInstanceOf(UnsupportedOperationException.class)
+                    .hasMessageContaining("ClientRegistrationService");
+            assertThat(repository.findByClientId("new-client")).isNull();
+            assertThat(repository.findByClientId("static-client")).isNotNull();
+            verify(oAuthClientRepository, never()).save(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Client secret cache Tests")
+    class ClientSecretCacheTests {
+
+        @Mock
+        private AuthenticationProvider delegate;
+
+        private RegisteredClient registeredClient;
+        private VerifiedClientSecretCache secretCache;
+        private CachingClientSecretAuthenticationProvider provider;
+
+        // Holds a single client that can be replaced in place, as a secret rotation does.
+        private final RegisteredClientRepository registeredClientRepository = new RegisteredClientRepository() {
+            public void save(RegisteredClient client) { registeredClient = client; }
+            public RegisteredClient findById(String id) { return registeredClient; }
+            public RegisteredClient findByClientId(String clientId) { return registeredClient; }
+        };
+
+        @BeforeEach
+        void setUp() {
+            registeredClient = client("{bcrypt}stored-hash");
+            secretCache = new VerifiedClientSecretCache(Duration.ofMinutes(10), 100);
+            provider = new CachingClientSecretAuthenticationProvider(delegate, registeredClientRepository, secretCache);
+        }
+
+        private RegisteredClient client(String storedSecret) {
+            return RegisteredClient.withId("client-1")
+                    .clientId("service-client")
+                    .clientSecret(storedSecret)
+                    .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                    .redirectUri("http://localhost/callback")
+                    .build();
+        }
+
+        private OAuth2ClientAuthenticationToken request(String secret, AuthorizationGrantType grantType) {
+            return new OAuth2ClientAuthenticationToken("service-client", ClientAuthenticationMethod.CLIENT_SECRET_BASIC,
+                    secret, Map.of("grant_type", grantType.getValue()));
+        }
+
+        private void delegateAccepts(String secret) {
+            when(delegate.authenticate(argThat(auth -> auth != null && secret.equals(auth.getCredentials()))))
+                    .thenAnswer(invocation -> new OAuth2ClientAuthenticationToken(
+                            registeredClientRepository.findByClientId("service-client"),
+                            ClientAuthenticationMethod.CLIENT_SECRET_BASIC, secret));
+        }
+
+        @Test
+        @DisplayName("Should accept a recently verified secret without calling the delegate again")
+        void authenticate_shouldServeRepeatedSecretFromCache() {
+            // Arrange
+            delegateAccepts("s3cret");
+
+            // Act
+            Authentication first = provider.authenticate(request("s3cret", AuthorizationGrantType.CLIENT_CREDENTIALS));
+            Authentication second = provider.authenticate(request("s3cret", AuthorizationGrantType.CLIENT_CREDENTIALS));
+
+            // Assert
+            assertThat(first.isAuthenticated()).isTrue();
+            assertThat(second.isAuthenticated()).isTrue();
+            assertThat(((OAuth2ClientAuthenticationToken) second).getRegisteredClient().getClientId())
+                    .isEqualTo("service-client");
+            verify(delegate, times(1)).authenticate(any());
+            assertThat(secretCache.getEncoderCallsAvoided()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should not cache a secret the delegate rejected")
+        void authenticate_shouldNotCacheWrongSecret() {
+            // Arrange
+            when(delegate.authenticate(any())).thenThrow(new BadCredentialsException("Invalid client secret"));
+
+            // Act & Assert
+            for (int i = 0; i < 2; i++) {
+                assertThatThrownBy(() -> provider.authenticate(request("wrong", AuthorizationGrantType.CLIENT_CREDENTIALS)))
+                        .isInstanceOf(BadCredentialsException.class);
+            }
+            verify(delegate, times(2)).authenticate(any());
+            assertThat(secretCache.size()).isZero();
+            assertThat(secretCache.getHitCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should verify again once the stored secret hash changes")
+        void authenticate_shouldMissAfterSecretRotation() {
+            // Arrange
+            delegateAccepts("s3cret");
+            provider.authenticate(request("s3cret", AuthorizationGrantType.CLIENT_CREDENTIALS));
+            registeredClientRepository.save(client("{bcrypt}rotated-hash"));
+
+            // Act
+            provider.authenticate(request("s3cret", AuthorizationGrantType.CLIENT_CREDENTIALS));
+
+            // Assert
+            verify(delegate, times(2)).authenticate(any());
+            assertThat(secretCache.getHitCount()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should drop a client's verifications when it changes")
+        void onClientChanged_shouldInvalidateClient() {
+            // Arrange
+            secretCache.recordVerified("service-client", "s3cret", "{bcrypt}stored-hash");
+            secretCache.recordVerified("other-client", "other", "{bcrypt}other-hash");
+
+            // Act
+            secretCache.onClientChanged(new OAuthClientChangedEvent("service-client"));
+
+            // Assert
+            assertThat(secretCache.isVerified("service-client", "s3cret", "{bcrypt}stored-hash")).isFalse();
+            assertThat(secretCache.isVerified("other-client", "other", "{bcrypt}other-hash")).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should always send authorization code exchanges to the delegate")
+        void authenticate_shouldBypassCacheForAuthorizationCode() {
+            // Arrange
+            delegateAccepts("s3cret");
+
+            // Act
+            provider.authenticate(request("s3cret", AuthorizationGrantType.AUTHORIZATION_CODE));
+            provider.authenticate(request("s3cret", AuthorizationGrantType.AUTHORIZATION_CODE));
+
+            // Assert
+            verify(delegate, times(2)).authenticate(any());
+            assertThat(secretCache.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should verify again once the cached verification has expired")
+        void authenticate_shouldMissAfterTtl() throws InterruptedException {
+            // Arrange
+            secretCache = new VerifiedClientSecretCache(Duration.ofMillis(50), 100);
+            provider = new CachingClientSecretAuthenticationProvider(delegate, registeredClientRepository, secretCache);
+            delegateAccepts("s3cret");
+            provider.authenticate(request("s3cret", AuthorizationGrantType.CLIENT_CREDENTIALS));
+
+            // Act
+            TimeUnit.MILLISECONDS.sleep(150);
+            provider.authenticate(request("s3cret", AuthorizationGrantType.CLIENT_CREDENTIALS));
+
+            // Assert
+            verify(delegate, times(2)).authenticate(any());
+            assertThat(secretCache.getHitCount()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("Password hashing pool Tests")
+    class PasswordHashingTests {
+
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final ExecutorService callers = Executors.newFixedThreadPool(2);
+        private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private PasswordHashingExecutor hashingExecutor;
+
+        @AfterEach
+        void tearDown() {
+            release.countDown();
+            callers.shutdownNow();
+            if (hashingExecutor != null) {
+                hashingExecutor.destroy();
+            }
+        }
+
+        /**
+         * Occupy the single hashing thread until {@link #release} opens.
+         */
+        private void occupyHashingThread() throws InterruptedException {
+            CountDownLatch started = new CountDownLatch(1);
+            callers.submit(() -> hashingExecutor.execute(() -> {
+                started.countDown();
+                return release.await(10, TimeUnit.SECONDS);
+            }));
+            assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should answer 503 with Retry-After when the hashing queue is full")
+        void execute_shouldRejectWhenQueueIsFull() throws Exception {
+            // Arrange
+            hashingExecutor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(10), meterRegistry);
+            occupyHashingThread();
+            callers.submit(() -> hashingExecutor.execute(() -> "queued"));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (hashingExecutor.getQueueDepth() < 1 && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            PasswordHashingRejectionFilter filter = new PasswordHashingRejectionFilter(Duration.ofSeconds(2));
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+            MockHttpServletResponse response = new MockHttpServletResponse();
+
+            // Act
+            filter.doFilter(request, response, (req, res) -> hashingExecutor.execute(() -> "rejected"));
+
+            // Assert
+            assertThat(response.getStatus()).isEqualTo(503);
+            assertThat(response.getHeader("Retry-After")).isEqualTo("2");
+            assertThat(response.getContentAsString()).contains("temporarily_unavailable");
+            assertThat(hashingExecutor.getRejectedCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should reject a task still queued after max-wait and never run it")
+        void execute_shouldDropTaskQueuedPastMaxWait() throws Exception {
+            // Arrange
+            hashingExecutor = new PasswordHashingExecutor(1, 4, Duration.ofMillis(100), meterRegistry);
+            occupyHashingThread();
+            AtomicBoolean ran = new AtomicBoolean();
+
+            // Act & Assert
+            assertThatThrownBy(() -> hashingExecutor.execute(() -> ran.getAndSet(true)))
+                    .isInstanceOf(PasswordHashingRejectedException.class)
+                    .hasMessageContaining("did not start");
+            assertThat(hashingExecutor.getQueueDepth()).isZero();
+            release.countDown();
+            assertThat(hashingExecutor.execute(() -> "next")).isEqualTo("next");
+            assertThat(ran).isFalse();
+            assertThat(meterRegistry.get("auth.password.hashing.wait").timer().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should wait for a hash that has started even past max-wait")
+        void execute_shouldNotAbandonRunningTask() {
+            // Arrange
+            hashingExecutor = new PasswordHashingExecutor(1, 4, Duration.ofMillis(50), meterRegistry);
+
+            // Act
+            String result = hashingExecutor.execute(() -> {
+                TimeUnit.MILLISECONDS.sleep(200);
+                return "hashed";
+            });
+
+            // Assert
+            assertThat(result).isEqualTo("hashed");
+            assertThat(hashingExecutor.getRejectedCount()).isZero();
+            assertThat(hashingExecutor.getCompletedCount()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("JWT encoder and decoder Tests")
+    class JwtRoundTripTests {
+
+        private JwtClaimsSet claims() {
+            Instant now = Instant.now();
+            return JwtClaimsSet.builder()
+                    .issuer("http://localhost:9000")
+                    .subject("johndoe")
+                    .audience(List.of("web-client"))
+                    .issuedAt(now)
+                    .expiresAt(now.plus(Duration.ofMinutes(5)))
+                    .claim("scope", List.of("openid", "profile"))
+                    .build();
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @EnumSource(SigningAlgorithm.class)
+        @DisplayName("Should decode a token it encoded with each signing algorithm")
+        void encodeThenDecode_shouldRoundTrip(SigningAlgorithm algorithm) {
+            // Arrange
+            JWK key = algorithm.generateKey("key-" + algorithm.name(), 2048);
+            JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(key));
+            JwkSourceJwtEncoder encoder = new JwkSourceJwtEncoder(jwkSource);
+            JwkSourceJwtDecoder decoder = new JwkSourceJwtDecoder(jwkSource, EnumSet.allOf(SigningAlgorithm.class));
+            JwsHeader header = JwsHeader.with(algorithm).keyId(key.getKeyID()).build();
+
+            // Act
+            Jwt encoded = encoder.encode(JwtEncoderParameters.from(header, claims()));
+            Jwt decoded = decoder.decode(encoded.getTokenValue());
+
+            // Assert
+            assertThat(decoded.getHeaders()).containsEntry("alg", algorithm.getName())
+                    .containsEntry("kid", key.getKeyID());
+            assertThat(decoded.getSubject()).isEqualTo("johndoe");
+            assertThat(decoded.getAudience()).containsExactly("web-client");
+            assertThat(decoded.getClaimAsStringList("scope")).containsExactly("openid", "profile");
+            assertThat(decoded.getExpiresAt()).isEqualTo(encoded.getExpiresAt().truncatedTo(ChronoUnit.SECONDS));
+        }
+
+        @ParameterizedTest(name = "{0}")
+        @EnumSource(SigningAlgorithm.class)
+        @DisplayName("Should reject a token signed by a key outside the key set")
+        void decode_shouldRejectForeignKey(SigningAlgorithm algorithm) {
+            // Arrange
+            JWK trusted = algorithm.generateKey("shared-id", 2048);
+            JWK foreign = algorithm.generateKey("shared-id", 2048);
+            JwkSourceJwtEncoder encoder = new JwkSourceJwtEncoder(new ImmutableJWKSet<>(new JWKSet(foreign)));
+            JwkSourceJwtDecoder decoder = new JwkSourceJwtDecoder(new ImmutableJWKSet<>(new JWKSet(trusted)),
+                    EnumSet.allOf(SigningAlgorithm.class));
+            JwsHeader header = JwsHeader.with(algorithm).keyId("shared-id").build();
+            String token = encoder.encode(JwtEncoderParameters.from(header, claims())).getTokenValue();
+
+            // Act & Assert
+            assertThatThrownBy(() -> decoder.decode(token))
+                    .isInstanceOf(BadJwtException.class)
+                    .hasMessageContaining("Invalid signature");
+        }
+
+        private JwkSourceJwtEncoder es256Encoder(JWK key) {
+            return new JwkSourceJwtEncoder(new ImmutableJWKSet<>(new JWKSet(key)));
+        }
+
+        private JwtClaimsSet claimsWith(String name, Object value) {
+            return JwtClaimsSet.builder().subject("johndoe").claim(name, value).build();
+        }
+
+        @Test
+        @DisplayName("Should write claims that Nimbus parses back to the same values")
+        void encode_shouldWriteClaimsNimbusParses() throws Exception {
+            // Arrange
+            JWK key = SigningAlgorithm.ES256.generateKey("key-es256", 2048);
+            Instant issuedAt = Instant.parse("2024-01-01T10:00:00.750Z");
+            String tricky = "quote\" back\\slash\nnew\tline \u0001 </script> caf\u00e9 \uD83D\uDE00";
+            Map<String, Object> address = new LinkedHashMap<>();
+            address.put("street", "1 Main St");
+            address.put("tags", List.of("home", Map.of("floor", 2)));
+            JwtClaimsSet claims = JwtClaimsSet.builder()
+                    .issuer("http://localhost:9000")
+                    .subject("johndoe")
+                    .issuedAt(issuedAt)
+                    .claim("note", tricky)
+                    .claim("address", address)
+                    .claim("scope", new LinkedHashSet<>(List.of("openid", "profile")))
+                    .claim("website", new URL("https://example.com/a?b=c"))
+                    .claim("ratio", 0.5)
+                    .claim("verified", true)
+                    .build();
+
+            // Act
+            String token = es256Encoder(key).encode(JwtEncoderParameters.from(
+                    JwsHeader.with(SigningAlgorithm.ES256).keyId(key.getKeyID()).build(), claims)).getTokenValue();
+            SignedJWT parsed = SignedJWT.parse(token);
+            JWTClaimsSet parsedClaims = parsed.getJWTClaimsSet();
+
+            // Assert
+            assertThat(parsed.verify(new ECDSAVerifier(key.toECKey().toPublicJWK()))).isTrue();
+            assertThat(parsedClaims.getStringClaim("note")).isEqualTo(tricky);
+            assertThat(parsedClaims.getIssueTime()).isEqualTo(Date.from(issuedAt.truncatedTo(ChronoUnit.SECONDS)));
+            assertThat(parsedClaims.getJSONObjectClaim("address"))
+                    .containsEntry("street", "1 Main St")
+                    .containsEntry("tags", List.of("home", Map.of("floor", 2L)));
+            assertThat(parsedClaims.getStringListClaim("scope")).containsExactly("openid", "profile");
+            assertThat(parsedClaims.getStringClaim("website")).isEqualTo("https://example.com/a?b=c");
+            assertThat(parsedClaims.getDoubleClaim("ratio")).isEqualTo(0.5);
+            assertThat(parsedClaims.getBooleanClaim("verified")).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should use the pre-encoded header for alg and kid only, and encode any other header")
+        void encode_shouldWriteBothHeaderForms() throws Exception {
+            // Arrange
+            JWK key = SigningAlgorithm.ES256.generateKey("key-es256", 2048);
+            JwkSourceJwtEncoder encoder = es256Encoder(key);
+            JwsHeader plain = JwsHeader.with(SigningAlgorithm.ES256).keyId(key.getKeyID()).build();
+            JwsHeader custom = JwsHeader.with(SigningAlgorithm.ES256).keyId(key.getKeyID())
+                    .type("at+jwt")
+                    .header("x-note", "a\"b")
+                    .build();
+
+            // Act
+            SignedJWT plainJwt = SignedJWT.parse(encoder.encode(JwtEncoderParameters.from(plain, claims())).getTokenValue());
+            SignedJWT customJwt = SignedJWT.parse(encoder.encode(JwtEncoderParameters.from(custom, claims())).getTokenValue());
+
+            // Assert
+            assertThat(plainJwt.getHeader().toJSONObject()).containsOnlyKeys("alg", "kid");
+            assertThat(plainJwt.getHeader().getKeyID()).isEqualTo(key.getKeyID());
+            assertThat(customJwt.getHeader().getAlgorithm().getName()).isEqualTo("ES256");
+            assertThat(customJwt.getHeader().getKeyID()).isEqualTo(key.getKeyID());
+            assertThat(customJwt.getHeader().getType().getType()).isEqualTo("at+jwt");
+            assertThat(customJwt.getHeader().getCustomParam("x-note")).isEqualTo("a\"b");
+            assertThat(customJwt.verify(new ECDSAVerifier(key.toECKey().toPublicJWK()))).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should refuse claims that have no faithful JSON form")
+        void encode_shouldRejectUnencodableValues() {
+            // Arrange
+            JWK key = SigningAlgorithm.ES256.generateKey("key-es256", 2048);
+            JwkSourceJwtEncoder encoder = es256Encoder(key);
+            JwsHeader header = JwsHeader.with(SigningAlgorithm.ES256).keyId(key.getKeyID()).build();
+
+            // Act & Assert
+            assertThatThrownBy(() -> encoder.encode(JwtEncoderParameters.from(header, claimsWith("x", new Object()))))
+                    .isInstanceOf(JwtEncodingException.class)
+                    .hasMessageContaining("java.lang.Object");
+            assertThatThrownBy(() -> encoder.encode(JwtEncoderParameters.from(header, claimsWith("x", Double.NaN))))
+                    .isInstanceOf(JwtEncodingException.class)
+                    .hasMessageContaining("non-finite");
+            assertThatThrownBy(() -> encoder.encode(JwtEncoderParameters.from(header,
+                    claimsWith("x", List.of(Float.POSITIVE_INFINITY)))))
+                    .isInstanceOf(JwtEncodingException.class);
+            assertThatThrownBy(() -> encoder.encode(JwtEncoderParameters.from(header, claimsWith("x", "lone \uD800"))))
+                    .isInstanceOf(JwtEncodingException.class)
+                    .hasMessageContaining("unpaired surrogate");
+            assertThatThrownBy(() -> encoder.encode(JwtEncoderParameters.from(header, claimsWith("x", "\uDC00 first"))))
+                    .isInstanceOf(JwtEncodingException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("SigningKeyRing Tests")
+    class SigningKeyRingTests {
+
+        private final SigningAlgorithms algorithms = new SigningAlgorithms("ES256", List.of());
+
+        private SigningKeyRing keyRing(Duration rotationInterval, Duration retention) {
+            SigningKeyRing keyRing = new SigningKeyRing(algorithms, 2048, rotationInterval, retention);
+            keyRing.afterPropertiesSet();
+            return keyRing;
+        }
+
+        private List<String> publishedKeyIds(SigningKeyRing keyRing) {
+            return keyRing.getPublicJwkSet().getKeys().stream().map(JWK::getKeyID).collect(Collectors.toList());
+        }
+
+        @Test
+        @DisplayName("Should publish the pre-generated next key alongside the current key from startup")
+        void afterPropertiesSet_shouldPublishNextAndCurrent() {
+            // Act
+            SigningKeyRing keyRing = keyRing(Duration.ofDays(30), Duration.ofDays(1));
+
+            // Assert
+            List<SigningKey> keys = keyRing.getKeys();
+            assertThat(keys).hasSize(2);
+            assertThat(keys.get(1).getKeyId()).isEqualTo(keyRing.getCurrentKeyId(SigningAlgorithm.ES256));
+            assertThat(keys.get(0).getActivatesAt()).isAfter(keys.get(1).getActivatesAt());
+            assertThat(publishedKeyIds(keyRing)).containsExactly(keys.get(0).getKeyId(), keys.get(1).getKeyId());
+            assertThat(keyRing.getPublicJwkSet().getKeys()).noneMatch(JWK::isPrivate);
+        }
+
+        @Test
+        @DisplayName("Should rotate to the already published next key without generating one on the spot")
+        void rotate_shouldPromotePublishedNextKey() {
+            // Arrange
+            SigningKeyRing keyRing = keyRing(Duration.ofDays(30), Duration.ofDays(1));
+            String next = keyRing.getKeys().get(0).getKeyId();
+            String current = keyRing.getCurrentKeyId(SigningAlgorithm.ES256);
+
+            // Act
+            SigningKey rotated = keyRing.rotate(SigningAlgorithm.ES256);
+            List<String> afterRotation = publishedKeyIds(keyRing);
+            Throwable secondRotation = catchThrowable(() -> keyRing.rotate(SigningAlgorithm.ES256));
+            keyRing.maintain();
+
+            // Assert
+            assertThat(rotated.getKeyId()).isEqualTo(next);
+            assertThat(keyRing.getCurrentKeyId(SigningAlgorithm.ES256)).isEqualTo(next);
+            assertThat(afterRotation).containsExactly(next, current);
+            assertThat(secondRotation).isInstanceOf(IllegalStateException.class);
+
+            List<String> afterMaintain = publishedKeyIds(keyRing);
+            assertThat(afterMaintain).hasSize(3);
+            assertThat(afterMaintain.subList(1, 3)).containsExactly(next, current);
+            assertThat(afterMaintain.get(0)).isNotIn(next, current);
+        }
+
+        @Test
+        @DisplayName("Should promote the next key once its activation time has come")
+        void maintain_shouldPromoteDueNextKey() {
+            // Arrange
+            SigningKeyRing keyRing = keyRing(Duration.ZERO, Duration.ofDays(1));
+            String next = keyRing.getKeys().get(0).getKeyId();
+            String current = keyRing.getCurrentKeyId(SigningAlgorithm.ES256);
+
+            // Act
+            keyRing.maintain();
+
+            // Assert
+            assertThat(keyRing.getCurrentKeyId(SigningAlgorithm.ES256)).isEqualTo(next);
+            assertThat(publishedKeyIds(keyRing)).hasSize(3).contains(next, current);
+            assertThat(keyRing.getKeys().get(2).getRetiresAt()).isAfter(Instant.now());
+        }
+
+        @Test
+        @DisplayName("Should drop superseded keys from the published set after their retention")
+        void maintain_shouldDropRetiredKeys() {
+            // Arrange
+            SigningKeyRing keyRing = keyRing(Duration.ofDays(30), Duration.ZERO);
+            String current = keyRing.getCurrentKeyId(SigningAlgorithm.ES256);
+            keyRing.rotate(SigningAlgorithm.ES256);
+
+            // Act
+            keyRing.maintain();
+
+            // Assert
+            assertThat(publishedKeyIds(keyRing)).hasSize(2).doesNotContain(current);
+            assertThat(keyRing.getKeys()).noneMatch(key -> key.getRetiresAt() != null);
+        }
+
+        @Test
+        @DisplayName("Should unpublish a compromised key at once instead of retaining it")
+        void rotateCompromised_shouldDropOldKeyImmediately() {
+            // Arrange
+            SigningKeyRing keyRing = keyRing(Duration.ofDays(30), Duration.ofDays(1));
+            String next = keyRing.getKeys().get(0).getKeyId();
+            String compromised = keyRing.getCurrentKeyId(SigningAlgorithm.ES256);
+
+            // Act
+            SigningKey replacement = keyRing.rotateCompromised(SigningAlgorithm.ES256);
+
+            // Assert
+            assertThat(replacement.getKeyId()).isEqualTo(next);
+            assertThat(keyRing.getCurrentKeyId(SigningAlgorithm.ES256)).isEqualTo(next);
+            assertThat(publishedKeyIds(keyRing)).containsExactly(next);
+            assertThat(keyRing.getKeys()).extracting(SigningKey::getKeyId).doesNotContain(compromised);
+        }
+
+        @Test
+        @DisplayName("Should time signing per algorithm rather than per key, so rotations add no timer series")
+        void timedEncoder_shouldKeepOneSeriesAcrossRotations() {
+            // Arrange
+            SigningKeyRing keyRing = keyRing(Duration.ofDays(30), Duration.ofDays(1));
+            MeterRegistry meterRegistry = new SimpleMeterRegistry();
+            TimedJwtEncoder encoder = new TimedJwtEncoder(new JwkSourceJwtEncoder(keyRing), meterRegistry);
+
+            // Act
+            for (int i = 0; i < 3; i++) {
+                JwsHeader header = JwsHeader.with(SigningAlgorithm.ES256)
+                        .keyId(keyRing.getCurrentKeyId(SigningAlgorithm.ES256)).build();
+                encoder.encode(JwtEncoderParameters.from(header, JwtClaimsSet.builder().subject("johndoe").build()));
+                keyRing.rotate(SigningAlgorithm.ES256);
+                keyRing.maintain();
+            }
+
+            // Assert
+            assertThat(meterRegistry.get("auth.jwt.signing").timers()).hasSize(1);
+            assertThat(meterRegistry.get("auth.jwt.signing")
+                    .tags("algorithm", "ES256", "outcome", "success").timer().count()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should tag signing with the JWA algorithm name rather than the enum constant")
+        void timedEncoder_shouldTagJwaAlgorithmName() {
+            // Arrange
+            MeterRegistry meterRegistry = new SimpleMeterRegistry();
+            JwtEncoder delegate = mock(JwtEncoder.class);
+            when(delegate.encode(any(JwtEncoderParameters.class))).thenReturn(Jwt.withTokenValue("token")
+                    .header("alg", SigningAlgorithm.EDDSA)
+                    .subject("johndoe")
+                    .build());
+            TimedJwtEncoder encoder = new TimedJwtEncoder(delegate, meterRegistry);
+
+            // Act
+            encoder.encode(JwtEncoderParameters.from(JwsHeader.with(SigningAlgorithm.EDDSA).build(),
+                    JwtClaimsSet.builder().subject("johndoe").build()));
+
+            // Assert
+            assertThat(meterRegistry.get("auth.jwt.signing").timer().getId().getTag("algorithm")).isEqualTo("EdDSA");
+        }
+    }
+
+    @Nested
+    @DisplayName("JwkSetEndpointFilter Tests")
+    class JwkSetEndpointFilterTests {
+
+        private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private SigningKeyRing keyRing;
+
+        @BeforeEach
+        void setUp() {
+            keyRing = new SigningKeyRing(new SigningAlgorithms("ES256", List.of()), 2048,
+                    Duration.ofDays(30), Duration.ofDays(1));
+            keyRing.afterPropertiesSet();
+        }
+
+        private JwkSetEndpointFilter filter(Duration cacheMaxAge, Duration rotationInterval) {
+            return new JwkSetEndpointFilter(keyRing, Set.of("/oauth2/jwks", "/.well-known/jwks.json"),
+                    cacheMaxAge, rotationInterval, meterRegistry);
+        }
+
+        private MockHttpServletResponse get(JwkSetEndpointFilter filter, String ifNoneMatch) throws Exception {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/.well-known/jwks.json");
+            if (ifNoneMatch != null) {
+                request.addHeader(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+            }
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, (req, res) -> {
+                throw new AssertionError("The JWK set request reached the filter chain");
+            });
+            return response;
+        }
+
+        @Test
+        @DisplayName("Should serve the published keys with a strong ETag")
+        void doFilter_shouldServeJwkSetWithEtag() throws Exception {
+            // Act
+            MockHttpServletResponse response = get(filter(Duration.ofMinutes(15), Duration.ofDays(30)), null);
+
+            // Assert
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader(HttpHeaders.ETAG))
+                    .isEqualTo(keyRing.getPublishedJwkSet().getEtag())
+                    .startsWith("\"").doesNotStartWith("W/");
+            assertThat(JWKSet.parse(response.getContentAsString()).getKeys())
+                    .extracting(JWK::getKeyID)
+                    .containsExactlyElementsOf(keyRing.getKeys().stream().map(SigningKey::getKeyId)
+                            .collect(Collectors.toList()));
+            assertThat(response.getContentLength()).isEqualTo(response.getContentAsByteArray().length);
+        }
+
+        @Test
+        @DisplayName("Should answer a matching If-None-Match with 304 and no body")
+        void doFilter_withMatchingEtag_shouldReturnNotModified() throws Exception {
+            // Arrange
+            JwkSetEndpointFilter filter = filter(Duration.ofMinutes(15), Duration.ofDays(30));
+            String etag = get(filter, null).getHeader(HttpHeaders.ETAG);
+
+            // Act
+            MockHttpServletResponse strong = get(filter, etag);
+            MockHttpServletResponse weak = get(filter, "\"other\", W/" + etag);
+
+            // Assert
+            assertThat(strong.getStatus()).isEqualTo(304);
+            assertThat(strong.getContentAsByteArray()).isEmpty();
+            assertThat(strong.getHeader(HttpHeaders.ETAG)).isEqualTo(etag);
+            assertThat(weak.getStatus()).isEqualTo(304);
+            assertThat(meterRegistry.get("auth.jwks.requests").tag("status", "304").counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should change the ETag when the key ring changes")
+        void doFilter_afterRotation_shouldServeNewEtag() throws Exception {
+            // Arrange
+            JwkSetEndpointFilter filter = filter(Duration.ofMinutes(15), Duration.ofDays(30));
+            String before = get(filter, null).getHeader(HttpHeaders.ETAG);
+            keyRing.rotate(SigningAlgorithm.ES256);
+            keyRing.maintain();
+
+            // Act
+            MockHttpServletResponse response = get(filter, before);
+
+            // Assert
+            assertThat(response.getStatus()).isEqualTo(200);
+            assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(before);
+            assertThat(JWKSet.parse(response.getContentAsString()).getKeys()).hasSize(3);
+        }
+
+        @Test
+        @DisplayName("Should cap max-age at half the rotation interval")
+        void doFilter_shouldBoundMaxAgeByRotation() throws Exception {
+            // Act
+            String configured = get(filter(Duration.ofMinutes(15), Duration.ofDays(30)), null)
+                    .getHeader(HttpHeaders.CACHE_CONTROL);
+            String capped = get(filter(Duration.ofMinutes(15), Duration.ofMinutes(20)), null)
+                    .getHeader(HttpHeaders.CACHE_CONTROL);
+
+            // Assert
+            assertThat(configured).isEqualTo("public, max-age=900");
+            assertThat(capped).isEqualTo("public, max-age=600");
+        }
+    }
+
+    @Nested
+    @DisplayName("LocalJwtIntrospectionAuthenticationProvider Tests")
+    class LocalJwtIntrospectionTests {
+
+        private static final String ISSUER = "http://localhost:9000";
+
+        @Mock
+        private RevokedTokenIndex revokedTokenIndex;
+
+        @Mock
+        private OAuth2AuthorizationService authorizationService;
+
+        private final AtomicInteger decodes = new AtomicInteger();
+        private JwkSourceJwtEncoder encoder;
+        private ProviderManager introspection;
+        private OAuth2ClientAuthenticationToken clientPrincipal;
+
+        @BeforeEach
+        void setUp() {
+            JWK key = SigningAlgorithm.ES256.generateKey("own-key", 2048);
+            JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(key));
+            encoder = new JwkSourceJwtEncoder(jwkSource);
+            JwkSourceJwtDecoder decoder = new JwkSourceJwtDecoder(jwkSource, EnumSet.of(SigningAlgorithm.ES256));
+            JwtDecoder countingDecoder = token -> {
+                decodes.incrementAndGet();
+                return decoder.decode(token);
+            };
+            RegisteredClient client = RegisteredClient.withId("resource-server")
+                    .clientId("resource-server")
+                    .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .build();
+            clientPrincipal = new OAuth2ClientAuthenticationToken(client, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+            // Ahead of the framework's provider, as in AuthorizationServerConfig
+            introspection = new ProviderManager(
+                    new LocalJwtIntrospectionAuthenticationProvider(countingDecoder, revokedTokenIndex, ISSUER, 100),
+                    new OAuth2TokenIntrospectionAuthenticationProvider(
+                            new InMemoryRegisteredClientRepository(client), authorizationService));
+        }
+
+        private String token(JwkSourceJwtEncoder encoder, String issuer, String tokenId, Instant expiresAt) {
+            JwtClaimsSet.Builder claims = JwtClaimsSet.builder()
+                    .issuer(issuer)
+                    .subject("johndoe")
+                    .audience(List.of("web-client"))
+                    .issuedAt(expiresAt.minus(Duration.ofMinutes(10)))
+                    .expiresAt(expiresAt)
+                    .claim("scope", List.of("read"));
+            if (tokenId != null) {
+                claims.id(tokenId);
+            }
+            return encoder.encode(JwtEncoderParameters.from(JwsHeader.with(SigningAlgorithm.ES256).build(),
+                    claims.build())).getTokenValue();
+        }
+
+        private OAuth2TokenIntrospection introspect(String token) {
+            return ((OAuth2TokenIntrospectionAuthenticationToken) introspection.authenticate(
+                    new OAuth2TokenIntrospectionAuthenticationToken(token, clientPrincipal, null, null)))
+                    .getTokenClaims();
+        }
+
+        @Test
+        @DisplayName("Should report an own access token active without calling the authorization store")
+        void authenticate_withActiveToken_shouldNotCallStore() {
+            // Arrange
+            String token = token(encoder, ISSUER, "jti-1", Instant.now().plus(Duration.ofMinutes(5)));
+
+            // Act
+            OAuth2TokenIntrospection claims = introspect(token);
+
+            // Assert
+            assertThat(claims.isActive()).isTrue();
+            assertThat(claims.getId()).isEqualTo("jti-1");
+            assertThat(claims.getClientId()).isEqualTo("web-client");
+            assertThat(claims.getScopes()).containsExactly("read");
+            verify(revokedTokenIndex).isRevoked("jti-1");
+            verifyNoInteractions(authorizationService);
+        }
+
+        @Test
+        @DisplayName("Should report a token revoked after it was cached as inactive")
+        void authenticate_withRevokedCachedToken_shouldBeInactive() {
+            // Arrange
+            String token = token(encoder, ISSUER, "jti-1", Instant.now().plus(Duration.ofMinutes(5)));
+            assertThat(introspect(token).isActive()).isTrue();
+            when(revokedTokenIndex.isRevoked("jti-1")).thenReturn(true);
+
+            // Act
+            OAuth2TokenIntrospection claims = introspect(token);
+
+            // Assert
+            assertThat(claims.isActive()).isFalse();
+            assertThat(decodes).hasValue(1);
+            verifyNoInteractions(authorizationService);
+        }
+
+        @Test
+        @DisplayName("Should report an expired own token as inactive")
+        void authenticate_withExpiredToken_shouldBeInactive() {
+            // Arrange
+            String token = token(encoder, ISSUER, "jti-1", Instant.now().minus(Duration.ofMinutes(5)));
+
+            // Act
+            OAuth2TokenIntrospection claims = introspect(token);
+
+            // Assert
+            assertThat(claims.isActive()).isFalse();
+            verifyNoInteractions(revokedTokenIndex, authorizationService);
+        }
+
+        @Test
+        @DisplayName("Should leave other issuers' tokens and tokens without a jti to the framework's provider")
+        void authenticate_withForeignOrUnidentifiedToken_shouldFallThrough() {
+            // Arrange
+            JwkSourceJwtEncoder foreignEncoder = new JwkSourceJwtEncoder(new ImmutableJWKSet<>(
+                    new JWKSet(SigningAlgorithm.ES256.generateKey("foreign-key", 2048))));
+            Instant expiresAt = Instant.now().plus(Duration.ofMinutes(5));
+            String foreign = token(foreignEncoder, "https://other.example.com", "jti-2", expiresAt);
+            String withoutJti = token(encoder, ISSUER, null, expiresAt);
+
+            // Act
+            OAuth2TokenIntrospection foreignClaims = introspect(foreign);
+            OAuth2TokenIntrospection withoutJtiClaims = introspect(withoutJti);
+
+            // Assert
+            assertThat(foreignClaims.isActive()).isFalse();
+            assertThat(withoutJtiClaims.isActive()).isFalse();
+            verify(authorizationService).findByToken(foreign, null);
+            verify(authorizationService).findByToken(withoutJti, null);
+            verifyNoInteractions(revokedTokenIndex);
+        }
+    }
+
+    @Nested
+    @DisplayName("RevokedTokenIndex Tests")
+    class RevokedTokenIndexTests {
+
+        @Mock
+        private RevokedTokenRepository revokedTokenRepository;
+
+        private RevokedTokenIndex revokedTokenIndex;
+
+        @BeforeEach
+        void setUp() {
+            revokedTokenIndex = new RevokedTokenIndex(revokedTokenRepository, 1000, 0.01, Duration.ofSeconds(30));
+        }
+
+        @Test
+        @DisplayName("Should persist a revocation at once but index it only once it has committed")
+        void onAccessTokenRevoked_shouldIndexOnlyAfterCommit() {
+            // Arrange
+            String tokenId = UUID.randomUUID().toString();
+            AccessTokenRevokedEvent event = new AccessTokenRevokedEvent(tokenId, Instant.now().plus(Duration.ofHours(1)));
+
+            // Act
+            revokedTokenIndex.onAccessTokenRevoked(event);
+            boolean revokedBeforeCommit = revokedTokenIndex.isRevoked(tokenId);
+            revokedTokenIndex.onAccessTokenRevocationCommitted(event);
+
+            // Assert
+            verify(revokedTokenRepository).insertIfAbsent(eq(tokenId), eq(event.getExpiresAt()), any(Instant.class));
+            assertThat(revokedBeforeCommit).isFalse();
+            assertThat(revokedTokenIndex.isRevoked(tokenId)).isTrue();
+        }
+
+        @Test
+        @DisplayName("Should persist a revocation again even when the id is already indexed")
+        void onAccessTokenRevoked_shouldAlwaysPersist() {
+            // Arrange
+            String tokenId = UUID.randomUUID().toString();
+            AccessTokenRevokedEvent event = new AccessTokenRevokedEvent(tokenId, Instant.now().plus(Duration.ofHours(1)));
+            revokedTokenIndex.onAccessTokenRevocationCommitted(event);
+
+            // Act
+            revokedTokenIndex.onAccessTokenRevoked(event);
+
+            // Assert
+            verify(revokedTokenRepository).insertIfAbsent(eq(tokenId), eq(event.getExpiresAt()), any(Instant.class));
+        }
+
+        @Test
+        @DisplayName("Should ignore tokens that have already expired")
+        void onAccessTokenRevoked_shouldIgnoreExpiredTokens() {
+            // Arrange
+            String tokenId = UUID.randomUUID().toString();
+            AccessTokenRevokedEvent event = new AccessTokenRevokedEvent(tokenId, Instant.now().minusSeconds(1));
+
+            // Act
+            revokedTokenIndex.onAccessTokenRevoked(event);
+            revokedTokenIndex.onAccessTokenRevocationCommitted(event);
+
+            // Assert
+            verifyNoInteractions(revokedTokenRepository);
+            assertThat(revokedTokenIndex.size()).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("ClientCredentialsTokenCache Tests")
+    class ClientCredentialsTokenCacheTests {
+
+        @Mock
+        private RevokedTokenRepository revokedTokenRepository;
+
+        private RevokedTokenIndex revokedTokenIndex;
+        private ClientCredentialsTokenCache tokenCache;
+        private final RegisteredClient client = RegisteredClient.withId("client-1")
+                .clientId("service-client")
+                .clientSecret("{noop}secret")
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope("read")
+                .scope("write")
+                .build();
+
+        @BeforeEach
+        void setUp() {
+            revokedTokenIndex = new RevokedTokenIndex(revokedTokenRepository, 1000, 0.01, Duration.ofSeconds(30));
+            tokenCache = new ClientCredentialsTokenCache(revokedTokenIndex, Duration.ofMinutes(5));
+        }
+
+        private OAuth2AccessToken accessToken(String jti, Duration lifetime) {
+            Instant issuedAt = Instant.now();
+            String value = new PlainJWT(new JWTClaimsSet.Builder().jwtID(jti).build()).serialize();
+            return new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER, value, issuedAt, issuedAt.plus(lifetime));
+        }
+
+        @Test
+        @DisplayName("Should hand back the cached token for the same client and scopes")
+        void get_shouldReuseToken() {
+            // Arrange
+            OAuth2AccessToken token = accessToken("jti-1", Duration.ofHours(1));
+            tokenCache.put(client, Set.of("read"), token);
+
+            // Act
+            OAuth2AccessToken reused = tokenCache.get(client, Set.of("read"));
+
+            // Assert
+            assertThat(reused).isSameAs(token);
+            assertThat(tokenCache.get(client, Set.of("write"))).isNull();
+            assertThat(tokenCache.getReuseCount()).isEqualTo(1);
+            assertThat(tokenCache.getIssueCount()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should share one token between scope sets listed in a different order")
+        void get_shouldNormaliseScopeOrder() {
+            // Arrange
+            OAuth2AccessToken token = accessToken("jti-1", Duration.ofHours(1));
+            tokenCache.put(client, new LinkedHashSet<>(List.of("write", "read")), token);
+
+            // Act
+            OAuth2AccessToken reused = tokenCache.get(client, new LinkedHashSet<>(List.of("read", "write")));
+
+            // Assert
+            assertThat(reused).isSameAs(token);
+            assertThat(tokenCache.size()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should stop reusing a token once less than the minimum lifetime is left")
+        void get_shouldNotReuseTokenNearExpiry() {
+            // Arrange
+            tokenCache.put(client, Set.of("read"), accessToken("jti-1", Duration.ofMinutes(4)));
+            tokenCache.put(client, Set.of("write"), accessToken("jti-2", Duration.ofMinutes(6)));
+
+            // Act
+            OAuth2AccessToken nearExpiry = tokenCache.get(client, Set.of("read"));
+            OAuth2AccessToken stillFresh = tokenCache.get(client, Set.of("write"));
+
+            // Assert
+            assertThat(nearExpiry).isNull();
+            assertThat(stillFresh).isNotNull();
+            assertThat(tokenCache.size()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should evict a token whose jti has been revoked")
+        void get_shouldEvictRevokedToken() {
+            // Arrange
+            OAuth2AccessToken token = accessToken("jti-1", Duration.ofHours(1));
+            tokenCache.put(client, Set.of("read"), token);
+            revokedTokenIndex.onAccessTokenRevocationCommitted(new AccessTokenRevokedEvent("jti-1", token.getExpiresAt()));
+
+            // Act
+            OAuth2AccessToken reused = tokenCache.get(client, Set.of("read"));
+
+            // Assert
+            assertThat(reused).isNull();
+            assertThat(tokenCache.size()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should purge tokens that can no longer be reused without a lookup")
+        void purgeExpired_shouldDropUnusableTokens() {
+            // Arrange
+            OAuth2AccessToken revoked = accessToken("jti-3", Duration.ofHours(1));
+            tokenCache.put(client, Set.of("read"), accessToken("jti-1", Duration.ofMinutes(1)));
+            tokenCache.put(client, Set.of("write"), accessToken("jti-2", Duration.ofHours(1)));
+            tokenCache.put(client, Set.of("read", "write"), revoked);
+            revokedTokenIndex.onAccessTokenRevocationCommitted(new AccessTokenRevokedEvent("jti-3", revoked.getExpiresAt()));
+
+            // Act
+            tokenCache.purgeExpired();
+
+            // Assert
+            assertThat(tokenCache.size()).isEqualTo(1);
+            assertThat(tokenCache.get(client, Set.of("write"))).isNotNull();
+        }
+
+        @Test
+        @DisplayName("Should answer a reused token with the lifetime it has left")
+        void reusingProvider_shouldReportRemainingLifetime() {
+            // Arrange
+            RegisteredClient reusingClient = RegisteredClient.from(client)
+                    .tokenSettings(TokenSettings.builder()
+                            .setting(ClientCredentialsTokenCache.CLIENT_SETTING, true)
+                            .build())
+                    .build();
+            OAuth2ClientAuthenticationToken clientPrincipal = new OAuth2ClientAuthenticationToken(
+                    reusingClient, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null);
+            OAuth2ClientCredentialsAuthenticationToken request = new OAuth2ClientCredentialsAuthenticationToken(
+                    clientPrincipal, Set.of("read"), Map.of());
+            // Issued 20 minutes ago, as if the clock had moved on since the first request
+            Instant issuedAt = Instant.now().minus(Duration.ofMinutes(20));
+            OAuth2AccessToken issued = new OAuth2AccessToken(OAuth2AccessToken.TokenType.BEARER,
+                    new PlainJWT(new JWTClaimsSet.Builder().jwtID("jti-1").build()).serialize(),
+                    issuedAt, issuedAt.plus(Duration.ofHours(1)), Set.of("read"));
+            AuthenticationProvider delegate = mock(AuthenticationProvider.class);
+            when(delegate.authenticate(request))
+                    .thenReturn(new OAuth2AccessTokenAuthenticationToken(reusingClient, clientPrincipal, issued));
+            ReusingClientCredentialsAuthenticationProvider provider =
+                    new ReusingClientCredentialsAuthenticationProvider(delegate, tokenCache);
+
+            // Act
+            provider.authenticate(request);
+            OAuth2AccessToken reused = ((OAuth2AccessTokenAuthenticationToken) provider.authenticate(request))
+                    .getAccessToken();
+
+            // Assert
+            verify(delegate, times(1)).authenticate(request);
+            assertThat(reused.getTokenValue()).isEqualTo(issued.getTokenValue());
+            assertThat(reused.getExpiresAt()).isEqualTo(issued.getExpiresAt());
+            assertThat(Duration.between(reused.getIssuedAt(), reused.getExpiresAt()))
+                    .isLessThanOrEqualTo(Duration.ofMinutes(40))
+                    .isGreaterThan(Duration.ofMinutes(39));
+        }
+    }
+
+    @Nested
+    @DisplayName("Session serialization Tests")
+    class SessionSerializationTests {
+
+        private final SessionConfig sessionConfig = new SessionConfig();
+
+        @BeforeEach
+        void setUp() {
+            sessionConfig.setBeanClassLoader(getClass().getClassLoader());
+        }
+
+        private SecurityContextImpl securityContext() {
+            User principal = new User("johndoe", "", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    principal, null, principal.getAuthorities());
+            MockHttpServletRequest loginRequest = new MockHttpServletRequest("POST", "/login");
+            loginRequest.setRemoteAddr("10.0.0.1");
+            authentication.setDetails(new WebAuthenticationDetails(loginRequest));
+            return new SecurityContextImpl(authentication);
+        }
+
+        private DefaultSavedRequest savedAuthorizationRequest() {
+            MockHttpServletRequest request = new MockHttpServletRequest("GET", "/oauth2/authorize");
+            request.setQueryString("response_type=code&client_id=web-client&scope=openid%20profile&state=xyz");
+            request.setParameter("response_type", "code");
+            request.setParameter("client_id", "web-client");
+            request.setParameter("scope", "openid profile");
+            request.setParameter("state", "xyz");
+            return new DefaultSavedRequest(request, new PortResolverImpl());
+        }
+
+        private void assertRoundTrip(Object securityContext, Object savedRequest) {
+            assertThat(securityContext).isInstanceOf(SecurityContextImpl.class);
+            Authentication authentication = ((SecurityContextImpl) securityContext).getAuthentication();
+            assertThat(authentication).isInstanceOf(UsernamePasswordAuthenticationToken.class);
+            assertThat(authentication.isAuthenticated()).isTrue();
+            assertThat(authentication.getPrincipal()).isInstanceOf(User.class);
+            assertThat(((User) authentication.getPrincipal()).getUsername()).isEqualTo("johndoe");
+            assertThat(authentication.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                    .containsExactly("ROLE_USER");
+            assertThat(((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress())
+                    .isEqualTo("10.0.0.1");
+
+            assertThat(savedRequest).isInstanceOf(DefaultSavedRequest.class);
+            DefaultSavedRequest request = (DefaultSavedRequest) savedRequest;
+            assertThat(request.getRedirectUrl()).isEqualTo(savedAuthorizationRequest().getRedirectUrl());
+            assertThat(request.getParameterValues("scope")).containsExactly("openid profile");
+        }
+
+        @Test
+        @DisplayName("Should round-trip the security context and saved request through the Redis serializer")
+        void redisSerializer_shouldRoundTripSessionAttributes() {
+            // Arrange
+            RedisSerializer<Object> serializer = sessionConfig.springSessionDefaultRedisSerializer();
+
+            // Act
+            Object securityContext = serializer.deserialize(serializer.serialize(securityContext()));
+            Object savedRequest = serializer.deserialize(serializer.serialize(savedAuthorizationRequest()));
+
+            // Assert
+            assertRoundTrip(securityContext, savedRequest);
+        }
+
+        @Test
+        @DisplayName("Should round-trip the security context and saved request through the JDBC conversion service")
+        void jdbcConversionService_shouldRoundTripSessionAttributes() {
+            // Arrange
+            ConversionService conversionService = sessionConfig.springSessionConversionService();
+
+            // Act
+            byte[] contextBytes = conversionService.convert(securityContext(), byte[].class);
+            byte[] requestBytes = conversionService.convert(savedAuthorizationRequest(), byte[].class);
+            Object securityContext = conversionService.convert(contextBytes, Object.class);
+            Object savedRequest = conversionService.convert(requestBytes, Object.class);
+
+            // Assert
+            assertThat(new String(contextBytes, StandardCharsets.UTF_8)).startsWith("{").contains("\"username\":\"johndoe\"");
+            assertRoundTrip(securityContext, savedRequest);
+        }
+    }
+
+    @Nested
+    @DisplayName("TokenRateLimiter Tests")
+    class TokenRateLimiterTests {
+
+        private final TokenRateLimiter rateLimiter =
+                new TokenRateLimiter(Duration.ofHours(1), 2, 3, Duration.ofMinutes(10), 1000);
+
+        @Test
+        @DisplayName("Should reject a client once its burst is spent, with a Retry-After")
+        void acquireForClient_shouldRejectAfterLimit() {
+            // Act
+            TokenRateLimiter.Decision first = rateLimiter.acquireForClient("app-a", 2);
+            TokenRateLimiter.Decision second = rateLimiter.acquireForClient("app-a", 2);
+            TokenRateLimiter.Decision third = rateLimiter.acquireForClient("app-a", 2);
+            TokenRateLimiter.Decision otherClient = rateLimiter.acquireForClient("app-b", 2);
+
+            // Assert
+            assertThat(first.isAllowed()).isTrue();
+            assertThat(first.getRemaining()).isEqualTo(1);
+            assertThat(second.isAllowed()).isTrue();
+            assertThat(second.getRemaining()).isZero();
+            assertThat(third.isAllowed()).isFalse();
+            assertThat(third.getRetryAfterSeconds()).isBetween(1L, 1800L);
+            assertThat(third.getResetSeconds()).isBetween(1L, 3600L);
+            assertThat(otherClient.isAllowed()).isTrue();
+            assertThat(rateLimiter.getThrottledClientCount()).isEqualTo(1);
+            assertThat(rateLimiter.getAllowedCount()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Should take a client's limit from its token settings, and treat zero as unlimited")
+        void limitFor_shouldHonourClientSetting() {
+            // Arrange
+            RegisteredClient defaults = registeredClient("app-a", TokenSettings.builder().build());
+            RegisteredClient unlimited = registeredClient("app-b",
+                    TokenSettings.builder().setting(TokenRateLimiter.CLIENT_SETTING, 0).build());
+
+            // Act
+            int defaultLimit = rateLimiter.limitFor(defaults);
+            int unlimitedLimit = rateLimiter.limitFor(unlimited);
+            boolean allAllowed = IntStream.range(0, 10)
+                    .allMatch(i -> rateLimiter.acquireForClient("app-b", unlimitedLimit).isAllowed());
+
+            // Assert
+            assertThat(defaultLimit).isEqualTo(2);
+            assertThat(unlimitedLimit).isZero();
+            assertThat(allAllowed).isTrue();
+            assertThat(rateLimiter.acquireForClient("app-b", unlimitedLimit).isLimited()).isFalse();
+        }
+
+        @Test
+        @DisplayName("Should charge the address before client authentication and the client only once authenticated")
+        void filters_shouldChargeClientOnlyAfterAuthentication() throws Exception {
+            // Arrange
+            TokenRateLimitFilter addressFilter = new TokenRateLimitFilter(rateLimiter, "/oauth2/token");
+            ClientTokenRateLimitFilter clientFilter = new ClientTokenRateLimitFilter(rateLimiter, "/oauth2/token");
+            RegisteredClient client = registeredClient("app-a", TokenSettings.builder().build());
+            List<MockHttpServletResponse> unauthenticated = new ArrayList<>();
+            List<MockHttpServletResponse> authenticated = new ArrayList<>();
+
+            // Act
+            for (int i = 0; i < 4; i++) {
+                MockHttpServletRequest request = tokenRequest("10.0.0.1");
+                request.addParameter("client_id", "app-a");
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                addressFilter.doFilter(request, response, (req, res) -> clientFilter.doFilter(req, res, (r, s) -> { }));
+                unauthenticated.add(response);
+            }
+            for (int i = 0; i < 3; i++) {
+                MockHttpServletResponse response = new MockHttpServletResponse();
+                addressFilter.doFilter(tokenRequest("10.0.0." + (i + 2)), response, (req, res) -> {
+                    SecurityContextHolder.getContext().setAuthentication(new OAuth2ClientAuthenticationToken(
+                            client, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null));
+                    clientFilter.doFilter(req, res, (r, s) -> { });
+                });
+                SecurityContextHolder.clearContext();
+                authenticated.add(response);
+            }
+
+            // Assert
+            assertThat(unauthenticated).extracting(MockHttpServletResponse::getStatus).containsExactly(200, 200, 200, 429);
+            assertThat(unauthenticated.get(2).getHeader("RateLimit-Limit")).isEqualTo("3");
+            assertThat(authenticated).extracting(MockHttpServletResponse::getStatus).containsExactly(200, 200, 429);
+            assertThat(authenticated.get(0).getHeader("RateLimit-Limit")).isEqualTo("2");
+            assertThat(authenticated.get(2).getHeader("Retry-After")).isNotNull();
+            assertThat(rateLimiter.getThrottledAddressCount()).isEqualTo(1);
+            assertThat(rateLimiter.getThrottledClientCount()).isEqualTo(1);
+        }
+
+        private MockHttpServletRequest tokenRequest(String remoteAddress) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/oauth2/token");
+            request.setRemoteAddr(remoteAddress);
+            request.addParameter("grant_type", "client_credentials");
+            return request;
+        }
+
+        private RegisteredClient registeredClient(String clientId, TokenSettings tokenSettings) {
+            return RegisteredClient.withId(clientId)
+                    .clientId(clientId)
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .tokenSettings(tokenSettings)
+                    .build();
+        }
+    }
+
+    @Nested
+    @DisplayName("LoginAttemptTracker Tests")
+    class LoginAttemptTrackerTests {
+
+        @Mock
+        private AuthUserRepository authUserRepository;
+
+        @Mock
+        private ApplicationEventPublisher eventPublisher;
+
+        private LoginAttemptTracker tracker;
+
+        @BeforeEach
+        void setUp() {
+            tracker = new LoginAttemptTracker(authUserRepository, eventPublisher, Duration.ofMinutes(15),
+                    3, 20, Duration.ofSeconds(1), Duration.ofMinutes(1), 5, Duration.ofMinutes(15), 1000);
+        }
+
+        private void failLogin(String username, String address) {
+            UsernamePasswordAuthenticationToken attempt =
+                    UsernamePasswordAuthenticationToken.unauthenticated(username, "guess");
+            attempt.setDetails(new WebAuthenticationDetails(address, null));
+            tracker.onFailure(new AuthenticationFailureBadCredentialsEvent(attempt, new BadCredentialsException("bad")));
+        }
+
+        @Test
+        @DisplayName("Should delay a username once it reaches the threshold, and clear it on success")
+        void retryAfter_shouldDelayRepeatedFailures() {
+            // Act
+            failLogin("bob", "10.0.0.1");
+            failLogin("bob", "10.0.0.2");
+            Duration beforeThreshold = tracker.retryAfter("bob", "10.0.0.3");
+            failLogin("bob", "10.0.0.3");
+            Duration atThreshold = tracker.retryAfter("bob", "10.0.0.4");
+            Duration otherUser = tracker.retryAfter("alice", "10.0.0.4");
+            tracker.onSuccess(new AuthenticationSuccessEvent(
+                    UsernamePasswordAuthenticationToken.authenticated("bob", null, List.of())));
+            Duration afterSuccess = tracker.retryAfter("bob", "10.0.0.4");
+
+            // Assert
+            assertThat(beforeThreshold).isZero();
+            assertThat(atThreshold).isPositive().isLessThanOrEqualTo(Duration.ofSeconds(1));
+            assertThat(otherUser).isZero();
+            assertThat(afterSuccess).isZero();
+            assertThat(tracker.getFailureCount()).isEqualTo(3);
+            verify(authUserRepository, never()).lockUntil(anyString(), any());
+        }
+
+        @Test
+        @DisplayName("Should persist a lockout once the lockout threshold is reached")
+        void onFailure_shouldLockAccountAtThreshold() {
+            // Arrange
+            when(authUserRepository.lockUntil(eq("bob"), any())).thenReturn(1);
+
+            // Act
+            for (int i = 0; i < 7; i++) {
+                failLogin("bob", "10.0.0." + i);
+            }
+
+            // Assert
+            ArgumentCaptor<LocalDateTime> lockedUntil = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(authUserRepository, times(1)).lockUntil(eq("bob"), lockedUntil.capture());
+            assertThat(lockedUntil.getValue()).isAfter(LocalDateTime.now().plusMinutes(14));
+            verify(eventPublisher).publishEvent(new AuthUserChangedEvent("bob"));
+            assertThat(tracker.retryAfter("bob", "10.0.0.99")).isGreaterThan(Duration.ofMinutes(14));
+            assertThat(tracker.getLockoutCount()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("TokenEndpointMetricsFilter Tests")
+    class TokenEndpointMetricsFilterTests {
+
+        private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        private final TokenEndpointMetricsFilter filter = new TokenEndpointMetricsFilter(meterRegistry, "/oauth2/token");
+
+        @AfterEach
+        void tearDown() {
+            SecurityContextHolder.clearContext();
+        }
+
+        @Test
+        @DisplayName("Should tag token requests with the authenticated client and a known grant type only")
+        void doFilter_shouldBoundTagValues() throws Exception {
+            // Arrange
+            RegisteredClient client = RegisteredClient.withId("app-a")
+                    .clientId("app-a")
+                    .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                    .build();
+            MockHttpServletRequest issued = new MockHttpServletRequest("POST", "/oauth2/token");
+            issued.addParameter("grant_type", "client_credentials");
+            MockHttpServletRequest rejected = new MockHttpServletRequest("POST", "/oauth2/token");
+            rejected.addParameter("grant_type", "made-up-" + UUID.randomUUID());
+            MockHttpServletResponse unauthorized = new MockHttpServletResponse();
+            unauthorized.setStatus(401);
+
+            // Act
+            filter.doFilter(issued, new MockHttpServletResponse(), (request, response) ->
+                    SecurityContextHolder.getContext().setAuthentication(new OAuth2ClientAuthenticationToken(
+                            client, ClientAuthenticationMethod.CLIENT_SECRET_BASIC, null)));
+            SecurityContextHolder.clearContext();
+            filter.doFilter(rejected, unauthorized, (request, response) -> { });
+            filter.doFilter(new MockHttpServletRequest("GET", "/oauth2/jwks"), new MockHttpServletResponse(),
+                    (request, response) -> { });
+
+            // Assert
+            assertThat(meterRegistry.get("auth.token.requests")
+                    .tags("grant_type", "client_credentials", "client_id", "app-a", "status", "200")
+                    .timer().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("auth.token.requests")
+                    .tags("grant_type", "unknown", "client_id", "unknown", "status", "401")
+                    .timer().count()).isEqualTo(1);
+            assertThat(meterRegistry.get("auth.token.requests").timers()).hasSize(2);
+        }
+    }
+
+    @Nested
+    @DisplayName("ServerTimingFilter Tests")
+    class ServerTimingFilterTests {
+
+        private final ServerTimingFilter filter = new ServerTimingFilter("/oauth2/token", "/oauth2/authorize",
+                Set.of("traced-client"), false, Duration.ZERO);
+
+        @Test
+        @DisplayName("Should report phases only for opted-in clients, before the response is committed")
+        void doFilter_shouldReportPhasesForOptedInClients() throws Exception {
+            // Arrange
+            MockHttpServletRequest traced = new MockHttpServletRequest("POST", "/oauth2/token");
+            traced.addParameter("client_id", "traced-client");
+            MockHttpServletRequest untraced = new MockHttpServletRequest("POST", "/oauth2/token");
+            untraced.addParameter("client_id", "other-client");
+            untraced.addHeader(ServerTimingFilter.DEBUG_HEADER, "1");
+            MockHttpServletResponse tracedResponse = new MockHttpServletResponse();
+            MockHttpServletResponse untracedResponse = new MockHttpServletResponse();
+            List<ServerTiming> seen = new ArrayList<>();
+
+            // Act
+            filter.doFilter(traced, tracedResponse, (request, response) -> {
+                ServerTiming timing = ServerTiming.current();
+                seen.add(timing);
+                timing.record(ServerTiming.Phase.SIGN, System.nanoTime());
+                response.getWriter().write("{}");
+                response.flushBuffer();
+            });
+            filter.doFilter(untraced, untracedResponse, (request, response) -> seen.add(ServerTiming.current()));
+
+            // Assert
+            assertThat(seen.get(0)).isNotNull();
+            assertThat(seen.get(1)).isNull();
+            assertThat(ServerTiming.current()).isNull();
+            assertThat(tracedResponse.getHeader("Server-Timing")).startsWith("sign;dur=").contains(", total;dur=");
+            assertThat(untracedResponse.getHeader("Server-Timing")).isNull();
+        }
     }
 
     /**
@@ -0,0 +1,404 @@
+package com.auth.service;
+
+import com.auth.server.AuthServerApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Load generator for complete OAuth2 flows through the real security filter chains of
+ * {@code AuthorizationServerConfig} and {@code SecurityConfig}, against an in-memory H2
+ * database, for sizing a deployment.
+ * <p>
+ * Each flow is a form login, an authorization request with PKCE, the code exchange, a
+ * refresh (the mobile client rotates refresh tokens), introspection of the new access token
+ * and revocation of the new refresh token; a client credentials grant is measured alongside.
+ * Every phase runs as its own stage, all flows at once across {@code load.concurrency}
+ * threads, so that its throughput, latency percentiles, allocation and garbage collection
+ * are its own. A warm-up pass runs first and is not reported.
+ * <p>
+ * The defaults keep this quick enough for the regular test run; size it with e.g.
+ * {@code -Dload.concurrency=32 -Dload.flows=5000 -Dload.warmup-flows=1000}.
+ */
+@SpringBootTest(classes = AuthServerApplication.class, properties = {
+        "spring.datasource.url=jdbc:h2:mem:load-test;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.main.banner-mode=off",
+        "logging.level.com.auth.server=WARN",
+        "logging.level.org.springframework.security=WARN",
+        // Every request comes from the same address, which would exhaust its token bucket
+        "auth-server.token-rate-limit.enabled=false",
+        "auth-server.server-timing.slow-request-threshold=PT0S"
+})
+@AutoConfigureMockMvc
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@DisplayName("OAuth2 Flow Load Test")
+class OAuthFlowLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(OAuthFlowLoadTest.class);
+
+    private static final String CLIENT_ID = "mobile-client";
+    private static final String CLIENT_SECRET = "mobile-client-secret";
+    private static final String REDIRECT_URI = "com.auth.mobile://callback";
+    private static final String PASSWORD = "load-test-password";
+
+    private static final String[] PHASES = {
+            "login", "authorize", "code_exchange", "refresh", "introspect", "revoke", "client_credentials"};
+
+    private final int concurrency = Integer.getInteger("load.concurrency", 4);
+    private final int flows = Integer.getInteger("load.flows", 40);
+    private final int warmupFlows = Integer.getInteger("load.warmup-flows", 10);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SecureRandom random = new SecureRandom();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    private ExecutorService workers;
+    private String[] usernames;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        workers = Executors.newFixedThreadPool(concurrency);
+        usernames = new String[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            usernames[i] = "load-user-" + i;
+            mockMvc.perform(post("/api/users/register")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(Map.of(
+                            "username", usernames[i], "email", usernames[i] + "@example.com", "password", PASSWORD))))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    @AfterAll
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should complete every flow and report per-phase throughput, latency and GC")
+    void run_shouldCompleteEveryFlow() throws Exception {
+        // Arrange
+        runFlows(warmupFlows);
+
+        // Act
+        List<PhaseReport> reports = runFlows(flows);
+
+        // Assert
+        log.info("OAuth2 flows: {} flows, concurrency {}{}{}{}", flows, concurrency, System.lineSeparator(),
+                PhaseReport.HEADER, reports.stream().map(PhaseReport::format)
+                        .collect(Collectors.joining(System.lineSeparator())));
+        for (PhaseReport report : reports) {
+            assertThat(report.errors).as("%s errors, first: %s", report.phase, report.firstError).isZero();
+        }
+    }
+
+    private List<PhaseReport> runFlows(int count) throws Exception {
+        Flow[] flowStates = new Flow[count];
+        for (int i = 0; i < count; i++) {
+            flowStates[i] = new Flow(usernames[i % usernames.length], codeVerifier());
+        }
+        List<PhaseReport> reports = new ArrayList<>();
+        reports.add(runPhase(PHASES[0], count, i -> login(flowStates[i])));
+        reports.add(runPhase(PHASES[1], count, i -> authorize(flowStates[i])));
+        reports.add(runPhase(PHASES[2], count, i -> exchangeCode(flowStates[i])));
+        reports.add(runPhase(PHASES[3], count, i -> refresh(flowStates[i])));
+        reports.add(runPhase(PHASES[4], count, i -> introspect(flowStates[i])));
+        reports.add(runPhase(PHASES[5], count, i -> revoke(flowStates[i])));
+        reports.add(runPhase(PHASES[6], count, i -> clientCredentials()));
+        return reports;
+    }
+
+    private void login(Flow flow) throws Exception {
+        MvcResult result = mockMvc.perform(post("/login")
+                        .param("username", flow.username)
+                        .param("password", PASSWORD)
+                        .with(csrf()))
+                .andReturn();
+        expect(result.getResponse().getStatus() == 302 && "/".equals(result.getResponse().getRedirectedUrl()),
+                result, "login");
+        flow.session = (MockHttpSession) result.getRequest().getSession(false);
+    }
+
+    private void authorize(Flow flow) throws Exception {
+        String state = randomToken(16);
+        MvcResult result = mockMvc.perform(get("/oauth2/authorize")
+                        .session(flow.session)
+                        .queryParam("response_type", "code")
+                        .queryParam("client_id", CLIENT_ID)
+                        .queryParam("redirect_uri", REDIRECT_URI)
+                        .queryParam("scope", "openid profile")
+                        .queryParam("state", state)
+                        .queryParam("code_challenge", codeChallenge(flow.codeVerifier))
+                        .queryParam("code_challenge_method", "S256"))
+                .andReturn();
+        String location = result.getResponse().getRedirectedUrl();
+        expect(location != null && location.startsWith(REDIRECT_URI), result, "authorize");
+        MultiValueMap<String, String> parameters = UriComponentsBuilder.fromUriString(location).build().getQueryParams();
+        expect(state.equals(parameters.getFirst("state")), result, "authorize state");
+        flow.code = parameters.getFirst("code");
+    }
+
+    private void exchangeCode(Flow flow) throws Exception {
+        JsonNode tokens = tokenRequest(post("/oauth2/token")
+                .param("grant_type", "authorization_code")
+                .param("code", flow.code)
+                .param("redirect_uri", REDIRECT_URI)
+                .param("code_verifier", flow.codeVerifier), "code exchange");
+        expect(tokens.hasNonNull("id_token"), null, "id_token in code exchange");
+        flow.accessToken = tokens.get("access_token").asText();
+        flow.refreshToken = tokens.get("refresh_token").asText();
+    }
+
+    private void refresh(Flow flow) throws Exception {
+        JsonNode tokens = tokenRequest(post("/oauth2/token")
+                .param("grant_type", "refresh_token")
+                .param("refresh_token", flow.refreshToken), "refresh");
+        String rotated = tokens.get("refresh_token").asText();
+        expect(!rotated.equals(flow.refreshToken), null, "refresh token rotation");
+        flow.accessToken = tokens.get("access_token").asText();
+        flow.refreshToken = rotated;
+    }
+
+    private void introspect(Flow flow) throws Exception {
+        JsonNode introspection = tokenRequest(post("/oauth2/introspect")
+                .param("token", flow.accessToken), "introspect");
+        expect(introspection.path("active").asBoolean(), null, "active access token");
+    }
+
+    private void revoke(Flow flow) throws Exception {
+        MvcResult result = mockMvc.perform(post("/oauth2/revoke")
+                        .param("client_id", CLIENT_ID)
+                        .param("client_secret", CLIENT_SECRET)
+                        .param("token", flow.refreshToken)
+                        .param("token_type_hint", "refresh_token"))
+                .andReturn();
+        expect(result.getResponse().getStatus() == 200, result, "revoke");
+    }
+
+    private void clientCredentials() throws Exception {
+        MvcResult result = mockMvc.perform(post("/oauth2/token")
+                        .header(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder().encodeToString(
+                                "web-client:web-client-secret".getBytes(StandardCharsets.UTF_8)))
+                        .param("grant_type", "client_credentials")
+                        .param("scope", "read"))
+                .andReturn();
+        expect(result.getResponse().getStatus() == 200, result, "client credentials");
+    }
+
+    /**
+     * A token, introspection or revocation call authenticated as the mobile client with {@code client_secret_post}.
+     */
+    private JsonNode tokenRequest(MockHttpServletRequestBuilder request,
+                                  String step) throws Exception {
+        MvcResult result = mockMvc.perform(request
+                        .param("client_id", CLIENT_ID)
+                        .param("client_secret", CLIENT_SECRET))
+                .andReturn();
+        expect(result.getResponse().getStatus() == 200, result, step);
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private static void expect(boolean condition, MvcResult result, String step) throws Exception {
+        if (!condition) {
+            throw new IllegalStateException(step + " failed" + (result != null
+                    ? ": " + result.getResponse().getStatus() + " " + (result.getResponse().getErrorMessage() != null
+                            ? result.getResponse().getErrorMessage() : result.getResponse().getContentAsString())
+                    : ""));
+        }
+    }
+
+    private PhaseReport runPhase(String phase, int count, Step step) throws Exception {
+        long[] latencies = new long[count];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        AtomicReference<String> firstError = new AtomicReference<>();
+        LongAdder allocatedBytes = new LongAdder();
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long start = System.nanoTime();
+        List<Future<?>> workerResults = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            workerResults.add(workers.submit(() -> {
+                long threadId = Thread.currentThread().getId();
+                long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                    long stepStart = System.nanoTime();
+                    try {
+                        step.run(i);
+                    } catch (Exception ex) {
+                        errors.incrementAndGet();
+                        firstError.compareAndSet(null, ex.getMessage());
+                    }
+                    latencies[i] = System.nanoTime() - stepStart;
+                }
+                allocatedBytes.add(threads.getThreadAllocatedBytes(threadId) - allocatedBefore);
+            }));
+        }
+        for (Future<?> workerResult : workerResults) {
+            workerResult.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        return new PhaseReport(phase, count, errors.get(), firstError.get(), elapsed, latencies,
+                allocatedBytes.sum(), gcCount() - gcCountBefore, gcMillis() - gcMillisBefore,
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+
+    private String codeVerifier() {
+        return randomToken(32);
+    }
+
+    private String randomToken(int bytes) {
+        byte[] value = new byte[bytes];
+        random.nextBytes(value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+    }
+
+    private static String codeChallenge(String codeVerifier) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(codeVerifier.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+
+    @FunctionalInterface
+    private interface Step {
+        void run(int flow) throws Exception;
+    }
+
+    /**
+     * What one flow carries from phase to phase.
+     */
+    private static final class Flow {
+
+        final String username;
+        final String codeVerifier;
+        MockHttpSession session;
+        String code;
+        String accessToken;
+        String refreshToken;
+
+        Flow(String username, String codeVerifier) {
+            this.username = username;
+            this.codeVerifier = codeVerifier;
+        }
+
+    }
+
+    private static final class PhaseReport {
+
+        static final String HEADER = String.format(Locale.ROOT, "%-20s %7s %6s %9s %9s %9s %9s %9s %12s %5s %7s %9s%n",
+                "phase", "ops", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms",
+                "alloc KB/op", "gcs", "gc ms", "heap MB");
+
+        final String phase;
+        final int ops;
+        final int errors;
+        final String firstError;
+        final long elapsedNanos;
+        final long[] sortedLatencies;
+        final long allocatedBytes;
+        final long gcCount;
+        final long gcMillis;
+        final long heapUsedBytes;
+
+        PhaseReport(String phase, int ops, int errors, String firstError, long elapsedNanos, long[] sortedLatencies,
+                    long allocatedBytes, long gcCount, long gcMillis, long heapUsedBytes) {
+            this.phase = phase;
+            this.ops = ops;
+            this.errors = errors;
+            this.firstError = firstError;
+            this.elapsedNanos = elapsedNanos;
+            this.sortedLatencies = sortedLatencies;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+            this.heapUsedBytes = heapUsedBytes;
+        }
+
+        /**
+         * Nearest-rank percentile, in milliseconds.
+         */
+        double percentile(double p) {
+            int rank = (int) Math.ceil(p * sortedLatencies.length);
+            return sortedLatencies[Math.max(0, rank - 1)] / 1_000_000.0;
+        }
+
+        String format() {
+            return String.format(Locale.ROOT, "%-20s %7d %6d %9.1f %9.2f %9.2f %9.2f %9.2f %12.1f %5d %7d %9.1f",
+                    phase, ops, errors, ops / (elapsedNanos / 1_000_000_000.0),
+                    percentile(0.50), percentile(0.95), percentile(0.99), percentile(1.0),
+                    allocatedBytes / 1024.0 / ops, gcCount, gcMillis, heapUsedBytes / (1024.0 * 1024.0));
+        }
+
+    }
+
+}
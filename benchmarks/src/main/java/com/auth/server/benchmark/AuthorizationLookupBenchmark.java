@@ -0,0 +1,104 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.service.TokenHashes;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token lookup latency of the JPA authorization store as the number of stored
+ * grants grows. With the hashed-token unique indexes the score should stay flat
+ * across row counts; a linear scan would grow with {@code rowCount}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class AuthorizationLookupBenchmark {
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int INSERT_BATCH_SIZE = 5_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int rowCount;
+
+    private ConfigurableApplicationContext context;
+    private OAuth2AuthorizationService authorizationService;
+    private String[] sampleTokens;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkPersistenceConfig.start();
+        authorizationService = context.getBean(OAuth2AuthorizationService.class);
+        sampleTokens = populate(context.getBean(JdbcTemplate.class), rowCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public OAuth2Authorization findByAccessToken() {
+        return authorizationService.findByToken(randomToken(), OAuth2TokenType.ACCESS_TOKEN);
+    }
+
+    @Benchmark
+    public OAuth2Authorization findByUnknownTokenType() {
+        return authorizationService.findByToken(randomToken(), null);
+    }
+
+    private String randomToken() {
+        return sampleTokens[ThreadLocalRandom.current().nextInt(sampleTokens.length)];
+    }
+
+    /**
+     * Bulk-load {@code rows} access-token grants and return a random sample of their token values.
+     */
+    private static String[] populate(JdbcTemplate jdbcTemplate, int rows) {
+        String sql = "insert into oauth_authorizations (id, registered_client_id, principal_name," +
+                " authorization_grant_type, access_token_value, access_token_hash, access_token_issued_at," +
+                " access_token_expires_at, access_token_type, access_token_scopes)" +
+                " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        Timestamp issuedAt = Timestamp.from(Instant.now());
+        Timestamp expiresAt = Timestamp.from(Instant.now().plus(1, ChronoUnit.HOURS));
+        int sampleEvery = Math.max(1, rows / SAMPLE_SIZE);
+        List<String> sample = new ArrayList<>(SAMPLE_SIZE);
+
+        List<Object[]> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            String token = UUID.randomUUID().toString() + UUID.randomUUID();
+            if (i % sampleEvery == 0 && sample.size() < SAMPLE_SIZE) {
+                sample.add(token);
+            }
+            batch.add(new Object[] {
+                    UUID.randomUUID().toString(), BenchmarkPersistenceConfig.CLIENT_ID, "user-" + i,
+                    "client_credentials", token, TokenHashes.sha256(token), issuedAt, expiresAt,
+                    "Bearer", "read"
+            });
+            if (batch.size() == INSERT_BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(sql, batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+        }
+        return sample.toArray(new String[0]);
+    }
+
+}
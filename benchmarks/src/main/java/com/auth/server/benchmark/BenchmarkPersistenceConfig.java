@@ -0,0 +1,72 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.entity.OAuthAuthorization;
+import com.auth.server.repository.OAuthAuthorizationRepository;
+import com.auth.server.service.JpaOAuth2AuthorizationService;
+import com.auth.server.service.OAuthAuthorizationMapper;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
+import org.springframework.boot.autoconfigure.security.servlet.UserDetailsServiceAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+import java.util.UUID;
+
+/**
+ * Minimal JPA context over an in-memory H2 database: the server's entities,
+ * repositories and persistence services, without the web and security layers.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration(exclude = {
+        SecurityAutoConfiguration.class,
+        UserDetailsServiceAutoConfiguration.class
+})
+@EntityScan(basePackageClasses = OAuthAuthorization.class)
+@EnableJpaRepositories(basePackageClasses = OAuthAuthorizationRepository.class)
+@Import({JpaOAuth2AuthorizationService.class, OAuthAuthorizationMapper.class})
+public class BenchmarkPersistenceConfig {
+
+    public static final String CLIENT_ID = "benchmark-client";
+
+    @Bean
+    public RegisteredClientRepository registeredClientRepository() {
+        RegisteredClient client = RegisteredClient.withId(CLIENT_ID)
+                .clientId(CLIENT_ID)
+                .clientSecret("{noop}benchmark-secret")
+                .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                .scope("read")
+                .build();
+        return new InMemoryRegisteredClientRepository(client);
+    }
+
+    /**
+     * Start a fresh context with its own uniquely named in-memory database.
+     */
+    public static ConfigurableApplicationContext start(String... extraProperties) {
+        String[] properties = new String[] {
+                "spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create-drop",
+                "spring.jpa.open-in-view=false",
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN"
+        };
+        return new SpringApplicationBuilder(BenchmarkPersistenceConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties)
+                .properties(extraProperties)
+                .run();
+    }
+
+}
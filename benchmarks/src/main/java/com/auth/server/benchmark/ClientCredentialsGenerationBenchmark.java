@@ -0,0 +1,34 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.service.ClientRegistrationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generating a client id and a client secret for a new registration. Both draw from
+ * {@code UUID.randomUUID()}, which shares one {@code SecureRandom}; run with {@code -t 4}
+ * or more to see whether that contends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientCredentialsGenerationBenchmark {
+
+    @Param({"Inventory Service"})
+    public String clientName;
+
+    @Benchmark
+    public String generateClientId() {
+        return ClientRegistrationService.generateClientId(clientName);
+    }
+
+    @Benchmark
+    public String generateClientSecret() {
+        return ClientRegistrationService.generateClientSecret();
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.entity.OAuthClient;
+import com.auth.server.repository.OAuthClientRepository;
+import com.auth.server.service.CachingRegisteredClientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code RegisteredClient} lookup by client id, as every token and authorization request
+ * does, with {@code clientCount} clients registered: from the in-memory snapshot of
+ * {@link CachingRegisteredClientRepository}, and from the database query the snapshot is
+ * built from. The snapshot lookup should stay flat as the client count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientLookupBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 1_000;
+
+    @Param({"100", "10000"})
+    public int clientCount;
+
+    private ConfigurableApplicationContext context;
+    private OAuthClientRepository oAuthClientRepository;
+    private CachingRegisteredClientRepository registeredClientRepository;
+    private String[] clientIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkPersistenceConfig.start();
+        oAuthClientRepository = context.getBean(OAuthClientRepository.class);
+        clientIds = new String[clientCount];
+        List<OAuthClient> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < clientCount; i++) {
+            clientIds[i] = "client-" + i;
+            batch.add(OAuthClient.builder()
+                    .clientId(clientIds[i])
+                    .clientSecret("{noop}secret-" + i)
+                    .redirectUris(Set.of("https://app-" + i + ".example.com/callback"))
+                    .scopes(Set.of("openid", "profile", "read"))
+                    .grantTypes(Set.of("authorization_code", "refresh_token"))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            if (batch.size() == INSERT_BATCH_SIZE || i == clientCount - 1) {
+                oAuthClientRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        registeredClientRepository = new CachingRegisteredClientRepository(oAuthClientRepository, List.of(),
+                new SimpleMeterRegistry());
+        registeredClientRepository.afterPropertiesSet();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public RegisteredClient snapshot() {
+        return registeredClientRepository.findByClientId(randomClientId());
+    }
+
+    @Benchmark
+    public Optional<OAuthClient> database() {
+        return oAuthClientRepository.findByClientId(randomClientId());
+    }
+
+    private String randomClientId() {
+        return clientIds[ThreadLocalRandom.current().nextInt(clientIds.length)];
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.jwt.PublishedJwkSet;
+import com.auth.server.jwt.SigningAlgorithms;
+import com.auth.server.jwt.SigningKeyRing;
+import com.nimbusds.jose.jwk.JWKSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWKS responses under concurrent polling: rebuilding the JSON on every request (the old
+ * {@code JwkConfig.jwkSet()} path) versus writing the key ring's pre-serialized bytes, and
+ * answering a revalidation with 304. Run with {@code -prof gc} to see the allocation rate;
+ * the pre-serialized paths should allocate close to nothing per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class JwksEndpointBenchmark {
+
+    private SigningKeyRing signingKeyRing;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        signingKeyRing = new SigningKeyRing(new SigningAlgorithms("RS256", List.of("ES256", "EdDSA")),
+                2048, Duration.ofDays(30), Duration.ofHours(2));
+        signingKeyRing.afterPropertiesSet();
+        etag = signingKeyRing.getPublishedJwkSet().getEtag();
+    }
+
+    @State(Scope.Thread)
+    public static class ResponseBody {
+
+        final DiscardingOutputStream out = new DiscardingOutputStream();
+
+    }
+
+    @Benchmark
+    public void rebuildPerRequest(ResponseBody response, Blackhole blackhole) throws IOException {
+        JWKSet jwkSet = new JWKSet(signingKeyRing.getPublicJwkSet().getKeys());
+        response.out.write(jwkSet.toString(true).getBytes(StandardCharsets.UTF_8));
+        blackhole.consume(response.out.count);
+    }
+
+    @Benchmark
+    public void preSerialized(ResponseBody response, Blackhole blackhole) throws IOException {
+        PublishedJwkSet jwkSet = signingKeyRing.getPublishedJwkSet();
+        blackhole.consume(jwkSet.getEtag());
+        jwkSet.writeTo(response.out);
+        blackhole.consume(response.out.count);
+    }
+
+    @Benchmark
+    public boolean notModified() {
+        return signingKeyRing.getPublishedJwkSet().isNotModified(etag);
+    }
+
+    static final class DiscardingOutputStream extends OutputStream {
+
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+    }
+
+}
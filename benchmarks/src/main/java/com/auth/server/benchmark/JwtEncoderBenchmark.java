@@ -0,0 +1,80 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.jwt.JwkSourceJwtEncoder;
+import com.auth.server.jwt.SigningAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The server's {@link JwkSourceJwtEncoder} against the framework's {@link NimbusJwtEncoder}
+ * for the same access token, key and header. Run with {@code -prof gc} to compare the
+ * allocation rate as well as tokens per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtEncoderBenchmark {
+
+    @Param({"RS256", "ES256"})
+    public String algorithm;
+
+    private JwtEncoder nimbusEncoder;
+    private JwtEncoder jwkSourceEncoder;
+    private JwsHeader header;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SigningAlgorithm signingAlgorithm = SigningAlgorithm.from(algorithm);
+        JWK jwk = signingAlgorithm.generateKey(UUID.randomUUID().toString(), 2048);
+        JWKSource<SecurityContext> jwkSource = new ImmutableJWKSet<>(new JWKSet(jwk));
+
+        nimbusEncoder = new NimbusJwtEncoder(jwkSource);
+        jwkSourceEncoder = new JwkSourceJwtEncoder(jwkSource);
+        header = JwsHeader.with(signingAlgorithm).keyId(jwk.getKeyID()).build();
+    }
+
+    @Benchmark
+    public Jwt nimbusJwtEncoder() {
+        return nimbusEncoder.encode(JwtEncoderParameters.from(header, accessTokenClaims()));
+    }
+
+    @Benchmark
+    public Jwt jwkSourceJwtEncoder() {
+        return jwkSourceEncoder.encode(JwtEncoderParameters.from(header, accessTokenClaims()));
+    }
+
+    private static JwtClaimsSet accessTokenClaims() {
+        Instant issuedAt = Instant.now();
+        return JwtClaimsSet.builder()
+                .issuer("http://localhost:9000")
+                .subject("benchmark-client")
+                .audience(Collections.singletonList("benchmark-client"))
+                .issuedAt(issuedAt)
+                .notBefore(issuedAt)
+                .expiresAt(issuedAt.plus(1, ChronoUnit.HOURS))
+                .id(UUID.randomUUID().toString())
+                .claim("scope", Set.of("read", "write"))
+                .build();
+    }
+
+}
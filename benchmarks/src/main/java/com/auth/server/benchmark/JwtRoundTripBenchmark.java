@@ -0,0 +1,82 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.jwt.JwkSourceJwtDecoder;
+import com.auth.server.jwt.JwkSourceJwtEncoder;
+import com.auth.server.jwt.SigningAlgorithm;
+import com.auth.server.jwt.SigningAlgorithms;
+import com.auth.server.jwt.SigningKeyRing;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding an access token against the server's configured {@code JWKSource},
+ * the {@link SigningKeyRing} with next, current and previous keys for every enabled
+ * algorithm. Encoding selects the current key by id as the token customizer does; decoding
+ * selects the verification key from the token's {@code kid} among all published keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtRoundTripBenchmark {
+
+    @Param({"RS256", "ES256", "EdDSA"})
+    public String algorithm;
+
+    private JwtEncoder encoder;
+    private JwtDecoder decoder;
+    private JwsHeader header;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SigningAlgorithms signingAlgorithms = new SigningAlgorithms("RS256", List.of("ES256", "EdDSA"));
+        SigningKeyRing signingKeyRing = new SigningKeyRing(signingAlgorithms, 2048, Duration.ofDays(30),
+                Duration.ofHours(2));
+        signingKeyRing.afterPropertiesSet();
+
+        SigningAlgorithm signingAlgorithm = SigningAlgorithm.from(algorithm);
+        encoder = new JwkSourceJwtEncoder(signingKeyRing);
+        decoder = new JwkSourceJwtDecoder(signingKeyRing, signingAlgorithms.getEnabled());
+        header = JwsHeader.with(signingAlgorithm).keyId(signingKeyRing.getCurrentKeyId(signingAlgorithm)).build();
+        token = encode().getTokenValue();
+    }
+
+    @Benchmark
+    public Jwt encode() {
+        Instant issuedAt = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("http://localhost:9000")
+                .subject("benchmark-client")
+                .audience(Collections.singletonList("benchmark-client"))
+                .issuedAt(issuedAt)
+                .notBefore(issuedAt)
+                .expiresAt(issuedAt.plus(1, ChronoUnit.HOURS))
+                .id(UUID.randomUUID().toString())
+                .claim("scope", Set.of("read", "write"))
+                .build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims));
+    }
+
+    @Benchmark
+    public Jwt decode() {
+        return decoder.decode(token);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.jwt.JwkSourceJwtEncoder;
+import com.auth.server.jwt.SigningAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access-token signing cost per algorithm and key size. Throughput mode gives tokens per
+ * second; sample-time mode gives the latency distribution, including p99.
+ * <p>
+ * Run with: {@code mvn -f benchmarks/pom.xml package exec:exec -Dbenchmark=JwtSigningBenchmark}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtSigningBenchmark {
+
+    @Param({"RS256-2048", "RS256-4096", "ES256", "EdDSA"})
+    public String key;
+
+    private JwtEncoder encoder;
+    private JwsHeader header;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = key.split("-");
+        SigningAlgorithm algorithm = SigningAlgorithm.from(parts[0]);
+        int rsaKeySize = parts.length > 1 ? Integer.parseInt(parts[1]) : 2048;
+
+        encoder = new JwkSourceJwtEncoder(new ImmutableJWKSet<>(
+                new JWKSet(algorithm.generateKey(UUID.randomUUID().toString(), rsaKeySize))));
+        header = JwsHeader.with(algorithm).build();
+    }
+
+    @Benchmark
+    public Jwt signAccessToken() {
+        Instant issuedAt = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .issuer("http://localhost:9000")
+                .subject("benchmark-client")
+                .audience(Collections.singletonList("benchmark-client"))
+                .issuedAt(issuedAt)
+                .notBefore(issuedAt)
+                .expiresAt(issuedAt.plus(1, ChronoUnit.HOURS))
+                .id(UUID.randomUUID().toString())
+                .claim("scope", Set.of("read", "write"))
+                .build();
+        return encoder.encode(JwtEncoderParameters.from(header, claims));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.jwt.SigningAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of generating one signing key, as {@code SigningKeyRing} does at startup and on every
+ * rotation. RSA key generation searches for primes, so its time varies widely between runs;
+ * compare averages over several forks rather than single iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(2)
+public class KeyGenerationBenchmark {
+
+    @Param({"RS256-2048", "RS256-4096", "ES256", "EdDSA"})
+    public String key;
+
+    private SigningAlgorithm algorithm;
+    private int rsaKeySize;
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = key.split("-");
+        algorithm = SigningAlgorithm.from(parts[0]);
+        rsaKeySize = parts.length > 1 ? Integer.parseInt(parts[1]) : 2048;
+    }
+
+    @Benchmark
+    public JWK generateKey() {
+        return algorithm.generateKey("key-" + sequence++, rsaKeySize);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.security.TokenRateLimiter;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of the token endpoint rate limiter: one address check and one client
+ * check, as {@code TokenRateLimitFilter} and {@code ClientTokenRateLimitFilter} do between
+ * them. Limits are high enough that every request is allowed, so the CAS path is measured
+ * rather than the early rejection.
+ * <p>
+ * {@code sharedClient} has every thread hitting the same client bucket, the worst case for
+ * CAS contention; {@code distinctClients} spreads requests over {@code clientCount} clients.
+ * Run with {@code -t 4} or more to see contention. The score should stay at a few hundred
+ * nanoseconds per request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenRateLimiterBenchmark {
+
+    private static final int LIMIT = Integer.MAX_VALUE;
+
+    @Param({"1000"})
+    public int clientCount;
+
+    private TokenRateLimiter rateLimiter;
+    private String[] clientIds;
+    private String[] addresses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rateLimiter = new TokenRateLimiter(Duration.ofMinutes(1), LIMIT, LIMIT, Duration.ofMinutes(10), 100_000);
+        clientIds = new String[clientCount];
+        addresses = new String[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            clientIds[i] = "client-" + i;
+            addresses[i] = "10.0." + (i / 256) + "." + (i % 256);
+        }
+    }
+
+    @Benchmark
+    public boolean sharedClient() {
+        return rateLimiter.acquireForAddress(addresses[0]).isAllowed()
+                && rateLimiter.acquireForClient(clientIds[0], LIMIT).isAllowed();
+    }
+
+    @Benchmark
+    public boolean distinctClients() {
+        int i = ThreadLocalRandom.current().nextInt(clientCount);
+        return rateLimiter.acquireForAddress(addresses[i]).isAllowed()
+                && rateLimiter.acquireForClient(clientIds[i], LIMIT).isAllowed();
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.entity.AuthUser;
+import com.auth.server.entity.UserRole;
+import com.auth.server.repository.AuthUserRepository;
+import com.auth.server.security.UserDetailsCache;
+import com.auth.server.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CustomUserDetailsService#loadUserByUsername} against H2 with {@code userCount}
+ * users: {@code database} with a cache that holds nothing, so every call is the user and
+ * role query, and {@code cached} with the user details cache warmed, as for repeat logins
+ * within its TTL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserLookupBenchmark {
+
+    private static final int INSERT_BATCH_SIZE = 1_000;
+
+    @Param({"1000", "100000"})
+    public int userCount;
+
+    private ConfigurableApplicationContext context;
+    private CustomUserDetailsService databaseLookup;
+    private CustomUserDetailsService cachedLookup;
+    private String[] usernames;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkPersistenceConfig.start(
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + INSERT_BATCH_SIZE,
+                "spring.jpa.properties.hibernate.order_inserts=true");
+        AuthUserRepository authUserRepository = context.getBean(AuthUserRepository.class);
+        usernames = new String[userCount];
+        List<AuthUser> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < userCount; i++) {
+            usernames[i] = "user-" + i;
+            batch.add(AuthUser.builder()
+                    .username(usernames[i])
+                    .email(usernames[i] + "@example.com")
+                    .password("{noop}password")
+                    .roles(Set.of(UserRole.USER))
+                    .enabled(true)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            if (batch.size() == INSERT_BATCH_SIZE || i == userCount - 1) {
+                authUserRepository.saveAll(batch);
+                batch.clear();
+            }
+        }
+
+        databaseLookup = new CustomUserDetailsService(authUserRepository,
+                new UserDetailsCache(Duration.ZERO, 0), new SimpleMeterRegistry());
+        cachedLookup = new CustomUserDetailsService(authUserRepository,
+                new UserDetailsCache(Duration.ofHours(1), userCount), new SimpleMeterRegistry());
+        for (String username : usernames) {
+            cachedLookup.loadUserByUsername(username);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public UserDetails database() {
+        return databaseLookup.loadUserByUsername(randomUsername());
+    }
+
+    @Benchmark
+    public UserDetails cached() {
+        return cachedLookup.loadUserByUsername(randomUsername());
+    }
+
+    private String randomUsername() {
+        return usernames[ThreadLocalRandom.current().nextInt(usernames.length)];
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.auth.server.benchmark;
+
+import com.auth.server.controller.UserController;
+import com.auth.server.entity.AuthUser;
+import com.auth.server.entity.UserRole;
+import com.auth.server.repository.AuthUserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registration throughput against the user table, without password hashing (a no-op
+ * encoder) so that only the database work is measured.
+ * <p>
+ * {@code register} is the controller's path: one insert, duplicates rejected by the
+ * unique indexes. {@code registerWithLookups} is the previous path, a username and an
+ * email lookup before the insert, for comparison. {@code registerBatch} saves
+ * {@code BATCH_SIZE} users in one transaction, where {@code jdbcBatchSize} decides whether
+ * their user and role inserts go out as JDBC batches.
+ * <p>
+ * In-memory H2 has no network round trip for batching to save. To see its effect, run
+ * against PostgreSQL with
+ * {@code -jvmArgsAppend "-Dspring.datasource.url=jdbc:postgresql://localhost:5432/bench -Dspring.datasource.username=postgres -Dspring.datasource.password=postgres"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserRegistrationBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private ConfigurableApplicationContext context;
+    private AuthUserRepository authUserRepository;
+    private UserController userController;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("deprecation")
+    public void setUp() {
+        context = BenchmarkPersistenceConfig.start(
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                "spring.jpa.properties.hibernate.order_inserts=true");
+        authUserRepository = context.getBean(AuthUserRepository.class);
+        userController = new UserController(authUserRepository, NoOpPasswordEncoder.getInstance(), context, null);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<?> register() {
+        long n = sequence.incrementAndGet();
+        return userController.registerUser(new UserController.RegisterRequest(
+                "user-" + n, "user-" + n + "@example.com", "password"));
+    }
+
+    @Benchmark
+    public AuthUser registerWithLookups() {
+        long n = sequence.incrementAndGet();
+        String username = "user-" + n;
+        String email = username + "@example.com";
+        if (authUserRepository.findByUsername(username).isPresent()
+                || authUserRepository.findByEmail(email).isPresent()) {
+            throw new IllegalStateException("Duplicate user " + username);
+        }
+        return authUserRepository.save(newUser(username, email));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<AuthUser> registerBatch() {
+        return transactionTemplate.execute(status -> {
+            List<AuthUser> users = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                String username = "user-" + sequence.incrementAndGet();
+                users.add(newUser(username, username + "@example.com"));
+            }
+            return authUserRepository.saveAll(users);
+        });
+    }
+
+    private static AuthUser newUser(String username, String email) {
+        return AuthUser.builder()
+                .username(username)
+                .email(email)
+                .password("password")
+                .roles(Set.of(UserRole.USER))
+                .enabled(true)
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+}
@@ -1,20 +1,56 @@
 package com.auth.server.config;
 
-import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.RSAKey;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.auth.server.jwt.JwkSetEndpointFilter;
+import com.auth.server.jwt.JwkSourceJwtDecoder;
+import com.auth.server.jwt.JwkSourceJwtEncoder;
+import com.auth.server.jwt.SigningAlgorithm;
+import com.auth.server.jwt.SigningAlgorithms;
+import com.auth.server.jwt.SigningKeyRing;
+import com.auth.server.jwt.TimedJwtEncoder;
+import com.auth.server.repository.OAuthAuthorizationConsentRepository;
+import com.auth.server.repository.OAuthClientRepository;
+import com.auth.server.security.CachingClientSecretAuthenticationProvider;
+import com.auth.server.security.ClientCredentialsTokenCache;
+import com.auth.server.security.ClientTokenRateLimitFilter;
+import com.auth.server.security.LocalJwtIntrospectionAuthenticationProvider;
+import com.auth.server.security.PhaseTimingAuthenticationProvider;
+import com.auth.server.security.PhaseTimingTokenGenerator;
+import com.auth.server.security.ReusingClientCredentialsAuthenticationProvider;
+import com.auth.server.security.RevokedTokenIndex;
+import com.auth.server.security.ServerTiming;
+import com.auth.server.security.ServerTimingFilter;
+import com.auth.server.security.TokenEndpointMetricsFilter;
+import com.auth.server.security.TokenRateLimitFilter;
+import com.auth.server.security.TokenRateLimiter;
+import com.auth.server.security.VerifiedClientSecretCache;
+import com.auth.server.service.CachingOAuth2AuthorizationConsentService;
+import com.auth.server.service.CachingRegisteredClientRepository;
+import com.auth.server.service.JpaOAuth2AuthorizationConsentService;
+import com.auth.server.service.RedisOAuth2AuthorizationConsentService;
+import com.auth.server.service.TimedOAuth2AuthorizationService;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.core.AuthorizationGrantType;
 import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
 import org.springframework.security.oauth2.core.oidc.OidcScopes;
 import org.springframework.security.oauth2.jwt.JwtDecoder;
-import org.springframework.security.oauth2.server.authorization.client.InMemoryRegisteredClientRepository;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.authentication.ClientSecretAuthenticationProvider;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationProvider;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
 import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
 import org.springframework.security.oauth2.server.authorization.config.annotation.web.configuration.OAuth2AuthorizationServerConfiguration;
@@ -22,14 +58,20 @@ import org.springframework.security.oauth2.server.authorization.config.annotatio
 import org.springframework.security.oauth2.server.authorization.settings.AuthorizationServerSettings;
 import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
 import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.security.oauth2.server.authorization.token.DelegatingOAuth2TokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.JwtEncodingContext;
+import org.springframework.security.oauth2.server.authorization.token.JwtGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2AccessTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2RefreshTokenGenerator;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenCustomizer;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.FilterSecurityInterceptor;
 import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.preauth.AbstractPreAuthenticatedProcessingFilter;
 
-import java.security.KeyPair;
-import java.security.KeyPairGenerator;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
 import java.time.Duration;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Configuration
@@ -37,12 +79,86 @@ public class AuthorizationServerConfig {
 
     @Bean
     @Order(1)
-    public SecurityFilterChain authorizationServerSecurityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain authorizationServerSecurityFilterChain(HttpSecurity http,
+                                                                      RegisteredClientRepository registeredClientRepository,
+                                                                      VerifiedClientSecretCache verifiedClientSecretCache,
+                                                                      ClientCredentialsTokenCache clientCredentialsTokenCache,
+                                                                      JwtDecoder jwtDecoder,
+                                                                      JwtEncoder jwtEncoder,
+                                                                      OAuth2TokenCustomizer<JwtEncodingContext> jwtTokenCustomizer,
+                                                                      RevokedTokenIndex revokedTokenIndex,
+                                                                      TokenRateLimiter tokenRateLimiter,
+                                                                      AuthorizationServerSettings authorizationServerSettings,
+                                                                      OAuth2AuthorizationService authorizationService,
+                                                                      MeterRegistry meterRegistry,
+                                                                      @Value("${auth-server.authorization-store:jpa}") String authorizationStore,
+                                                                      @Value("${auth-server.token-rate-limit.enabled:true}") boolean tokenRateLimitEnabled,
+                                                                      @Value("${auth-server.introspection.local-verification:false}") boolean localIntrospection,
+                                                                      @Value("${auth-server.server-timing.client-ids:}") Set<String> serverTimingClientIds,
+                                                                      @Value("${auth-server.server-timing.debug-header-enabled:false}") boolean serverTimingDebugHeader,
+                                                                      @Value("${auth-server.server-timing.slow-request-threshold:PT0S}") Duration slowRequestThreshold,
+                                                                      @Value("${auth-server.introspection.cache-max-size:100000}") long introspectionCacheMaxSize) throws Exception {
         OAuth2AuthorizationServerConfiguration.applyDefaultSecurity(http);
 
-        http.getConfigurer(OAuth2AuthorizationServerConfigurer.class)
+        // The framework's default generators, built the same way, so that token generation is a timed phase
+        JwtGenerator jwtGenerator = new JwtGenerator(jwtEncoder);
+        jwtGenerator.setJwtCustomizer(jwtTokenCustomizer);
+        PhaseTimingTokenGenerator tokenGenerator = new PhaseTimingTokenGenerator(new DelegatingOAuth2TokenGenerator(
+                jwtGenerator, new OAuth2AccessTokenGenerator(), new OAuth2RefreshTokenGenerator()));
+
+        OAuth2AuthorizationServerConfigurer authorizationServerConfigurer =
+                http.getConfigurer(OAuth2AuthorizationServerConfigurer.class);
+        authorizationServerConfigurer
+                .authorizationService(new TimedOAuth2AuthorizationService(
+                        authorizationService, authorizationStore, meterRegistry))
+                .tokenGenerator(tokenGenerator)
+                .clientAuthentication(clientAuthentication -> clientAuthentication
+                        .authenticationProviders(providers -> providers.replaceAll(provider ->
+                                new PhaseTimingAuthenticationProvider(provider instanceof ClientSecretAuthenticationProvider
+                                        ? new CachingClientSecretAuthenticationProvider(
+                                                provider, registeredClientRepository, verifiedClientSecretCache)
+                                        : provider, ServerTiming.Phase.CLIENT_AUTH))))
+                .authorizationEndpoint(authorizationEndpoint -> authorizationEndpoint
+                        .authenticationProviders(providers -> providers.replaceAll(provider ->
+                                new PhaseTimingAuthenticationProvider(provider, ServerTiming.Phase.GRANT))))
+                .tokenEndpoint(tokenEndpoint -> tokenEndpoint
+                        .authenticationProviders(providers -> providers.replaceAll(provider ->
+                                new PhaseTimingAuthenticationProvider(provider instanceof OAuth2ClientCredentialsAuthenticationProvider
+                                        ? new ReusingClientCredentialsAuthenticationProvider(
+                                                provider, clientCredentialsTokenCache)
+                                        : provider, ServerTiming.Phase.GRANT))))
                 .oidc(Customizer.withDefaults());
 
+        // Ahead of the framework's provider, which still handles whatever this one returns null for
+        if (localIntrospection) {
+            authorizationServerConfigurer.tokenIntrospectionEndpoint(introspection -> introspection
+                    .authenticationProvider(new LocalJwtIntrospectionAuthenticationProvider(
+                            jwtDecoder, revokedTokenIndex, authorizationServerSettings.getIssuer(),
+                            introspectionCacheMaxSize)));
+        }
+
+        // Outermost of the token endpoint filters, so throttled and failed requests are timed too
+        http.addFilterBefore(new TokenEndpointMetricsFilter(meterRegistry, authorizationServerSettings.getTokenEndpoint()),
+                AbstractPreAuthenticatedProcessingFilter.class);
+
+        // Opt-in per-phase breakdown; requests that are not timed pass straight through
+        http.addFilterBefore(new ServerTimingFilter(authorizationServerSettings.getTokenEndpoint(),
+                        authorizationServerSettings.getAuthorizationEndpoint(), serverTimingClientIds,
+                        serverTimingDebugHeader, slowRequestThreshold),
+                AbstractPreAuthenticatedProcessingFilter.class);
+
+        // The address before client authentication, so throttled requests cost no secret check, and the
+        // client after it, so that only a client that authenticated is charged; the token endpoint filter
+        // itself comes after FilterSecurityInterceptor
+        if (tokenRateLimitEnabled) {
+            http.addFilterBefore(new TokenRateLimitFilter(tokenRateLimiter,
+                            authorizationServerSettings.getTokenEndpoint()),
+                    AbstractPreAuthenticatedProcessingFilter.class);
+            http.addFilterBefore(new ClientTokenRateLimitFilter(tokenRateLimiter,
+                            authorizationServerSettings.getTokenEndpoint()),
+                    FilterSecurityInterceptor.class);
+        }
+
         http.exceptionHandling(exceptions ->
                 exceptions.authenticationEntryPoint(
                         new LoginUrlAuthenticationEntryPoint("/login")
@@ -52,11 +168,18 @@ public class AuthorizationServerConfig {
         return http.build();
     }
 
+    /**
+     * The built-in clients plus every client registered through {@code ClientRegistrationService},
+     * served from an in-memory snapshot. Built-in clients use their client id as a stable id
+     * so that persisted authorizations still resolve after a restart.
+     */
     @Bean
-    public RegisteredClientRepository registeredClientRepository() {
-        RegisteredClient webClient = RegisteredClient.withId(UUID.randomUUID().toString())
+    public CachingRegisteredClientRepository registeredClientRepository(OAuthClientRepository oAuthClientRepository,
+                                                                        PasswordEncoder passwordEncoder,
+                                                                        MeterRegistry meterRegistry) {
+        RegisteredClient webClient = RegisteredClient.withId("web-client")
                 .clientId("web-client")
-                .clientSecret("{noop}web-client-secret")
+                .clientSecret(passwordEncoder.encode("web-client-secret"))
                 .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
                 .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
                 .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
@@ -73,6 +196,7 @@ public class AuthorizationServerConfig {
                         .accessTokenTimeToLive(Duration.ofHours(1))
                         .refreshTokenTimeToLive(Duration.ofDays(30))
                         .reuseRefreshTokens(false)
+                        .setting(ClientCredentialsTokenCache.CLIENT_SETTING, true)
                         .build())
                 .clientSettings(ClientSettings.builder()
                         .requireAuthorizationConsent(true)
@@ -80,9 +204,9 @@ public class AuthorizationServerConfig {
                         .build())
                 .build();
 
-        RegisteredClient mobileClient = RegisteredClient.withId(UUID.randomUUID().toString())
+        RegisteredClient mobileClient = RegisteredClient.withId("mobile-client")
                 .clientId("mobile-client")
-                .clientSecret("{noop}mobile-client-secret")
+                .clientSecret(passwordEncoder.encode("mobile-client-secret"))
                 .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
                 .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
                 .authorizationGrantType(AuthorizationGrantType.REFRESH_TOKEN)
@@ -101,37 +225,87 @@ public class AuthorizationServerConfig {
                         .build())
                 .build();
 
-        return new InMemoryRegisteredClientRepository(webClient, mobileClient);
+        return new CachingRegisteredClientRepository(oAuthClientRepository, List.of(webClient, mobileClient),
+                meterRegistry);
     }
 
+    /**
+     * Consents from the configured authorization store, behind a near cache. The stores are not
+     * beans themselves: the authorization server expects exactly one consent service.
+     */
     @Bean
-    public JWKSource<SecurityContext> jwkSource() {
-        KeyPair keyPair = generateRsaKey();
-        RSAPublicKey publicKey = (RSAPublicKey) keyPair.getPublic();
-        RSAPrivateKey privateKey = (RSAPrivateKey) keyPair.getPrivate();
-
-        RSAKey rsaKey = new RSAKey.Builder(publicKey)
-                .privateKey(privateKey)
-                .keyID(UUID.randomUUID().toString())
-                .build();
+    public CachingOAuth2AuthorizationConsentService authorizationConsentService(
+            RegisteredClientRepository registeredClientRepository,
+            OAuthAuthorizationConsentRepository consentRepository,
+            ObjectProvider<StringRedisTemplate> redisTemplate,
+            @Value("${auth-server.authorization-store:jpa}") String authorizationStore,
+            @Value("${auth-server.redis.key-prefix:oauth2:}") String redisKeyPrefix,
+            @Value("${auth-server.consent-cache.ttl:PT1M}") Duration ttl,
+            @Value("${auth-server.consent-cache.negative-ttl:PT1M}") Duration negativeTtl,
+            @Value("${auth-server.consent-cache.max-size:100000}") long maxSize) {
+        OAuth2AuthorizationConsentService store = "redis".equals(authorizationStore)
+                ? new RedisOAuth2AuthorizationConsentService(redisTemplate.getObject(), registeredClientRepository, redisKeyPrefix)
+                : new JpaOAuth2AuthorizationConsentService(consentRepository, registeredClientRepository);
+        return new CachingOAuth2AuthorizationConsentService(store, ttl, negativeTtl, maxSize);
+    }
 
-        JWKSet jwkSet = new JWKSet(rsaKey);
-        return new ImmutableJWKSet<>(jwkSet);
+    /**
+     * The signing key ring is the single source of signing and verification keys. It holds
+     * next/current/previous keys per enabled algorithm and rotates them in the background.
+     */
+    @Bean
+    public SigningKeyRing jwkSource(SigningAlgorithms signingAlgorithms,
+                                    @Value("${auth-server.jwk.key-size:2048}") int rsaKeySize,
+                                    @Value("${auth-server.jwk.rotation-interval:P30D}") Duration rotationInterval,
+                                    @Value("${auth-server.jwk.retention:PT2H}") Duration retention) {
+        return new SigningKeyRing(signingAlgorithms, rsaKeySize, rotationInterval, retention);
     }
 
-    private static KeyPair generateRsaKey() {
-        try {
-            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
-            keyPairGenerator.initialize(2048);
-            return keyPairGenerator.generateKeyPair();
-        } catch (Exception ex) {
-            throw new IllegalStateException("Failed to generate RSA key pair", ex);
-        }
+    /**
+     * Serves the JWK set for both the framework's endpoint and {@code /.well-known/jwks.json}
+     * from the key ring's pre-serialized copy, cacheable for {@code cache-max-age} but never
+     * longer than half a rotation interval.
+     */
+    @Bean
+    public FilterRegistrationBean<JwkSetEndpointFilter> jwkSetEndpointFilter(
+            SigningKeyRing signingKeyRing,
+            AuthorizationServerSettings authorizationServerSettings,
+            MeterRegistry meterRegistry,
+            @Value("${auth-server.jwk.rotation-interval:P30D}") Duration rotationInterval,
+            @Value("${auth-server.jwk.cache-max-age:PT15M}") Duration cacheMaxAge) {
+        FilterRegistrationBean<JwkSetEndpointFilter> registration = new FilterRegistrationBean<>(
+                new JwkSetEndpointFilter(signingKeyRing,
+                        Set.of(authorizationServerSettings.getJwkSetEndpoint(), "/.well-known/jwks.json"),
+                        cacheMaxAge, rotationInterval, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    @Bean
+    public JwtEncoder jwtEncoder(JWKSource<SecurityContext> jwkSource, MeterRegistry meterRegistry) {
+        return new TimedJwtEncoder(new JwkSourceJwtEncoder(jwkSource), meterRegistry);
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource, SigningAlgorithms signingAlgorithms) {
+        return new JwkSourceJwtDecoder(jwkSource, signingAlgorithms.getEnabled());
     }
 
+    /**
+     * Give every JWT a unique {@code jti}, and sign it with the current key of the algorithm
+     * configured for the server or the client. Without the {@code jti}, two tokens issued to the same
+     * client in the same second are byte-identical and collide in the token store.
+     */
     @Bean
-    public JwtDecoder jwtDecoder(JWKSource<SecurityContext> jwkSource) {
-        return OAuth2AuthorizationServerConfiguration.jwtDecoder(jwkSource);
+    public OAuth2TokenCustomizer<JwtEncodingContext> jwtTokenCustomizer(SigningAlgorithms signingAlgorithms,
+                                                                         SigningKeyRing signingKeyRing) {
+        return context -> {
+            SigningAlgorithm algorithm = signingAlgorithms.resolve(context.getRegisteredClient());
+            context.getJwsHeader()
+                    .algorithm(algorithm)
+                    .keyId(signingKeyRing.getCurrentKeyId(algorithm));
+            context.getClaims().id(UUID.randomUUID().toString());
+        };
     }
 
     @Bean
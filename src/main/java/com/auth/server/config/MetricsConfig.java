@@ -0,0 +1,125 @@
+package com.auth.server.config;
+
+import com.auth.server.security.ClientCredentialsTokenCache;
+import com.auth.server.security.LoginAttemptTracker;
+import com.auth.server.security.PasswordHashingExecutor;
+import com.auth.server.security.RevokedTokenIndex;
+import com.auth.server.security.TokenRateLimiter;
+import com.auth.server.security.UserDetailsCache;
+import com.auth.server.security.VerifiedClientSecretCache;
+import com.auth.server.service.CachingOAuth2AuthorizationConsentService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes the counters the caches, limiters and the hashing pool already keep as
+ * Micrometer meters, read when the registry is scraped rather than updated per request.
+ * <p>
+ * The meters are bound once every singleton exists rather than through {@code MeterBinder}
+ * beans: a binder makes the registry depend on the component it reads, and several of these
+ * depend on the registry themselves (through the client repository, or Redis's metrics).
+ * Caches use Micrometer's {@code cache.gets} and {@code cache.size} names, tagged with the
+ * cache. Latency timers are recorded where the work happens; see {@code TimedJwtEncoder},
+ * {@code TimedPasswordEncoder}, {@code PasswordHashingExecutor} (queue wait),
+ * {@code TimedOAuth2AuthorizationService} and {@code TokenEndpointMetricsFilter}.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public SmartInitializingSingleton componentMetricsBinder(MeterRegistry registry,
+                                                             PasswordHashingExecutor passwordHashingExecutor,
+                                                             VerifiedClientSecretCache clientSecretCache,
+                                                             UserDetailsCache userDetailsCache,
+                                                             CachingOAuth2AuthorizationConsentService consentService,
+                                                             ClientCredentialsTokenCache tokenCache,
+                                                             RevokedTokenIndex revokedTokenIndex,
+                                                             TokenRateLimiter tokenRateLimiter,
+                                                             LoginAttemptTracker loginAttemptTracker) {
+        return () -> {
+            bindPasswordHashing(registry, passwordHashingExecutor);
+            cache(registry, "client-secrets", clientSecretCache, VerifiedClientSecretCache::getHitCount,
+                    VerifiedClientSecretCache::getMissCount, VerifiedClientSecretCache::size);
+            cache(registry, "user-details", userDetailsCache, UserDetailsCache::getHitCount,
+                    UserDetailsCache::getMissCount, UserDetailsCache::size);
+            cache(registry, "consents", consentService, CachingOAuth2AuthorizationConsentService::getHitCount,
+                    CachingOAuth2AuthorizationConsentService::getMissCount, CachingOAuth2AuthorizationConsentService::size);
+            bindTokenReuse(registry, tokenCache);
+            bindRevocations(registry, revokedTokenIndex);
+            bindThrottling(registry, tokenRateLimiter, loginAttemptTracker);
+        };
+    }
+
+    private static void bindPasswordHashing(MeterRegistry registry, PasswordHashingExecutor executor) {
+        Gauge.builder("auth.password.hashing.queue", executor, PasswordHashingExecutor::getQueueDepth)
+                .description("Hashing tasks waiting for a thread")
+                .register(registry);
+        Gauge.builder("auth.password.hashing.active", executor, PasswordHashingExecutor::getActiveCount)
+                .description("Hashing threads busy")
+                .register(registry);
+        counter(registry, "auth.password.hashing.completed", executor, PasswordHashingExecutor::getCompletedCount);
+        counter(registry, "auth.password.hashing.rejected", executor, PasswordHashingExecutor::getRejectedCount);
+    }
+
+    private static void bindTokenReuse(MeterRegistry registry, ClientCredentialsTokenCache tokenCache) {
+        counter(registry, "auth.token.reuse.reused", tokenCache, ClientCredentialsTokenCache::getReuseCount);
+        counter(registry, "auth.token.reuse.issued", tokenCache, ClientCredentialsTokenCache::getIssueCount);
+        Gauge.builder("auth.token.reuse.size", tokenCache, ClientCredentialsTokenCache::size)
+                .description("Client credentials tokens held for reuse")
+                .register(registry);
+    }
+
+    private static void bindRevocations(MeterRegistry registry, RevokedTokenIndex revokedTokenIndex) {
+        Gauge.builder("auth.revocation.index.size", revokedTokenIndex, RevokedTokenIndex::size)
+                .description("Unexpired revoked tokens in the in-memory index")
+                .register(registry);
+        Gauge.builder("auth.revocation.index.memory", revokedTokenIndex, RevokedTokenIndex::getMemoryFootprintBytes)
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("auth.revocation.index.false.positive.rate", revokedTokenIndex,
+                        RevokedTokenIndex::getObservedFalsePositiveRate)
+                .register(registry);
+        counter(registry, "auth.revocation.index.lookups", revokedTokenIndex, RevokedTokenIndex::getLookups);
+        counter(registry, "auth.revocation.index.bloom.rejections", revokedTokenIndex,
+                RevokedTokenIndex::getBloomFilterRejections);
+    }
+
+    private static void bindThrottling(MeterRegistry registry, TokenRateLimiter tokenRateLimiter,
+                                       LoginAttemptTracker loginAttemptTracker) {
+        counter(registry, "auth.token.rate.limit.allowed", tokenRateLimiter, TokenRateLimiter::getAllowedCount);
+        FunctionCounter.builder("auth.token.rate.limit.throttled", tokenRateLimiter,
+                        TokenRateLimiter::getThrottledClientCount)
+                .tag("bucket", "client")
+                .register(registry);
+        FunctionCounter.builder("auth.token.rate.limit.throttled", tokenRateLimiter,
+                        TokenRateLimiter::getThrottledAddressCount)
+                .tag("bucket", "address")
+                .register(registry);
+        Gauge.builder("auth.token.rate.limit.buckets", tokenRateLimiter, TokenRateLimiter::getBucketCount)
+                .register(registry);
+        counter(registry, "auth.login.failures", loginAttemptTracker, LoginAttemptTracker::getFailureCount);
+        counter(registry, "auth.login.throttled", loginAttemptTracker, LoginAttemptTracker::getThrottledCount);
+        counter(registry, "auth.login.lockouts", loginAttemptTracker, LoginAttemptTracker::getLockoutCount);
+        Gauge.builder("auth.login.tracked", loginAttemptTracker, LoginAttemptTracker::getTrackedCount)
+                .description("Usernames and addresses with recent failed logins")
+                .register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, source, count).register(registry);
+    }
+
+    private static <T> void cache(MeterRegistry registry, String cache, T source, ToDoubleFunction<T> hits,
+                                  ToDoubleFunction<T> misses, ToDoubleFunction<T> size) {
+        FunctionCounter.builder("cache.gets", source, hits).tags("cache", cache, "result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", source, misses).tags("cache", cache, "result", "miss").register(registry);
+        Gauge.builder("cache.size", source, size).tag("cache", cache).register(registry);
+    }
+
+}
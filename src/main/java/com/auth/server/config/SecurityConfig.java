@@ -1,22 +1,35 @@
 package com.auth.server.config;
 
+import com.auth.server.security.BoundedPasswordEncoder;
+import com.auth.server.security.LoginAttemptTracker;
+import com.auth.server.security.LoginThrottlingFilter;
+import com.auth.server.security.PasswordEncoders;
+import com.auth.server.security.PasswordHashingExecutor;
+import com.auth.server.security.PasswordHashingRejectionFilter;
+import com.auth.server.security.TimedPasswordEncoder;
 import com.auth.server.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 
@@ -27,9 +40,38 @@ public class SecurityConfig {
 
     private final CustomUserDetailsService userDetailsService;
 
+    /**
+     * Actuator endpoints. Health stays open for probes; everything else, including the
+     * Prometheus scrape, whose meters are tagged with client ids, needs an admin. HTTP Basic
+     * lets a scraper authenticate without a login form or a session.
+     */
     @Bean
     @Order(2)
-    public SecurityFilterChain defaultSecurityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain actuatorSecurityFilterChain(HttpSecurity http) throws Exception {
+        http
+                .antMatcher("/actuator/**")
+                .authorizeHttpRequests(authorize -> authorize
+                        .antMatchers("/actuator/health/**").permitAll()
+                        .anyRequest().hasRole("ADMIN")
+                )
+                .httpBasic()
+                .and()
+                .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+
+        return http.build();
+    }
+
+    @Bean
+    @Order(3)
+    public SecurityFilterChain defaultSecurityFilterChain(HttpSecurity http,
+                                                          LoginAttemptTracker loginAttemptTracker,
+                                                          @Value("${auth-server.login-throttling.enabled:true}") boolean loginThrottling) throws Exception {
+        // Ahead of the login filter, so that blocked guesses are never hashed
+        if (loginThrottling) {
+            http.addFilterBefore(new LoginThrottlingFilter(loginAttemptTracker, "/login"),
+                    UsernamePasswordAuthenticationFilter.class);
+        }
+
         http
                 .cors().configurationSource(corsConfigurationSource())
                 .and()
@@ -39,6 +81,8 @@ public class SecurityConfig {
                         .antMatchers("/api/users/register").permitAll()
                         .antMatchers("/login", "/error", "/css/**", "/js/**").permitAll()
                         .antMatchers("/api/clients/**").hasRole("ADMIN")
+                        .antMatchers("/api/users/import").hasRole("ADMIN")
+                        .antMatchers("/api/users/export").hasRole("ADMIN")
                         .antMatchers("/api/users/**").authenticated()
                         .anyRequest().authenticated()
                 )
@@ -76,17 +120,36 @@ public class SecurityConfig {
         return source;
     }
 
+    /**
+     * {@link PasswordEncoders#create() BCrypt, or Argon2 for imported hashes}, run on the
+     * bounded hashing pool so that user logins, registrations and client-secret checks
+     * cannot tie up request threads, and timed including the wait for that pool.
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(PasswordHashingExecutor passwordHashingExecutor, MeterRegistry meterRegistry) {
+        return new TimedPasswordEncoder(
+                new BoundedPasswordEncoder(PasswordEncoders.create(), passwordHashingExecutor), meterRegistry);
     }
 
     @Bean
-    public AuthenticationManager authenticationManager() {
+    public AuthenticationManager authenticationManager(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
         return new ProviderManager(authProvider);
     }
 
+    /**
+     * Registered ahead of the Spring Security filter chain so that a saturated hashing pool
+     * is reported as 503 whichever chain the request went through.
+     */
+    @Bean
+    public FilterRegistrationBean<PasswordHashingRejectionFilter> passwordHashingRejectionFilter(
+            @Value("${auth-server.password-hashing.retry-after:PT1S}") Duration retryAfter) {
+        FilterRegistrationBean<PasswordHashingRejectionFilter> registration =
+                new FilterRegistrationBean<>(new PasswordHashingRejectionFilter(retryAfter));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
 }
@@ -0,0 +1,78 @@
+package com.auth.server.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+
+/**
+ * Serialization of HTTP sessions when they are kept outside the JVM
+ * ({@code spring.session.store-type} {@code redis} or {@code jdbc}).
+ * <p>
+ * Attributes are written as JSON with Spring Security's Jackson modules instead of Java
+ * serialization: a logged-in user's security context comes out about a third smaller, it
+ * survives class changes between deployments, and only allow-listed types can be read back.
+ * Both stores keep one entry per attribute and rewrite only the attributes that changed
+ * during a request. The JDBC store also deserializes an attribute only when it is first read.
+ */
+@Configuration
+public class SessionConfig implements BeanClassLoaderAware {
+
+    private ClassLoader classLoader;
+
+    @Override
+    public void setBeanClassLoader(ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.session.store-type", havingValue = "redis")
+    public RedisSerializer<Object> springSessionDefaultRedisSerializer() {
+        return new GenericJackson2JsonRedisSerializer(sessionObjectMapper());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "spring.session.store-type", havingValue = "jdbc")
+    public ConversionService springSessionConversionService() {
+        ObjectMapper objectMapper = sessionObjectMapper();
+        GenericConversionService conversionService = new GenericConversionService();
+        conversionService.addConverter(Object.class, byte[].class,
+                new SerializingConverter((value, outputStream) -> objectMapper.writeValue(outputStream, value)));
+        conversionService.addConverter(byte[].class, Object.class,
+                new DeserializingConverter(inputStream -> objectMapper.readValue(inputStream, Object.class)));
+        return conversionService;
+    }
+
+    /**
+     * Session writes run in their own JDBC transaction. With the JPA transaction manager they
+     * would flush whatever entities the request's open-in-view EntityManager left dirty.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "spring.session.store-type", havingValue = "jdbc")
+    public TransactionOperations springSessionTransactionOperations(DataSource dataSource) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transactionTemplate;
+    }
+
+    private ObjectMapper sessionObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModules(SecurityJackson2Modules.getModules(classLoader));
+        return objectMapper;
+    }
+
+}
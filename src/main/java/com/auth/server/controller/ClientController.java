@@ -1,17 +1,21 @@
 package com.auth.server.controller;
 
 import com.auth.server.entity.OAuthClient;
+import com.auth.server.service.ClientCatalog;
 import com.auth.server.service.ClientRegistrationService;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/clients")
@@ -20,6 +24,10 @@ import java.util.List;
 public class ClientController {
 
     private final ClientRegistrationService clientRegistrationService;
+    private final ClientCatalog clientCatalog;
+
+    @Value("${auth-server.client-catalog.max-page-size:500}")
+    private int maxPageSize;
 
     @PostMapping("/register")
     public ResponseEntity<OAuthClient> registerClient(@RequestBody ClientRegistrationRequest request) {
@@ -35,25 +43,38 @@ public class ClientController {
         return ResponseEntity.status(HttpStatus.CREATED).body(registeredClient);
     }
 
+    /**
+     * One page of the client catalog, served from memory. The ETag changes only when a
+     * client does, so pollers sending {@code If-None-Match} get {@code 304} in between.
+     */
     @GetMapping
-    public ResponseEntity<List<OAuthClient>> getAllClients() {
-        List<OAuthClient> clients = clientRegistrationService.getAllClients();
-        // Mask client secrets in response
-        clients.forEach(client -> {
-            if (client.getClientSecret() != null) {
-                client.setClientSecret("********");
-            }
-        });
-        return ResponseEntity.ok(clients);
+    public ResponseEntity<ClientCatalog.ClientPage> getAllClients(@RequestParam(required = false) Long after,
+                                                                  @RequestParam(defaultValue = "50") int limit) {
+        ClientCatalog.Snapshot snapshot = clientCatalog.snapshot();
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.getETag())
+                .body(snapshot.page(after != null ? after : 0L, pageSize));
     }
 
     @GetMapping("/{clientId}")
-    public ResponseEntity<OAuthClient> getClient(@PathVariable String clientId) {
-        return clientRegistrationService.findByClientId(clientId)
-                .map(client -> {
-                    client.setClientSecret("********");
-                    return ResponseEntity.ok(client);
-                })
+    public ResponseEntity<ClientCatalog.ClientSummary> getClient(@PathVariable String clientId) {
+        ClientCatalog.Snapshot snapshot = clientCatalog.snapshot();
+        return snapshot.findByClientId(clientId)
+                .map(client -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noCache())
+                        .eTag(snapshot.getETag())
+                        .body(client))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/{clientId}/secret")
+    public ResponseEntity<Map<String, String>> rotateClientSecret(@PathVariable String clientId) {
+        log.info("Rotating secret for OAuth2 client: {}", clientId);
+
+        return clientRegistrationService.rotateClientSecret(clientId)
+                .map(secret -> ResponseEntity.ok(Map.of("clientId", clientId, "clientSecret", secret)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -2,12 +2,19 @@ package com.auth.server.controller;
 
 import com.auth.server.entity.AuthUser;
 import com.auth.server.entity.UserRole;
+import com.auth.server.event.AuthUserChangedEvent;
 import com.auth.server.repository.AuthUserRepository;
+import com.auth.server.service.UserDirectoryService;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -15,10 +22,12 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
@@ -30,6 +39,11 @@ public class UserController {
 
     private final AuthUserRepository authUserRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserDirectoryService userDirectoryService;
+
+    @Value("${auth-server.user-listing.max-page-size:500}")
+    private int maxPageSize;
 
     @GetMapping("/me")
     public ResponseEntity<AuthUser> getCurrentUser(@AuthenticationPrincipal UserDetails userDetails) {
@@ -45,27 +59,53 @@ public class UserController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * One page of users, keyset-paginated on id: pass the previous page's {@code nextCursor}
+     * as {@code after} to get the next one.
+     */
     @GetMapping
-    public ResponseEntity<List<AuthUser>> getAllUsers() {
-        List<AuthUser> users = authUserRepository.findAll();
-        users.forEach(user -> user.setPassword(null)); // Don't expose password hashes
-        return ResponseEntity.ok(users);
+    public ResponseEntity<UserDirectoryService.UserPage> getUsers(
+            @RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) UserRole role,
+            @RequestParam(required = false) Boolean enabled,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo) {
+        UserDirectoryService.UserFilter filter = UserDirectoryService.UserFilter.builder()
+                .role(role)
+                .enabled(enabled)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+        int pageSize = Math.max(1, Math.min(limit, maxPageSize));
+        return ResponseEntity.ok(userDirectoryService.findUsers(filter, after != null ? after : 0L, pageSize));
+    }
+
+    /**
+     * Every matching user as NDJSON, streamed from the database with constant memory.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public void exportUsers(@RequestParam(required = false) UserRole role,
+                            @RequestParam(required = false) Boolean enabled,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdFrom,
+                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime createdTo,
+                            HttpServletResponse response) throws IOException {
+        UserDirectoryService.UserFilter filter = UserDirectoryService.UserFilter.builder()
+                .role(role)
+                .enabled(enabled)
+                .createdFrom(createdFrom)
+                .createdTo(createdTo)
+                .build();
+        response.setContentType("application/x-ndjson");
+        response.setCharacterEncoding("UTF-8");
+        long exported = userDirectoryService.exportUsers(filter, response.getOutputStream());
+        log.info("Exported {} users", exported);
     }
 
     @PostMapping("/register")
     public ResponseEntity<?> registerUser(@RequestBody RegisterRequest request) {
         log.info("Registration request for username: {}", request.getUsername());
 
-        if (authUserRepository.findByUsername(request.getUsername()).isPresent()) {
-            return ResponseEntity.badRequest()
-                    .body(Collections.singletonMap("error", "Username already exists"));
-        }
-
-        if (authUserRepository.findByEmail(request.getEmail()).isPresent()) {
-            return ResponseEntity.badRequest()
-                    .body(Collections.singletonMap("error", "Email already registered"));
-        }
-
         Set<UserRole> roles = new HashSet<>();
         roles.add(UserRole.USER);
 
@@ -78,13 +118,44 @@ public class UserController {
                 .createdAt(LocalDateTime.now())
                 .build();
 
-        AuthUser saved = authUserRepository.save(newUser);
+        // A single insert: the unique indexes on username and email reject duplicates.
+        AuthUser saved;
+        try {
+            saved = authUserRepository.saveAndFlush(newUser);
+        } catch (DataIntegrityViolationException e) {
+            String error = isDuplicateUsername(e, request.getUsername())
+                    ? "Username already exists" : "Email already registered";
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", error));
+        }
+        eventPublisher.publishEvent(new AuthUserChangedEvent(saved.getUsername()));
         saved.setPassword(null); // Don't expose password hash
 
         log.info("User registered successfully: {}", saved.getUsername());
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    /**
+     * Whether the username index, rather than the email index, rejected a registration.
+     * Databases do not all report the constraint name, so fall back to a lookup; this only
+     * runs for rejected registrations.
+     */
+    private boolean isDuplicateUsername(DataIntegrityViolationException e, String username) {
+        if (e.getCause() instanceof ConstraintViolationException) {
+            String constraintName = ((ConstraintViolationException) e.getCause()).getConstraintName();
+            if (constraintName != null) {
+                String name = constraintName.toLowerCase(Locale.ROOT);
+                if (name.contains(AuthUser.USERNAME_INDEX)) {
+                    return true;
+                }
+                if (name.contains(AuthUser.EMAIL_INDEX)) {
+                    return false;
+                }
+            }
+        }
+        return authUserRepository.existsByUsername(username);
+    }
+
     @Data
     @NoArgsConstructor
     @AllArgsConstructor
@@ -0,0 +1,55 @@
+package com.auth.server.controller;
+
+import com.auth.server.service.UserImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * Admin endpoint for bulk user imports. The request body is the NDJSON
+ * ({@code application/x-ndjson}) or CSV ({@code text/csv}) file itself and is streamed, never
+ * buffered:
+ * {@code curl -u admin --data-binary @users.ndjson -H 'Content-Type: application/x-ndjson'
+ * 'http://localhost:9000/api/users/import?importId=crm-2024'}.
+ * Repeating the request with the same {@code importId} resumes after the last committed chunk.
+ */
+@RestController
+@RequestMapping("/api/users/import")
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportController {
+
+    private final UserImportService userImportService;
+
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    @PostMapping(consumes = {NDJSON, CSV})
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                         @RequestParam(required = false) String importId,
+                                         InputStream body) {
+        UserImportService.Format importFormat = MediaType.valueOf(CSV).includes(contentType)
+                ? UserImportService.Format.CSV : UserImportService.Format.NDJSON;
+        String id = importId != null ? importId : UUID.randomUUID().toString();
+        log.info("Bulk user import {} requested ({})", id, importFormat);
+
+        try {
+            return ResponseEntity.ok(userImportService.importUsers(id, importFormat, body));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Collections.singletonMap("error", e.getMessage()));
+        }
+    }
+
+}
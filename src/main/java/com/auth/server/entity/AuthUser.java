@@ -11,8 +11,8 @@ import java.util.Set;
 
 @Entity
 @Table(name = "auth_users", indexes = {
-        @Index(name = "idx_auth_user_username", columnList = "username", unique = true),
-        @Index(name = "idx_auth_user_email", columnList = "email", unique = true)
+        @Index(name = AuthUser.USERNAME_INDEX, columnList = "username", unique = true),
+        @Index(name = AuthUser.EMAIL_INDEX, columnList = "email", unique = true)
 })
 @Data
 @NoArgsConstructor
@@ -20,14 +20,22 @@ import java.util.Set;
 @Builder
 public class AuthUser {
 
+    public static final String USERNAME_INDEX = "idx_auth_user_username";
+    public static final String EMAIL_INDEX = "idx_auth_user_email";
+
+    /**
+     * Pooled sequence rather than an identity column: ids are known before the insert, so
+     * user and role inserts can be JDBC-batched, and one sequence call covers 50 users.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "auth_users_seq")
+    @SequenceGenerator(name = "auth_users_seq", sequenceName = "auth_users_seq", allocationSize = 50)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 50)
+    @Column(nullable = false, length = 50)
     private String username;
 
-    @Column(nullable = false, unique = true, length = 100)
+    @Column(nullable = false, length = 100)
     private String email;
 
     @Column(nullable = false)
@@ -47,6 +55,12 @@ public class AuthUser {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * End of a lockout after repeated failed logins; the account is locked while this is in
+     * the future.
+     */
+    private LocalDateTime lockedUntil;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -0,0 +1,110 @@
+package com.auth.server.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Persistent form of an {@code OAuth2Authorization}.
+ * Every token value is also stored as a fixed-length SHA-256 hash so that
+ * lookups by token go through a small unique index instead of the raw value.
+ */
+@Entity
+@Table(name = "oauth_authorizations", indexes = {
+        @Index(name = "idx_oauth_authorization_state", columnList = "stateHash", unique = true),
+        @Index(name = "idx_oauth_authorization_code", columnList = "authorizationCodeHash", unique = true),
+        @Index(name = "idx_oauth_authorization_access_token", columnList = "accessTokenHash", unique = true),
+        @Index(name = "idx_oauth_authorization_refresh_token", columnList = "refreshTokenHash", unique = true),
+        @Index(name = "idx_oauth_authorization_id_token", columnList = "oidcIdTokenHash", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OAuthAuthorization {
+
+    @Id
+    @Column(length = 100)
+    private String id;
+
+    @Column(nullable = false, length = 100)
+    private String registeredClientId;
+
+    @Column(nullable = false, length = 200)
+    private String principalName;
+
+    @Column(nullable = false, length = 100)
+    private String authorizationGrantType;
+
+    @Column(length = 1000)
+    private String authorizedScopes;
+
+    @Column(columnDefinition = "text")
+    private String attributes;
+
+    @Column(length = 500)
+    private String state;
+
+    @Column(length = 64)
+    private String stateHash;
+
+    @Column(columnDefinition = "text")
+    private String authorizationCodeValue;
+
+    @Column(length = 64)
+    private String authorizationCodeHash;
+
+    private Instant authorizationCodeIssuedAt;
+
+    private Instant authorizationCodeExpiresAt;
+
+    @Column(columnDefinition = "text")
+    private String authorizationCodeMetadata;
+
+    @Column(columnDefinition = "text")
+    private String accessTokenValue;
+
+    @Column(length = 64)
+    private String accessTokenHash;
+
+    private Instant accessTokenIssuedAt;
+
+    private Instant accessTokenExpiresAt;
+
+    @Column(columnDefinition = "text")
+    private String accessTokenMetadata;
+
+    @Column(length = 100)
+    private String accessTokenType;
+
+    @Column(length = 1000)
+    private String accessTokenScopes;
+
+    @Column(columnDefinition = "text")
+    private String refreshTokenValue;
+
+    @Column(length = 64)
+    private String refreshTokenHash;
+
+    private Instant refreshTokenIssuedAt;
+
+    private Instant refreshTokenExpiresAt;
+
+    @Column(columnDefinition = "text")
+    private String refreshTokenMetadata;
+
+    @Column(columnDefinition = "text")
+    private String oidcIdTokenValue;
+
+    @Column(length = 64)
+    private String oidcIdTokenHash;
+
+    private Instant oidcIdTokenIssuedAt;
+
+    private Instant oidcIdTokenExpiresAt;
+
+    @Column(columnDefinition = "text")
+    private String oidcIdTokenMetadata;
+
+}
@@ -0,0 +1,42 @@
+package com.auth.server.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Persistent form of an {@code OAuth2AuthorizationConsent}: the authorities a user granted
+ * to one client, as a comma-delimited list.
+ */
+@Entity
+@Table(name = "oauth_authorization_consents")
+@IdClass(OAuthAuthorizationConsent.ConsentId.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class OAuthAuthorizationConsent {
+
+    @Id
+    @Column(length = 100)
+    private String registeredClientId;
+
+    @Id
+    @Column(length = 200)
+    private String principalName;
+
+    @Column(nullable = false, length = 1000)
+    private String authorities;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ConsentId implements Serializable {
+
+        private String registeredClientId;
+        private String principalName;
+
+    }
+
+}
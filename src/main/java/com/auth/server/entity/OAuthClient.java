@@ -48,6 +48,12 @@ public class OAuthClient {
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /**
+     * Token requests allowed per rate-limit period, overriding the server default; {@code null}
+     * uses the default and zero or less disables the client limit.
+     */
+    private Integer tokenRateLimit;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
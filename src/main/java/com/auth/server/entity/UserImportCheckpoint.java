@@ -0,0 +1,37 @@
+package com.auth.server.entity;
+
+import javax.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * Progress of a bulk user import, written in the same transaction as each committed chunk.
+ * Re-running an import with the same {@code importId} skips the first
+ * {@code recordsProcessed} records of the file.
+ */
+@Entity
+@Table(name = "user_import_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserImportCheckpoint {
+
+    @Id
+    @Column(length = 100)
+    private String importId;
+
+    @Column(nullable = false)
+    private long recordsProcessed;
+
+    @Column(nullable = false)
+    private long imported;
+
+    @Column(nullable = false)
+    private long rejected;
+
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+}
@@ -0,0 +1,20 @@
+package com.auth.server.event;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Published when an issued JWT access token is invalidated before its expiry: it was
+ * revoked, or its authorization was removed. An access token replaced by a refresh is not
+ * invalidated and stays valid until it expires.
+ * Local token verification has to treat the {@code jti} as inactive until {@code expiresAt}.
+ */
+@Value
+public class AccessTokenRevokedEvent {
+
+    String tokenId;
+
+    Instant expiresAt;
+
+}
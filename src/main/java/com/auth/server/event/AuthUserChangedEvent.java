@@ -0,0 +1,14 @@
+package com.auth.server.event;
+
+import lombok.Value;
+
+/**
+ * Published whenever an {@code AuthUser} row is created or modified (password, roles,
+ * enabled flag), so that cached {@code UserDetails} for that user are dropped.
+ */
+@Value
+public class AuthUserChangedEvent {
+
+    String username;
+
+}
@@ -0,0 +1,14 @@
+package com.auth.server.event;
+
+import lombok.Value;
+
+/**
+ * Published whenever an {@code OAuthClient} row is created or modified,
+ * so that in-memory views of the client table can refresh that client.
+ */
+@Value
+public class OAuthClientChangedEvent {
+
+    String clientId;
+
+}
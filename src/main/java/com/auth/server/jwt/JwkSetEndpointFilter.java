@@ -0,0 +1,84 @@
+package com.auth.server.jwt;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Serves the public JWK set for the given paths straight from the {@link SigningKeyRing}'s
+ * pre-serialized {@link PublishedJwkSet}, ahead of the security filter chains.
+ * <p>
+ * Responses carry a strong {@code ETag} and {@code Cache-Control: max-age}; a matching
+ * {@code If-None-Match} gets {@code 304 Not Modified} without a body. Resource servers may
+ * cache the set for {@code cacheMaxAge}, but never longer than half a rotation interval, so
+ * they always pick up a new next key well before it starts signing.
+ */
+public class JwkSetEndpointFilter extends OncePerRequestFilter {
+
+    private final SigningKeyRing signingKeyRing;
+    private final Set<String> paths;
+    private final String cacheControl;
+    private final Counter servedRequests;
+    private final Counter notModifiedRequests;
+
+    public JwkSetEndpointFilter(SigningKeyRing signingKeyRing, Set<String> paths, Duration cacheMaxAge,
+                                Duration rotationInterval, MeterRegistry meterRegistry) {
+        Duration halfRotation = rotationInterval.dividedBy(2);
+        Duration maxAge = cacheMaxAge.compareTo(halfRotation) < 0 ? cacheMaxAge : halfRotation;
+        this.signingKeyRing = signingKeyRing;
+        this.paths = Set.copyOf(paths);
+        this.cacheControl = "public, max-age=" + maxAge.getSeconds();
+        this.servedRequests = requestCounter(meterRegistry, HttpStatus.OK);
+        this.notModifiedRequests = requestCounter(meterRegistry, HttpStatus.NOT_MODIFIED);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String contextPath = request.getContextPath();
+        String uri = request.getRequestURI();
+        return !paths.contains(contextPath.isEmpty() ? uri : uri.substring(contextPath.length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        PublishedJwkSet jwkSet = signingKeyRing.getPublishedJwkSet();
+        response.setHeader(HttpHeaders.ETAG, jwkSet.getEtag());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+
+        if (jwkSet.isNotModified(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            notModifiedRequests.increment();
+            return;
+        }
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(jwkSet.getContentLength());
+        jwkSet.writeTo(response.getOutputStream());
+        servedRequests.increment();
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, HttpStatus status) {
+        return Counter.builder("auth.jwks.requests")
+                .description("JWK set requests")
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.auth.server.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.ECDSAVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.SignedJWT;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.security.oauth2.core.OAuth2Error;
+import org.springframework.security.oauth2.core.OAuth2TokenValidator;
+import org.springframework.security.oauth2.core.OAuth2TokenValidatorResult;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.JwtValidationException;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.MappedJwtClaimSetConverter;
+
+import java.text.ParseException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@link JwtDecoder} that verifies tokens against the server's own {@link JWKSource}
+ * for every {@link SigningAlgorithm}, including Ed25519, which Nimbus's
+ * {@code JWSVerificationKeySelector} cannot hand to a verifier.
+ */
+public class JwkSourceJwtDecoder implements JwtDecoder {
+
+    private final JWKSource<SecurityContext> jwkSource;
+    private final Set<JWSAlgorithm> algorithms;
+
+    /**
+     * Keyed by key id, like the encoder's signers: key ids are random per generated key, so an
+     * id never names two keys, and verifiers of retired keys age out instead of piling up.
+     */
+    private final Cache<String, JWSVerifier> verifiers = Caffeine.newBuilder()
+            .maximumSize(64)
+            .build();
+
+    private final Converter<Map<String, Object>, Map<String, Object>> claimSetConverter =
+            MappedJwtClaimSetConverter.withDefaults(Collections.emptyMap());
+    private final OAuth2TokenValidator<Jwt> validator = JwtValidators.createDefault();
+
+    public JwkSourceJwtDecoder(JWKSource<SecurityContext> jwkSource, Collection<SigningAlgorithm> algorithms) {
+        this.jwkSource = jwkSource;
+        this.algorithms = algorithms.stream()
+                .map(SigningAlgorithm::getJwsAlgorithm)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        SignedJWT signedJwt;
+        try {
+            signedJwt = SignedJWT.parse(token);
+        } catch (ParseException ex) {
+            throw new BadJwtException("Malformed token: " + ex.getMessage(), ex);
+        }
+
+        JWSHeader header = signedJwt.getHeader();
+        if (!algorithms.contains(header.getAlgorithm())) {
+            throw new BadJwtException("Unsupported signing algorithm " + header.getAlgorithm());
+        }
+        if (!verify(signedJwt, header)) {
+            throw new BadJwtException("Invalid signature");
+        }
+
+        Jwt jwt;
+        try {
+            Map<String, Object> headers = new LinkedHashMap<>(header.toJSONObject());
+            Map<String, Object> claims = claimSetConverter.convert(signedJwt.getJWTClaimsSet().getClaims());
+            jwt = Jwt.withTokenValue(token)
+                    .headers(values -> values.putAll(headers))
+                    .claims(values -> values.putAll(claims))
+                    .build();
+        } catch (ParseException | IllegalArgumentException ex) {
+            throw new BadJwtException("Malformed payload: " + ex.getMessage(), ex);
+        }
+
+        OAuth2TokenValidatorResult result = validator.validate(jwt);
+        if (result.hasErrors()) {
+            Collection<OAuth2Error> errors = result.getErrors();
+            String description = errors.iterator().next().getDescription();
+            throw new JwtValidationException("An error occurred while attempting to decode the Jwt: " + description,
+                    errors);
+        }
+        return jwt;
+    }
+
+    private boolean verify(SignedJWT signedJwt, JWSHeader header) {
+        JWKMatcher matcher = new JWKMatcher.Builder()
+                .keyType(KeyType.forAlgorithm(header.getAlgorithm()))
+                .keyID(header.getKeyID())
+                .build();
+        List<JWK> candidates;
+        try {
+            candidates = jwkSource.get(new JWKSelector(matcher), null);
+        } catch (Exception ex) {
+            throw new JwtException("Failed to look up verification keys: " + ex.getMessage(), ex);
+        }
+        for (JWK candidate : candidates) {
+            try {
+                JWSVerifier verifier = candidate.getKeyID() != null
+                        ? verifiers.get(candidate.getKeyID(), keyId -> createVerifier(candidate))
+                        : createVerifier(candidate);
+                if (signedJwt.verify(verifier)) {
+                    return true;
+                }
+            } catch (JOSEException ex) {
+                // Wrong key type for this algorithm; try the next candidate
+            }
+        }
+        return false;
+    }
+
+    private static JWSVerifier createVerifier(JWK jwk) {
+        try {
+            if (jwk instanceof RSAKey) {
+                return new RSASSAVerifier(((RSAKey) jwk).toPublicJWK());
+            }
+            if (jwk instanceof ECKey) {
+                return new ECDSAVerifier(((ECKey) jwk).toPublicJWK());
+            }
+            if (jwk instanceof OctetKeyPair) {
+                return new Ed25519Verifier(((OctetKeyPair) jwk).toPublicJWK());
+            }
+        } catch (JOSEException ex) {
+            throw new BadJwtException("Unusable verification key " + jwk.getKeyID(), ex);
+        }
+        throw new BadJwtException("Unsupported verification key type " + jwk.getKeyType());
+    }
+
+}
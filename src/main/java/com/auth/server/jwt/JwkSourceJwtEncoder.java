@@ -0,0 +1,324 @@
+package com.auth.server.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.factories.DefaultJWSSignerFactory;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwsHeader;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimsSet;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link JwtEncoder} that signs with whichever key in the {@link JWKSource} matches the
+ * header's algorithm (and key id, when set).
+ * <p>
+ * Unlike {@code NimbusJwtEncoder}, which only selects RSA and EC keys, this also signs
+ * with Ed25519 {@code OctetKeyPair} keys. It is also leaner per token: signers are cached
+ * per key id together with the base64url-encoded JOSE header, so a header that holds only
+ * {@code alg} and {@code kid} (what the token customizer produces) is never re-encoded, and
+ * the claims are written straight to JSON instead of going through Nimbus claim maps.
+ */
+public class JwkSourceJwtEncoder implements JwtEncoder {
+
+    private static final DefaultJWSSignerFactory SIGNER_FACTORY = new DefaultJWSSignerFactory();
+
+    private static final JwsHeader DEFAULT_HEADER = JwsHeader.with(SignatureAlgorithm.RS256).build();
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    /**
+     * Dot plus base64url signature of RS256 with a 4096-bit key, the largest we produce.
+     */
+    private static final int MAX_SIGNATURE_LENGTH = 684;
+
+    private final JWKSource<SecurityContext> jwkSource;
+
+    /**
+     * Keyed by key id; key ids are random per generated key, so an id never names two keys.
+     */
+    private final Cache<String, KeySigner> signers = Caffeine.newBuilder()
+            .maximumSize(64)
+            .build();
+
+    public JwkSourceJwtEncoder(JWKSource<SecurityContext> jwkSource) {
+        this.jwkSource = jwkSource;
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+        JwsHeader headers = parameters.getJwsHeader() != null ? parameters.getJwsHeader() : DEFAULT_HEADER;
+        JwtClaimsSet claims = parameters.getClaims();
+
+        JWSAlgorithm algorithm = JWSAlgorithm.parse(headers.getAlgorithm().getName());
+        KeySigner keySigner = keySigner(algorithm, headers.getKeyId());
+
+        Map<String, Object> headerValues = new LinkedHashMap<>(headers.getHeaders());
+        headerValues.put("kid", keySigner.jwk.getKeyID());
+
+        String encodedHeader = isAlgorithmAndKeyIdOnly(headers)
+                ? keySigner.encodedHeader
+                : encode(JwtJsonWriter.write(headerValues, keySigner.jwk.getKeyID(), algorithm));
+        String encodedClaims = encode(JwtJsonWriter.write(claims.getClaims()));
+
+        int capacity = encodedHeader.length() + 1 + encodedClaims.length() + MAX_SIGNATURE_LENGTH;
+        StringBuilder token = new StringBuilder(capacity).append(encodedHeader).append('.').append(encodedClaims);
+        try {
+            Base64URL signature = keySigner.signer.sign(keySigner.jwsHeader,
+                    token.toString().getBytes(StandardCharsets.US_ASCII));
+            token.append('.').append(signature);
+        } catch (JOSEException ex) {
+            throw new JwtEncodingException("Failed to sign the JWT: " + ex.getMessage(), ex);
+        }
+
+        return new Jwt(token.toString(), claims.getIssuedAt(), claims.getExpiresAt(),
+                headerValues, claims.getClaims());
+    }
+
+    private KeySigner keySigner(JWSAlgorithm algorithm, String keyId) {
+        if (keyId != null) {
+            KeySigner cached = signers.getIfPresent(keyId);
+            if (cached != null && cached.algorithm.equals(algorithm)) {
+                return cached;
+            }
+        }
+        JWK jwk = selectJwk(algorithm, keyId);
+        return signers.asMap().computeIfAbsent(jwk.getKeyID(), id -> new KeySigner(jwk, algorithm));
+    }
+
+    private JWK selectJwk(JWSAlgorithm algorithm, String keyId) {
+        JWKMatcher matcher = new JWKMatcher.Builder()
+                .keyType(KeyType.forAlgorithm(algorithm))
+                .keyID(keyId)
+                .keyUses(KeyUse.SIGNATURE, null)
+                .algorithms(algorithm, null)
+                .privateOnly(true)
+                .build();
+        List<JWK> jwks;
+        try {
+            jwks = jwkSource.get(new JWKSelector(matcher), null);
+        } catch (Exception ex) {
+            throw new JwtEncodingException("Failed to select a JWK signing key: " + ex.getMessage(), ex);
+        }
+        if (jwks.isEmpty()) {
+            throw new JwtEncodingException("No JWK signing key for algorithm '" + algorithm.getName() + "'");
+        }
+        if (jwks.size() > 1) {
+            throw new JwtEncodingException("Found multiple JWK signing keys for algorithm '"
+                    + algorithm.getName() + "', set a key id");
+        }
+        return jwks.get(0);
+    }
+
+    private static boolean isAlgorithmAndKeyIdOnly(JwsHeader headers) {
+        Map<String, Object> values = headers.getHeaders();
+        return values.size() == 1 || (values.size() == 2 && values.containsKey("kid"));
+    }
+
+    private static String encode(String json) {
+        return BASE64_URL.encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A signer for one key, with the matching Nimbus header and its pre-encoded form.
+     */
+    private static final class KeySigner {
+
+        private final JWK jwk;
+        private final JWSAlgorithm algorithm;
+        private final JWSSigner signer;
+        private final JWSHeader jwsHeader;
+        private final String encodedHeader;
+
+        private KeySigner(JWK jwk, JWSAlgorithm algorithm) {
+            this.jwk = jwk;
+            this.algorithm = algorithm;
+            try {
+                this.signer = SIGNER_FACTORY.createJWSSigner(jwk, algorithm);
+                this.jwsHeader = new JWSHeader.Builder(algorithm).keyID(jwk.getKeyID()).build();
+            } catch (JOSEException ex) {
+                throw new JwtEncodingException("Failed to create a signer for key " + jwk.getKeyID(), ex);
+            }
+            this.encodedHeader = encode(JwtJsonWriter.write(Map.of(), jwk.getKeyID(), algorithm));
+        }
+
+    }
+
+    /**
+     * Minimal JSON writer for JOSE headers and JWT claims; {@link Instant}s and {@link Date}s
+     * become NumericDate seconds as required by RFC 7519, and URLs and URIs become strings.
+     * <p>
+     * Any other value type, a non-finite number or a string with an unpaired surrogate has no
+     * faithful JSON form and fails the encoding with a {@link JwtEncodingException}.
+     */
+    static final class JwtJsonWriter {
+
+        private final StringBuilder out = new StringBuilder(256);
+
+        static String write(Map<String, Object> values) {
+            JwtJsonWriter writer = new JwtJsonWriter();
+            writer.writeObject(values);
+            return writer.out.toString();
+        }
+
+        /**
+         * Header JSON with {@code kid} and {@code alg} first, followed by any other header values.
+         */
+        static String write(Map<String, Object> values, String keyId, JWSAlgorithm algorithm) {
+            JwtJsonWriter writer = new JwtJsonWriter();
+            writer.out.append("{\"kid\":");
+            writer.writeString(keyId);
+            writer.out.append(",\"alg\":");
+            writer.writeString(algorithm.getName());
+            values.forEach((name, value) -> {
+                if (!"kid".equals(name) && !"alg".equals(name) && value != null) {
+                    writer.out.append(',');
+                    writer.writeString(name);
+                    writer.out.append(':');
+                    writer.writeValue(value);
+                }
+            });
+            writer.out.append('}');
+            return writer.out.toString();
+        }
+
+        private void writeObject(Map<?, ?> values) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : values.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeString(String.valueOf(entry.getKey()));
+                out.append(':');
+                writeValue(entry.getValue());
+            }
+            out.append('}');
+        }
+
+        private void writeValue(Object value) {
+            if (value == null) {
+                out.append("null");
+            } else if (value instanceof String) {
+                writeString((String) value);
+            } else if (value instanceof Instant) {
+                out.append(((Instant) value).getEpochSecond());
+            } else if (value instanceof Date) {
+                out.append(((Date) value).getTime() / 1000);
+            } else if (value instanceof Number) {
+                writeNumber((Number) value);
+            } else if (value instanceof Boolean) {
+                out.append(value);
+            } else if (value instanceof URL) {
+                writeString(((URL) value).toExternalForm());
+            } else if (value instanceof URI) {
+                writeString(value.toString());
+            } else if (value instanceof Map) {
+                writeObject((Map<?, ?>) value);
+            } else if (value instanceof Collection) {
+                writeArray((Collection<?>) value);
+            } else if (value instanceof Object[]) {
+                writeArray(List.of((Object[]) value));
+            } else {
+                throw new JwtEncodingException("Cannot encode a value of type " + value.getClass().getName()
+                        + " as JSON");
+            }
+        }
+
+        private void writeNumber(Number value) {
+            if ((value instanceof Double && !Double.isFinite(value.doubleValue()))
+                    || (value instanceof Float && !Float.isFinite(value.floatValue()))) {
+                throw new JwtEncodingException("Cannot encode the non-finite number " + value + " as JSON");
+            }
+            out.append(value);
+        }
+
+        private void writeArray(Collection<?> values) {
+            out.append('[');
+            boolean first = true;
+            for (Object value : values) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                writeValue(value);
+            }
+            out.append(']');
+        }
+
+        private void writeString(String value) {
+            out.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    case '\b':
+                        out.append("\\b");
+                        break;
+                    case '\f':
+                        out.append("\\f");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            out.append(String.format("\\u%04x", (int) c));
+                        } else if (Character.isSurrogate(c)) {
+                            if (!Character.isHighSurrogate(c) || i + 1 == value.length()
+                                    || !Character.isLowSurrogate(value.charAt(i + 1))) {
+                                throw new JwtEncodingException("Cannot encode a string with an unpaired surrogate"
+                                        + " at index " + i + " as JSON");
+                            }
+                            out.append(c).append(value.charAt(++i));
+                        } else {
+                            out.append(c);
+                        }
+                }
+            }
+            out.append('"');
+        }
+
+    }
+
+}
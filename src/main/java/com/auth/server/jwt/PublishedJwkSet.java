@@ -0,0 +1,66 @@
+package com.auth.server.jwt;
+
+import com.nimbusds.jose.jwk.JWKSet;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * The public JWK set as it goes over the wire: serialized once per key-ring change,
+ * together with a strong ETag derived from the bytes.
+ */
+public final class PublishedJwkSet {
+
+    private final byte[] body;
+    private final String etag;
+
+    PublishedJwkSet(JWKSet publicJwkSet) {
+        this.body = publicJwkSet.toString(true).getBytes(StandardCharsets.UTF_8);
+        this.etag = "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(sha256(body), 16)) + "\"";
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public int getContentLength() {
+        return body.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(body);
+    }
+
+    /**
+     * Whether an {@code If-None-Match} header value matches this version (weak comparison, RFC 7232).
+     */
+    public boolean isNotModified(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        if (ifNoneMatch.equals(etag)) {
+            return true;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || (tag.startsWith("W/") && tag.substring(2).equals(etag))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+}
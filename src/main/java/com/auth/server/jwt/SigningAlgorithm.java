@@ -0,0 +1,82 @@
+package com.auth.server.jwt;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+
+import java.util.Arrays;
+
+/**
+ * JWS algorithms the server can sign tokens with, together with the key type each one needs.
+ * <p>
+ * Implements {@link JwsAlgorithm} so that it can be put straight into a {@code JwsHeader};
+ * Spring's own {@code SignatureAlgorithm} has no EdDSA.
+ */
+public enum SigningAlgorithm implements JwsAlgorithm {
+
+    RS256(JWSAlgorithm.RS256),
+    ES256(JWSAlgorithm.ES256),
+    EDDSA(JWSAlgorithm.EdDSA);
+
+    /**
+     * {@code TokenSettings} entry that overrides the server's signing algorithm for one client,
+     * e.g. {@code TokenSettings.builder().setting(SigningAlgorithm.CLIENT_SETTING, "ES256")}.
+     */
+    public static final String CLIENT_SETTING = "settings.token.signing-algorithm";
+
+    private final JWSAlgorithm jwsAlgorithm;
+
+    SigningAlgorithm(JWSAlgorithm jwsAlgorithm) {
+        this.jwsAlgorithm = jwsAlgorithm;
+    }
+
+    @Override
+    public String getName() {
+        return jwsAlgorithm.getName();
+    }
+
+    public JWSAlgorithm getJwsAlgorithm() {
+        return jwsAlgorithm;
+    }
+
+    /**
+     * Generate a signing key for this algorithm. {@code rsaKeySize} is ignored for EC and EdDSA.
+     */
+    public JWK generateKey(String keyId, int rsaKeySize) {
+        try {
+            switch (this) {
+                case RS256:
+                    return new RSAKeyGenerator(rsaKeySize)
+                            .keyUse(KeyUse.SIGNATURE).algorithm(jwsAlgorithm).keyID(keyId).generate();
+                case ES256:
+                    return new ECKeyGenerator(Curve.P_256)
+                            .keyUse(KeyUse.SIGNATURE).algorithm(jwsAlgorithm).keyID(keyId).generate();
+                case EDDSA:
+                    return new OctetKeyPairGenerator(Curve.Ed25519)
+                            .keyUse(KeyUse.SIGNATURE).algorithm(jwsAlgorithm).keyID(keyId).generate();
+                default:
+                    throw new IllegalStateException("Unsupported signing algorithm " + this);
+            }
+        } catch (JOSEException ex) {
+            throw new IllegalStateException("Failed to generate " + getName() + " signing key", ex);
+        }
+    }
+
+    /**
+     * Resolve a JWS algorithm name such as {@code RS256}, {@code ES256} or {@code EdDSA}.
+     */
+    public static SigningAlgorithm from(String name) {
+        return Arrays.stream(values())
+                .filter(algorithm -> algorithm.getName().equalsIgnoreCase(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported signing algorithm: " + name
+                        + " (supported: RS256, ES256, EdDSA)"));
+    }
+
+}
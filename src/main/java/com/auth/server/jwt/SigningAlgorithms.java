@@ -0,0 +1,68 @@
+package com.auth.server.jwt;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which algorithms this server signs with: the server-wide default plus any additional
+ * algorithms that individual clients may opt into through {@link SigningAlgorithm#CLIENT_SETTING}.
+ * A signing key is kept for every enabled algorithm.
+ */
+@Component
+@Slf4j
+public class SigningAlgorithms {
+
+    private final SigningAlgorithm defaultAlgorithm;
+    private final Set<SigningAlgorithm> enabled;
+
+    public SigningAlgorithms(@Value("${auth-server.jwk.signing-algorithm:RS256}") String defaultAlgorithm,
+                             @Value("${auth-server.jwk.additional-algorithms:}") List<String> additionalAlgorithms) {
+        this.defaultAlgorithm = SigningAlgorithm.from(defaultAlgorithm);
+        EnumSet<SigningAlgorithm> algorithms = EnumSet.of(this.defaultAlgorithm);
+        additionalAlgorithms.stream()
+                .filter(name -> !name.isBlank())
+                .map(SigningAlgorithm::from)
+                .forEach(algorithms::add);
+        this.enabled = Collections.unmodifiableSet(algorithms);
+        log.info("JWT signing algorithm {} (enabled: {})", this.defaultAlgorithm.getName(), this.enabled);
+    }
+
+    public SigningAlgorithm getDefault() {
+        return defaultAlgorithm;
+    }
+
+    public Set<SigningAlgorithm> getEnabled() {
+        return enabled;
+    }
+
+    /**
+     * The algorithm for tokens issued to {@code registeredClient}: its own setting when that
+     * algorithm is enabled on this server, otherwise the server default.
+     */
+    public SigningAlgorithm resolve(RegisteredClient registeredClient) {
+        if (registeredClient == null) {
+            return defaultAlgorithm;
+        }
+        Object setting = registeredClient.getTokenSettings().getSetting(SigningAlgorithm.CLIENT_SETTING);
+        if (setting == null) {
+            return defaultAlgorithm;
+        }
+        SigningAlgorithm requested = setting instanceof SigningAlgorithm
+                ? (SigningAlgorithm) setting
+                : SigningAlgorithm.from(setting.toString());
+        if (!enabled.contains(requested)) {
+            log.warn("Client {} asks for {} which is not enabled, signing with {}",
+                    registeredClient.getClientId(), requested.getName(), defaultAlgorithm.getName());
+            return defaultAlgorithm;
+        }
+        return requested;
+    }
+
+}
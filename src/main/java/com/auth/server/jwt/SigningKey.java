@@ -0,0 +1,33 @@
+package com.auth.server.jwt;
+
+import com.nimbusds.jose.jwk.JWK;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * One key in the {@link SigningKeyRing}, with the point in time it starts signing and,
+ * once superseded, the point in time it is dropped from the published JWK set.
+ */
+@Value
+public class SigningKey {
+
+    JWK jwk;
+    SigningAlgorithm algorithm;
+    Instant createdAt;
+    Instant activatesAt;
+    Instant retiresAt;
+
+    public String getKeyId() {
+        return jwk.getKeyID();
+    }
+
+    SigningKey activatedAt(Instant activatesAt) {
+        return new SigningKey(jwk, algorithm, createdAt, activatesAt, null);
+    }
+
+    SigningKey retiredAt(Instant retiresAt) {
+        return new SigningKey(jwk, algorithm, createdAt, activatesAt, retiresAt);
+    }
+
+}
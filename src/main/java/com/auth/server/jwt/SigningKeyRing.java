@@ -0,0 +1,278 @@
+package com.auth.server.jwt;
+
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The server's signing keys, kept per {@link SigningAlgorithm} as an explicitly ordered ring:
+ * <ul>
+ *     <li><b>next</b> &ndash; generated ahead of time and already published, so resource servers
+ *     have it cached before the first token signed with it shows up;</li>
+ *     <li><b>current</b> &ndash; signs every new token until {@code rotation-interval} has passed;</li>
+ *     <li><b>previous</b> &ndash; superseded keys, still published for {@code retention} so that
+ *     tokens they signed keep verifying.</li>
+ * </ul>
+ * Keys are only ever generated at startup and by the scheduled {@link #maintain()}; a
+ * request never waits for key generation. Readers see an immutable snapshot.
+ */
+@Slf4j
+public class SigningKeyRing implements JWKSource<SecurityContext>, InitializingBean {
+
+    private final SigningAlgorithms signingAlgorithms;
+    private final int rsaKeySize;
+    private final Duration rotationInterval;
+    private final Duration retention;
+
+    private volatile Snapshot snapshot = new Snapshot(new EnumMap<>(SigningAlgorithm.class));
+
+    public SigningKeyRing(SigningAlgorithms signingAlgorithms, int rsaKeySize,
+                          Duration rotationInterval, Duration retention) {
+        this.signingAlgorithms = signingAlgorithms;
+        this.rsaKeySize = rsaKeySize;
+        this.rotationInterval = rotationInterval;
+        this.retention = retention;
+    }
+
+    @Override
+    public synchronized void afterPropertiesSet() {
+        Instant now = Instant.now();
+        Map<SigningAlgorithm, Slots> slots = new EnumMap<>(SigningAlgorithm.class);
+        for (SigningAlgorithm algorithm : signingAlgorithms.getEnabled()) {
+            SigningKey current = generate(algorithm, now);
+            SigningKey next = generate(algorithm, now.plus(rotationInterval));
+            slots.put(algorithm, new Slots(next, current, Collections.emptyList()));
+        }
+        snapshot = new Snapshot(slots);
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) {
+        return jwkSelector.select(snapshot.jwkSet);
+    }
+
+    /**
+     * Key id of the key that currently signs tokens for {@code algorithm}.
+     */
+    public String getCurrentKeyId(SigningAlgorithm algorithm) {
+        return getCurrentKey(algorithm).getKeyId();
+    }
+
+    public SigningKey getCurrentKey(SigningAlgorithm algorithm) {
+        Slots slots = snapshot.slots.get(algorithm);
+        if (slots == null) {
+            throw new IllegalArgumentException("Signing algorithm " + algorithm.getName() + " is not enabled");
+        }
+        return slots.current;
+    }
+
+    /**
+     * Every key in ring order (per algorithm: next, current, then previous from newest to oldest).
+     */
+    public List<SigningKey> getKeys() {
+        return snapshot.keys;
+    }
+
+    /**
+     * The published JWK set: public parts of all next, current and previous keys.
+     */
+    public JWKSet getPublicJwkSet() {
+        return snapshot.publicJwkSet;
+    }
+
+    /**
+     * The published JWK set, already serialized, for serving to resource servers.
+     */
+    public PublishedJwkSet getPublishedJwkSet() {
+        return snapshot.publishedJwkSet;
+    }
+
+    /**
+     * Promote the pre-generated next key of {@code algorithm} ahead of schedule, for a planned
+     * early rotation. The old current key stays published as previous for {@code retention}, so
+     * tokens it signed keep verifying; use {@link #rotateCompromised} when they must not. The
+     * replacement next key is generated by the following {@link #maintain()}.
+     *
+     * @return the newly current key
+     * @throws IllegalStateException if no next key has been generated yet
+     */
+    public synchronized SigningKey rotate(SigningAlgorithm algorithm) {
+        Slots rotated = rotate(algorithm, true);
+        log.info("Rotated {} signing key to {} on demand", algorithm.getName(), rotated.current.getKeyId());
+        return rotated.current;
+    }
+
+    /**
+     * Replace the current key of {@code algorithm} after a suspected compromise: promote the
+     * pre-generated next key and drop the old current key from the published set at once, so
+     * tokens it signed stop verifying here right away, and at resource servers once their cached
+     * copy of the JWK set expires.
+     *
+     * @return the newly current key
+     * @throws IllegalStateException if no next key has been generated yet
+     */
+    public synchronized SigningKey rotateCompromised(SigningAlgorithm algorithm) {
+        String compromised = getCurrentKeyId(algorithm);
+        Slots rotated = rotate(algorithm, false);
+        log.warn("Replaced compromised {} signing key {} with {}; it is no longer published",
+                algorithm.getName(), compromised, rotated.current.getKeyId());
+        return rotated.current;
+    }
+
+    private Slots rotate(SigningAlgorithm algorithm, boolean retainCurrent) {
+        Map<SigningAlgorithm, Slots> slots = new EnumMap<>(SigningAlgorithm.class);
+        slots.putAll(snapshot.slots);
+        Slots current = slots.get(algorithm);
+        if (current == null || current.next == null) {
+            throw new IllegalStateException("No pre-generated " + algorithm.getName() + " key to rotate to yet");
+        }
+        Instant now = Instant.now();
+        Slots rotated = retainCurrent ? current.promote(now, retention, null) : current.replace(now);
+        slots.put(algorithm, rotated);
+        snapshot = new Snapshot(slots);
+        return rotated;
+    }
+
+    /**
+     * Promote next keys whose time has come, pre-generate missing next keys and drop previous
+     * keys past their retention. Runs on the scheduler thread, never on a request.
+     */
+    @Scheduled(fixedDelayString = "${auth-server.jwk.rotation-check-interval:PT1M}",
+            initialDelayString = "${auth-server.jwk.rotation-check-interval:PT1M}")
+    public synchronized void maintain() {
+        Instant now = Instant.now();
+        Map<SigningAlgorithm, Slots> slots = new EnumMap<>(SigningAlgorithm.class);
+        boolean changed = false;
+
+        for (Map.Entry<SigningAlgorithm, Slots> entry : snapshot.slots.entrySet()) {
+            SigningAlgorithm algorithm = entry.getKey();
+            Slots ring = entry.getValue();
+
+            Slots pruned = ring.withoutRetired(now);
+            if (pruned != ring) {
+                log.info("Retired {} signing keys past their retention", algorithm.getName());
+                ring = pruned;
+                changed = true;
+            }
+            if (ring.next == null) {
+                SigningKey next = tryGenerate(algorithm, ring.current.getActivatesAt().plus(rotationInterval));
+                if (next != null) {
+                    ring = new Slots(next, ring.current, ring.previous);
+                    changed = true;
+                }
+            }
+            if (ring.next != null && !now.isBefore(ring.next.getActivatesAt())) {
+                ring = ring.promote(now, retention, tryGenerate(algorithm, now.plus(rotationInterval)));
+                log.info("Rotated {} signing key to {}", algorithm.getName(), ring.current.getKeyId());
+                changed = true;
+            }
+            slots.put(algorithm, ring);
+        }
+
+        if (changed) {
+            snapshot = new Snapshot(slots);
+        }
+    }
+
+    private SigningKey tryGenerate(SigningAlgorithm algorithm, Instant activatesAt) {
+        try {
+            return generate(algorithm, activatesAt);
+        } catch (RuntimeException ex) {
+            log.error("Failed to pre-generate the next {} signing key, will retry", algorithm.getName(), ex);
+            return null;
+        }
+    }
+
+    private SigningKey generate(SigningAlgorithm algorithm, Instant activatesAt) {
+        long start = System.nanoTime();
+        JWK jwk = algorithm.generateKey(UUID.randomUUID().toString(), rsaKeySize);
+        log.info("Generated {} signing key {} (activates at {}) in {} ms", algorithm.getName(), jwk.getKeyID(),
+                activatesAt, Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return new SigningKey(jwk, algorithm, Instant.now(), activatesAt, null);
+    }
+
+    private static final class Slots {
+
+        private final SigningKey next;
+        private final SigningKey current;
+        private final List<SigningKey> previous;
+
+        private Slots(SigningKey next, SigningKey current, List<SigningKey> previous) {
+            this.next = next;
+            this.current = current;
+            this.previous = List.copyOf(previous);
+        }
+
+        /**
+         * Make next the current key as of {@code now}; the old current key retires after {@code retention}.
+         */
+        private Slots promote(Instant now, Duration retention, SigningKey newNext) {
+            List<SigningKey> superseded = new ArrayList<>(previous.size() + 1);
+            superseded.add(current.retiredAt(now.plus(retention)));
+            superseded.addAll(previous);
+            return new Slots(newNext, next.activatedAt(now), superseded);
+        }
+
+        /**
+         * Make next the current key as of {@code now} and drop the old current key altogether.
+         */
+        private Slots replace(Instant now) {
+            return new Slots(null, next.activatedAt(now), previous);
+        }
+
+        private Slots withoutRetired(Instant now) {
+            List<SigningKey> kept = new ArrayList<>(previous.size());
+            for (SigningKey key : previous) {
+                if (now.isBefore(key.getRetiresAt())) {
+                    kept.add(key);
+                }
+            }
+            return kept.size() == previous.size() ? this : new Slots(next, current, kept);
+        }
+
+    }
+
+    private static final class Snapshot {
+
+        private final Map<SigningAlgorithm, Slots> slots;
+        private final List<SigningKey> keys;
+        private final JWKSet jwkSet;
+        private final JWKSet publicJwkSet;
+        private final PublishedJwkSet publishedJwkSet;
+
+        private Snapshot(Map<SigningAlgorithm, Slots> slots) {
+            List<SigningKey> ordered = new ArrayList<>();
+            for (Slots ring : slots.values()) {
+                if (ring.next != null) {
+                    ordered.add(ring.next);
+                }
+                ordered.add(ring.current);
+                ordered.addAll(ring.previous);
+            }
+            List<JWK> jwks = new ArrayList<>(ordered.size());
+            ordered.forEach(key -> jwks.add(key.getJwk()));
+
+            this.slots = Collections.unmodifiableMap(slots);
+            this.keys = List.copyOf(ordered);
+            this.jwkSet = new JWKSet(jwks);
+            this.publicJwkSet = jwkSet.toPublicJWKSet();
+            this.publishedJwkSet = new PublishedJwkSet(publicJwkSet);
+        }
+
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.auth.server.jwt;
+
+import com.auth.server.security.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.jose.jws.JwsAlgorithm;
+import org.springframework.security.oauth2.jwt.JoseHeaderNames;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.JwtEncoderParameters;
+import org.springframework.security.oauth2.jwt.JwtEncodingException;
+
+/**
+ * {@link JwtEncoder} that records how long the delegate takes to encode and sign each token,
+ * as {@code auth.jwt.signing} tagged with the algorithm that signed it, and adds it to the
+ * {@code sign} phase of the request's {@link ServerTiming}, if it is being timed.
+ * <p>
+ * The key id is deliberately not a tag: every rotation would add a timer series that outlives
+ * the key, so the tag values would grow without bound.
+ */
+public class TimedJwtEncoder implements JwtEncoder {
+
+    private final JwtEncoder delegate;
+    private final MeterRegistry meterRegistry;
+
+    public TimedJwtEncoder(JwtEncoder delegate, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Jwt encode(JwtEncoderParameters parameters) throws JwtEncodingException {
+        ServerTiming timing = ServerTiming.current();
+        long start = timing != null ? System.nanoTime() : 0L;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Jwt jwt;
+        try {
+            jwt = delegate.encode(parameters);
+        } catch (JwtEncodingException ex) {
+            sample.stop(timer("unknown", "failure"));
+            throw ex;
+        } finally {
+            if (timing != null) {
+                timing.record(ServerTiming.Phase.SIGN, start);
+            }
+        }
+        sample.stop(timer(algorithmName(jwt.getHeaders().get(JoseHeaderNames.ALG)), "success"));
+        return jwt;
+    }
+
+    /**
+     * The JWA name, e.g. {@code EdDSA}; the header holds a {@link JwsAlgorithm} whose
+     * {@code toString()} may be an enum constant name instead.
+     */
+    private static String algorithmName(Object algorithm) {
+        return algorithm instanceof JwsAlgorithm ? ((JwsAlgorithm) algorithm).getName() : String.valueOf(algorithm);
+    }
+
+    private Timer timer(String algorithm, String outcome) {
+        return Timer.builder("auth.jwt.signing")
+                .description("Time to encode and sign a JWT")
+                .tags("algorithm", algorithm, "outcome", outcome)
+                .register(meterRegistry);
+    }
+
+}
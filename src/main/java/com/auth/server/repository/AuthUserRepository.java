@@ -1,10 +1,22 @@
 package com.auth.server.repository;
 
 import com.auth.server.entity.AuthUser;
+import com.auth.server.entity.UserRole;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface AuthUserRepository extends JpaRepository<AuthUser, Long> {
@@ -17,4 +29,84 @@ public interface AuthUserRepository extends JpaRepository<AuthUser, Long> {
 
     boolean existsByEmail(String email);
 
+    @Query("select u.username from AuthUser u where u.username in :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    @Query("select u.email from AuthUser u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Transactional
+    @Modifying
+    @Query("update AuthUser u set u.lockedUntil = :lockedUntil where u.username = :username")
+    int lockUntil(@Param("username") String username, @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    /*
+     * Keyset-paginated listing: the page comes from the primary key index after the last id
+     * seen, and the page's roles from one further query, instead of findAll() and one role
+     * query per user. Null filters are ignored.
+     */
+
+    @Query("select u.id as id, u.username as username, u.email as email, u.enabled as enabled," +
+            " u.createdAt as createdAt from AuthUser u" +
+            " where u.id > :afterId" +
+            " and (:role is null or :role member of u.roles)" +
+            " and (:enabled is null or u.enabled = :enabled)" +
+            " and (:createdFrom is null or u.createdAt >= :createdFrom)" +
+            " and (:createdTo is null or u.createdAt < :createdTo)" +
+            " order by u.id")
+    List<UserRow> findUserRows(@Param("afterId") long afterId,
+                               @Param("role") UserRole role,
+                               @Param("enabled") Boolean enabled,
+                               @Param("createdFrom") LocalDateTime createdFrom,
+                               @Param("createdTo") LocalDateTime createdTo,
+                               Pageable pageable);
+
+    @Query("select u.id as userId, r as role from AuthUser u join u.roles r where u.id in :userIds")
+    List<UserRoleRow> findUserRoles(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * Every matching user, one row per role and ordered by id, read through a forward-only
+     * cursor. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select u.id as id, u.username as username, u.email as email, u.enabled as enabled," +
+            " u.createdAt as createdAt, r as role from AuthUser u left join u.roles r" +
+            " where (:role is null or :role member of u.roles)" +
+            " and (:enabled is null or u.enabled = :enabled)" +
+            " and (:createdFrom is null or u.createdAt >= :createdFrom)" +
+            " and (:createdTo is null or u.createdAt < :createdTo)" +
+            " order by u.id")
+    Stream<UserExportRow> streamUserRows(@Param("role") UserRole role,
+                                         @Param("enabled") Boolean enabled,
+                                         @Param("createdFrom") LocalDateTime createdFrom,
+                                         @Param("createdTo") LocalDateTime createdTo);
+
+    interface UserRow {
+
+        Long getId();
+
+        String getUsername();
+
+        String getEmail();
+
+        Boolean getEnabled();
+
+        LocalDateTime getCreatedAt();
+
+    }
+
+    interface UserRoleRow {
+
+        Long getUserId();
+
+        UserRole getRole();
+
+    }
+
+    interface UserExportRow extends UserRow {
+
+        UserRole getRole();
+
+    }
+
 }
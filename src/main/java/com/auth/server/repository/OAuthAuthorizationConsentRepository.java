@@ -0,0 +1,11 @@
+package com.auth.server.repository;
+
+import com.auth.server.entity.OAuthAuthorizationConsent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OAuthAuthorizationConsentRepository
+        extends JpaRepository<OAuthAuthorizationConsent, OAuthAuthorizationConsent.ConsentId> {
+
+}
@@ -0,0 +1,29 @@
+package com.auth.server.repository;
+
+import com.auth.server.entity.OAuthAuthorization;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OAuthAuthorizationRepository extends JpaRepository<OAuthAuthorization, String> {
+
+    Optional<OAuthAuthorization> findByStateHash(String stateHash);
+
+    Optional<OAuthAuthorization> findByAuthorizationCodeHash(String authorizationCodeHash);
+
+    Optional<OAuthAuthorization> findByAccessTokenHash(String accessTokenHash);
+
+    Optional<OAuthAuthorization> findByRefreshTokenHash(String refreshTokenHash);
+
+    Optional<OAuthAuthorization> findByOidcIdTokenHash(String oidcIdTokenHash);
+
+    @Modifying
+    @Query("delete from OAuthAuthorization a where a.id = :id")
+    int deleteAuthorizationById(@Param("id") String id);
+
+}
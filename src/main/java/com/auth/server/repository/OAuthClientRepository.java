@@ -2,8 +2,11 @@ package com.auth.server.repository;
 
 import com.auth.server.entity.OAuthClient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +16,44 @@ public interface OAuthClientRepository extends JpaRepository<OAuthClient, Long>
 
     boolean existsByClientId(String clientId);
 
+    /*
+     * Bulk projections used to build in-memory views of all clients with one query
+     * per table, instead of loading entities and their EAGER collections one by one.
+     */
+
+    @Query("select c.id as id, c.clientId as clientId, c.clientSecret as clientSecret," +
+            " c.createdAt as createdAt, c.tokenRateLimit as tokenRateLimit from OAuthClient c")
+    List<ClientRow> findAllClientRows();
+
+    @Query("select c.id as clientKey, u as value from OAuthClient c join c.redirectUris u")
+    List<ClientValueRow> findAllRedirectUris();
+
+    @Query("select c.id as clientKey, s as value from OAuthClient c join c.scopes s")
+    List<ClientValueRow> findAllScopes();
+
+    @Query("select c.id as clientKey, g as value from OAuthClient c join c.grantTypes g")
+    List<ClientValueRow> findAllGrantTypes();
+
+    interface ClientRow {
+
+        Long getId();
+
+        String getClientId();
+
+        String getClientSecret();
+
+        LocalDateTime getCreatedAt();
+
+        Integer getTokenRateLimit();
+
+    }
+
+    interface ClientValueRow {
+
+        Long getClientKey();
+
+        String getValue();
+
+    }
+
 }
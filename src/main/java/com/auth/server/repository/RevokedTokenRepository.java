@@ -0,0 +1,37 @@
+package com.auth.server.repository;
+
+import com.auth.server.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    List<RevokedToken> findByRevokedAtAfterAndExpiresAtAfter(Instant revokedAfter, Instant now);
+
+    /**
+     * Insert a revocation unless one for the same token is already stored. Unlike
+     * {@link #save}, a concurrent or repeated revocation never fails the enclosing transaction.
+     *
+     * @return {@code 1} if the row was inserted, {@code 0} if it already existed
+     */
+    @Modifying
+    @Query(value = "insert into revoked_tokens (token_id, expires_at, revoked_at) "
+            + "values (:tokenId, :expiresAt, :revokedAt) on conflict do nothing", nativeQuery = true)
+    int insertIfAbsent(@Param("tokenId") String tokenId,
+                       @Param("expiresAt") Instant expiresAt,
+                       @Param("revokedAt") Instant revokedAt);
+
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+
+}
@@ -0,0 +1,10 @@
+package com.auth.server.repository;
+
+import com.auth.server.entity.UserImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UserImportCheckpointRepository extends JpaRepository<UserImportCheckpoint, String> {
+
+}
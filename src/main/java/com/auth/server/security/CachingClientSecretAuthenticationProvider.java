@@ -0,0 +1,84 @@
+package com.auth.server.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+
+import java.time.Instant;
+
+/**
+ * Fronts the framework's {@code ClientSecretAuthenticationProvider} with a
+ * {@link VerifiedClientSecretCache}: a secret that was verified recently for the
+ * same client and the same stored hash is accepted without running the password encoder.
+ * <p>
+ * Authorization-code exchanges always go to the delegate, which also checks the PKCE
+ * {@code code_verifier} of confidential clients.
+ */
+public class CachingClientSecretAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final VerifiedClientSecretCache verifiedSecretCache;
+
+    public CachingClientSecretAuthenticationProvider(AuthenticationProvider delegate,
+                                                     RegisteredClientRepository registeredClientRepository,
+                                                     VerifiedClientSecretCache verifiedSecretCache) {
+        this.delegate = delegate;
+        this.registeredClientRepository = registeredClientRepository;
+        this.verifiedSecretCache = verifiedSecretCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        OAuth2ClientAuthenticationToken clientAuthentication = (OAuth2ClientAuthenticationToken) authentication;
+        ClientAuthenticationMethod method = clientAuthentication.getClientAuthenticationMethod();
+        if (!ClientAuthenticationMethod.CLIENT_SECRET_BASIC.equals(method) &&
+                !ClientAuthenticationMethod.CLIENT_SECRET_POST.equals(method)) {
+            return delegate.authenticate(authentication);
+        }
+        if (clientAuthentication.getCredentials() == null || isAuthorizationCodeGrant(clientAuthentication)) {
+            return delegate.authenticate(authentication);
+        }
+
+        String clientId = clientAuthentication.getPrincipal().toString();
+        String clientSecret = clientAuthentication.getCredentials().toString();
+        RegisteredClient registeredClient = registeredClientRepository.findByClientId(clientId);
+        if (registeredClient == null || registeredClient.getClientSecret() == null) {
+            return delegate.authenticate(authentication);
+        }
+
+        if (registeredClient.getClientAuthenticationMethods().contains(method)
+                && !isSecretExpired(registeredClient)
+                && verifiedSecretCache.isVerified(clientId, clientSecret, registeredClient.getClientSecret())) {
+            return new OAuth2ClientAuthenticationToken(registeredClient, method, clientAuthentication.getCredentials());
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            verifiedSecretCache.recordVerified(clientId, clientSecret, registeredClient.getClientSecret());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return OAuth2ClientAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    private static boolean isAuthorizationCodeGrant(OAuth2ClientAuthenticationToken clientAuthentication) {
+        Object grantType = clientAuthentication.getAdditionalParameters().get(OAuth2ParameterNames.GRANT_TYPE);
+        return AuthorizationGrantType.AUTHORIZATION_CODE.getValue().equals(grantType);
+    }
+
+    private static boolean isSecretExpired(RegisteredClient registeredClient) {
+        return registeredClient.getClientSecretExpiresAt() != null &&
+                Instant.now().isAfter(registeredClient.getClientSecretExpiresAt());
+    }
+
+}
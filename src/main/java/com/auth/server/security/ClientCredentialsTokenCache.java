@@ -0,0 +1,177 @@
+package com.auth.server.security;
+
+import com.auth.server.event.OAuthClientChangedEvent;
+import com.nimbusds.jwt.JWTParser;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.stereotype.Component;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The access token last issued through {@code client_credentials} per client and scope set,
+ * for clients that opt in with {@link #CLIENT_SETTING}. Service-to-service callers tend to
+ * ask for a fresh token on every call; handing back the one they already have saves a
+ * signature, an authorization write and a row to purge later.
+ * <p>
+ * A token is only reused while more than {@code min-remaining-lifetime} of it is left and
+ * its {@code jti} has not been revoked. Every caller of the same client and scope set then
+ * holds the same token, so revoking it affects all of them. Entries that can no longer be
+ * reused are dropped when they are next looked up, and every {@code purge-interval} for
+ * scope sets that are not asked for again.
+ */
+@Component
+@Slf4j
+public class ClientCredentialsTokenCache {
+
+    /**
+     * {@code TokenSettings} entry that opts a client into token reuse, e.g.
+     * {@code TokenSettings.builder().setting(ClientCredentialsTokenCache.CLIENT_SETTING, true)}.
+     */
+    public static final String CLIENT_SETTING = "settings.token.reuse-client-credentials-token";
+
+    private final Map<String, IssuedToken> tokens = new ConcurrentHashMap<>();
+    private final RevokedTokenIndex revokedTokenIndex;
+    private final Duration minRemainingLifetime;
+
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder issued = new LongAdder();
+
+    public ClientCredentialsTokenCache(RevokedTokenIndex revokedTokenIndex,
+                                       @Value("${auth-server.token-reuse.min-remaining-lifetime:PT5M}") Duration minRemainingLifetime) {
+        this.revokedTokenIndex = revokedTokenIndex;
+        this.minRemainingLifetime = minRemainingLifetime;
+    }
+
+    public static boolean isEnabled(RegisteredClient registeredClient) {
+        Object setting = registeredClient.getTokenSettings().getSetting(CLIENT_SETTING);
+        return setting instanceof Boolean ? (Boolean) setting : Boolean.parseBoolean(String.valueOf(setting));
+    }
+
+    /**
+     * The reusable token for this client and scope set, or {@code null} when a new one must be issued.
+     */
+    public OAuth2AccessToken get(RegisteredClient registeredClient, Set<String> scopes) {
+        String key = key(registeredClient, scopes);
+        IssuedToken token = tokens.get(key);
+        if (token == null) {
+            return null;
+        }
+        if (!registeredClient.getId().equals(token.registeredClientId) || !isReusable(token, Instant.now())) {
+            tokens.remove(key, token);
+            return null;
+        }
+        reused.increment();
+        return token.accessToken;
+    }
+
+    public void put(RegisteredClient registeredClient, Set<String> scopes, OAuth2AccessToken accessToken) {
+        issued.increment();
+        String tokenId = tokenId(accessToken);
+        if (tokenId == null || accessToken.getExpiresAt() == null) {
+            return;
+        }
+        IssuedToken token = new IssuedToken(registeredClient.getId(), tokenId, accessToken);
+        tokens.merge(key(registeredClient, scopes), token, (existing, replacement) ->
+                existing.accessToken.getExpiresAt().isAfter(replacement.accessToken.getExpiresAt())
+                        ? existing : replacement);
+    }
+
+    /**
+     * Stop handing out a client's tokens, e.g. after its scopes or grant types changed.
+     */
+    public void invalidate(String clientId) {
+        tokens.keySet().removeIf(key -> key.startsWith(clientId + ' '));
+        log.debug("Invalidated reusable client_credentials tokens for client {}", clientId);
+    }
+
+    @EventListener
+    public void onClientChanged(OAuthClientChangedEvent event) {
+        invalidate(event.getClientId());
+    }
+
+    /**
+     * Drop tokens too close to expiry, or revoked, to be handed out again.
+     */
+    @Scheduled(fixedDelayString = "${auth-server.token-reuse.purge-interval:PT5M}",
+            initialDelayString = "${auth-server.token-reuse.purge-interval:PT5M}")
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int before = tokens.size();
+        tokens.values().removeIf(token -> !isReusable(token, now));
+        log.debug("Purged {} reusable client_credentials tokens", before - tokens.size());
+    }
+
+    public long getReuseCount() {
+        return reused.sum();
+    }
+
+    public long getIssueCount() {
+        return issued.sum();
+    }
+
+    /**
+     * Every reuse is a JWT signature that did not run.
+     */
+    public long getSignaturesSaved() {
+        return reused.sum();
+    }
+
+    /**
+     * Every reuse is an authorization that was not written to the store.
+     */
+    public long getStoreWritesSaved() {
+        return reused.sum();
+    }
+
+    public int size() {
+        return tokens.size();
+    }
+
+    private boolean isReusable(IssuedToken token, Instant now) {
+        return now.plus(minRemainingLifetime).isBefore(token.accessToken.getExpiresAt())
+                && !revokedTokenIndex.isRevoked(token.tokenId);
+    }
+
+    /**
+     * The client id and the sorted scopes, so that {@code "read write"} and
+     * {@code "write read"} share a token.
+     */
+    private static String key(RegisteredClient registeredClient, Set<String> scopes) {
+        return registeredClient.getClientId() + ' ' + String.join(" ", new TreeSet<>(scopes));
+    }
+
+    private static String tokenId(OAuth2AccessToken accessToken) {
+        try {
+            return JWTParser.parse(accessToken.getTokenValue()).getJWTClaimsSet().getJWTID();
+        } catch (ParseException ex) {
+            return null;
+        }
+    }
+
+    private static final class IssuedToken {
+
+        private final String registeredClientId;
+        private final String tokenId;
+        private final OAuth2AccessToken accessToken;
+
+        private IssuedToken(String registeredClientId, String tokenId, OAuth2AccessToken accessToken) {
+            this.registeredClientId = registeredClientId;
+            this.tokenId = tokenId;
+            this.accessToken = accessToken;
+        }
+
+    }
+
+}
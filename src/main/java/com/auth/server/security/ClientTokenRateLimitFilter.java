@@ -0,0 +1,68 @@
+package com.auth.server.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Applies the client's {@link TokenRateLimiter} bucket to token endpoint requests once the
+ * client has authenticated, and before the grant is processed, so that a throttled client
+ * still costs no signature.
+ * <p>
+ * The client is taken from the authentication client authentication left in the security
+ * context, so only requests that proved they are the client are charged to it. Requests
+ * without one are passed on untouched; the token endpoint rejects them.
+ */
+@Slf4j
+public class ClientTokenRateLimitFilter extends OncePerRequestFilter {
+
+    private final TokenRateLimiter rateLimiter;
+    private final String tokenEndpointUri;
+
+    public ClientTokenRateLimitFilter(TokenRateLimiter rateLimiter, String tokenEndpointUri) {
+        this.rateLimiter = rateLimiter;
+        this.tokenEndpointUri = tokenEndpointUri;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return TokenRateLimitFilter.isNotTokenRequest(request, tokenEndpointUri);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        RegisteredClient registeredClient = authenticatedClient();
+        if (registeredClient == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        TokenRateLimiter.Decision decision = rateLimiter.acquireForClient(
+                registeredClient.getClientId(), rateLimiter.limitFor(registeredClient));
+        if (TokenRateLimitFilter.apply(decision, response)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        log.debug("Throttled token request from {} (client {})", request.getRemoteAddr(),
+                registeredClient.getClientId());
+    }
+
+    private static RegisteredClient authenticatedClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof OAuth2ClientAuthenticationToken && authentication.isAuthenticated()) {
+            return ((OAuth2ClientAuthenticationToken) authentication).getRegisteredClient();
+        }
+        return null;
+    }
+
+}
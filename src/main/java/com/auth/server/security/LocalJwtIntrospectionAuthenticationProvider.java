@@ -0,0 +1,203 @@
+package com.auth.server.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.nimbusds.jwt.JWTParser;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2AuthenticationException;
+import org.springframework.security.oauth2.core.OAuth2ErrorCodes;
+import org.springframework.security.oauth2.core.OAuth2TokenIntrospectionClaimNames;
+import org.springframework.security.oauth2.core.converter.ClaimConversionService;
+import org.springframework.security.oauth2.core.oidc.IdTokenClaimNames;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenIntrospection;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2TokenIntrospectionAuthenticationToken;
+
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers {@code /oauth2/introspect} for the server's own self-contained access tokens
+ * without touching the authorization store: the signature and timestamps are verified
+ * with the {@link JwtDecoder}, and the token's {@code jti} is checked against the
+ * {@link RevokedTokenIndex}, which learns about revoked tokens from the store. An access
+ * token replaced by a refresh is not revoked, so it stays active here until it expires.
+ * <p>
+ * Active results are cached by token value until the token expires; the revocation check
+ * runs on every request, cache hit or not. Anything that is not a JWT access token with a
+ * {@code jti} issued by this server (refresh tokens, ID tokens, older tokens, other issuers'
+ * tokens) is left to the framework's provider, which looks the token up in the store.
+ */
+public class LocalJwtIntrospectionAuthenticationProvider implements AuthenticationProvider {
+
+    private static final TypeDescriptor OBJECT_TYPE = TypeDescriptor.valueOf(Object.class);
+
+    private static final TypeDescriptor STRING_LIST_TYPE =
+            TypeDescriptor.collection(List.class, TypeDescriptor.valueOf(String.class));
+
+    private final JwtDecoder jwtDecoder;
+    private final RevokedTokenIndex revokedTokenIndex;
+    private final String issuer;
+    private final Cache<String, ActiveToken> activeTokens;
+
+    public LocalJwtIntrospectionAuthenticationProvider(JwtDecoder jwtDecoder,
+                                                       RevokedTokenIndex revokedTokenIndex,
+                                                       String issuer,
+                                                       long cacheMaxSize) {
+        this.jwtDecoder = jwtDecoder;
+        this.revokedTokenIndex = revokedTokenIndex;
+        this.issuer = issuer;
+        this.activeTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new UntilTokenExpiry())
+                .build();
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        OAuth2TokenIntrospectionAuthenticationToken introspectionAuthentication =
+                (OAuth2TokenIntrospectionAuthenticationToken) authentication;
+        Authentication clientPrincipal = (Authentication) introspectionAuthentication.getPrincipal();
+        if (!(clientPrincipal instanceof OAuth2ClientAuthenticationToken) || !clientPrincipal.isAuthenticated()) {
+            throw new OAuth2AuthenticationException(OAuth2ErrorCodes.INVALID_CLIENT);
+        }
+
+        String token = introspectionAuthentication.getToken();
+        if (OAuth2TokenType.REFRESH_TOKEN.getValue().equals(introspectionAuthentication.getTokenTypeHint())
+                || !isJwt(token)) {
+            return null;
+        }
+
+        ActiveToken activeToken = activeTokens.getIfPresent(token);
+        if (activeToken == null) {
+            Jwt jwt;
+            try {
+                jwt = jwtDecoder.decode(token);
+            } catch (JwtException ex) {
+                // Another issuer's token fails verification here, but is not ours to call inactive
+                return isIssuedHere(unverifiedIssuer(token)) ? inactive(token, clientPrincipal) : null;
+            }
+            if (jwt.getId() == null || jwt.getExpiresAt() == null || jwt.hasClaim(IdTokenClaimNames.AZP)
+                    || !isIssuedHere(jwt.getClaimAsString(JwtClaimNames.ISS))) {
+                return null;
+            }
+            activeToken = new ActiveToken(jwt.getId(), jwt.getExpiresAt(), withActiveTokenClaims(jwt));
+            activeTokens.put(token, activeToken);
+        }
+
+        if (!Instant.now().isBefore(activeToken.expiresAt) || revokedTokenIndex.isRevoked(activeToken.tokenId)) {
+            activeTokens.invalidate(token);
+            return inactive(token, clientPrincipal);
+        }
+        return new OAuth2TokenIntrospectionAuthenticationToken(token, clientPrincipal, activeToken.claims);
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return OAuth2TokenIntrospectionAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+    private boolean isIssuedHere(String tokenIssuer) {
+        return issuer == null || tokenIssuer == null || issuer.equals(tokenIssuer);
+    }
+
+    private static String unverifiedIssuer(String token) {
+        try {
+            return JWTParser.parse(token).getJWTClaimsSet().getIssuer();
+        } catch (ParseException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * The same response the framework's provider builds from a stored access token.
+     */
+    private static OAuth2TokenIntrospection withActiveTokenClaims(Jwt jwt) {
+        Map<String, Object> claims = new HashMap<>(jwt.getClaims());
+        ClaimConversionService conversionService = ClaimConversionService.getSharedInstance();
+        if (claims.get(JwtClaimNames.ISS) != null) {
+            claims.put(JwtClaimNames.ISS, conversionService.convert(claims.get(JwtClaimNames.ISS), URL.class));
+        }
+        if (claims.get(OAuth2TokenIntrospectionClaimNames.SCOPE) != null) {
+            claims.put(OAuth2TokenIntrospectionClaimNames.SCOPE, conversionService.convert(
+                    claims.get(OAuth2TokenIntrospectionClaimNames.SCOPE), OBJECT_TYPE, STRING_LIST_TYPE));
+        }
+
+        OAuth2TokenIntrospection.Builder builder = OAuth2TokenIntrospection.withClaims(claims)
+                .active(true)
+                .issuedAt(jwt.getIssuedAt())
+                .expiresAt(jwt.getExpiresAt())
+                .tokenType(OAuth2AccessToken.TokenType.BEARER.getValue());
+        if (jwt.getAudience() != null && !jwt.getAudience().isEmpty()) {
+            builder.clientId(jwt.getAudience().get(0));
+        }
+        return builder.build();
+    }
+
+    private static OAuth2TokenIntrospectionAuthenticationToken inactive(String token, Authentication clientPrincipal) {
+        return new OAuth2TokenIntrospectionAuthenticationToken(token, clientPrincipal,
+                OAuth2TokenIntrospection.builder().build());
+    }
+
+    /**
+     * Three base64url segments; opaque refresh tokens and authorization codes never contain a dot.
+     */
+    private static boolean isJwt(String token) {
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') {
+                dots++;
+            }
+        }
+        return dots == 2;
+    }
+
+    private static final class ActiveToken {
+
+        private final String tokenId;
+        private final Instant expiresAt;
+        private final OAuth2TokenIntrospection claims;
+
+        private ActiveToken(String tokenId, Instant expiresAt, OAuth2TokenIntrospection claims) {
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+            this.claims = claims;
+        }
+
+    }
+
+    private static final class UntilTokenExpiry implements Expiry<String, ActiveToken> {
+
+        @Override
+        public long expireAfterCreate(String token, ActiveToken activeToken, long currentTime) {
+            return Math.max(0, Duration.between(Instant.now(), activeToken.expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String token, ActiveToken activeToken, long currentTime, long currentDuration) {
+            return expireAfterCreate(token, activeToken, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String token, ActiveToken activeToken, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
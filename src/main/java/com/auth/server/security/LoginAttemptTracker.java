@@ -0,0 +1,226 @@
+package com.auth.server.security;
+
+import com.auth.server.event.AuthUserChangedEvent;
+import com.auth.server.repository.AuthUserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.event.AuthenticationFailureBadCredentialsEvent;
+import org.springframework.security.authentication.event.AuthenticationSuccessEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Failed form-login attempts per username and per remote address, so that
+ * {@link LoginThrottlingFilter} can turn away guesses before any password is hashed.
+ * <p>
+ * Each key keeps a sliding-window estimate of its recent failures: the count in the current
+ * window plus the previous window's count weighted by how much of it still overlaps, which
+ * is three numbers per key instead of a timestamp per attempt. Once a key reaches its
+ * {@code delay-after} threshold, each further failure blocks it for {@code base-delay},
+ * doubling per failure up to {@code max-delay}. A username reaching {@code lockout-threshold}
+ * is locked for {@code lockout-duration}, and the lock is written to {@code AuthUser} so that
+ * it survives a restart and is enforced on every node.
+ * <p>
+ * Keys idle for longer than any window, delay or lock they could still be under are evicted.
+ */
+@Component
+@Slf4j
+public class LoginAttemptTracker {
+
+    private final Cache<String, FailureWindow> usernames;
+    private final Cache<String, FailureWindow> addresses;
+    private final AuthUserRepository authUserRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long windowMillis;
+    private final int usernameDelayAfter;
+    private final int addressDelayAfter;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int lockoutThreshold;
+    private final Duration lockoutDuration;
+
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+
+    public LoginAttemptTracker(AuthUserRepository authUserRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${auth-server.login-throttling.window:PT15M}") Duration window,
+                               @Value("${auth-server.login-throttling.username-delay-after:3}") int usernameDelayAfter,
+                               @Value("${auth-server.login-throttling.address-delay-after:20}") int addressDelayAfter,
+                               @Value("${auth-server.login-throttling.base-delay:PT1S}") Duration baseDelay,
+                               @Value("${auth-server.login-throttling.max-delay:PT1M}") Duration maxDelay,
+                               @Value("${auth-server.login-throttling.lockout-threshold:10}") int lockoutThreshold,
+                               @Value("${auth-server.login-throttling.lockout-duration:PT15M}") Duration lockoutDuration,
+                               @Value("${auth-server.login-throttling.max-entries:100000}") long maxEntries) {
+        this.authUserRepository = authUserRepository;
+        this.eventPublisher = eventPublisher;
+        this.windowMillis = window.toMillis();
+        this.usernameDelayAfter = usernameDelayAfter;
+        this.addressDelayAfter = addressDelayAfter;
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.lockoutThreshold = lockoutThreshold;
+        this.lockoutDuration = lockoutDuration;
+        Duration expiry = max(window.multipliedBy(2), max(maxDelay, lockoutDuration));
+        this.usernames = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(expiry).build();
+        this.addresses = Caffeine.newBuilder().maximumSize(maxEntries).expireAfterAccess(expiry).build();
+    }
+
+    /**
+     * How long a login for {@code username} from {@code address} must wait, or
+     * {@link Duration#ZERO} if it may go ahead.
+     */
+    public Duration retryAfter(String username, String address) {
+        long now = System.currentTimeMillis();
+        long blockedUntil = Math.max(blockedUntil(usernames, username), blockedUntil(addresses, address));
+        if (blockedUntil <= now) {
+            return Duration.ZERO;
+        }
+        throttled.increment();
+        return Duration.ofMillis(blockedUntil - now);
+    }
+
+    @EventListener
+    public void onFailure(AuthenticationFailureBadCredentialsEvent event) {
+        Authentication authentication = event.getAuthentication();
+        if (authentication instanceof UsernamePasswordAuthenticationToken) {
+            recordFailure(authentication.getName(), remoteAddress(authentication));
+        }
+    }
+
+    @EventListener
+    public void onSuccess(AuthenticationSuccessEvent event) {
+        if (event.getAuthentication() instanceof UsernamePasswordAuthenticationToken) {
+            usernames.invalidate(event.getAuthentication().getName());
+        }
+    }
+
+    private void recordFailure(String username, String address) {
+        failures.increment();
+        long now = System.currentTimeMillis();
+        if (address != null) {
+            addresses.get(address, key -> new FailureWindow()).recordFailure(now, addressDelayAfter);
+        }
+        if (username == null) {
+            return;
+        }
+        FailureWindow window = usernames.get(username, key -> new FailureWindow());
+        int recent = window.recordFailure(now, usernameDelayAfter);
+        if (recent >= lockoutThreshold && window.lock(now, now + lockoutDuration.toMillis())) {
+            lock(username, now);
+        }
+    }
+
+    private void lock(String username, long now) {
+        lockouts.increment();
+        LocalDateTime lockedUntil = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(now).plus(lockoutDuration), ZoneId.systemDefault());
+        if (authUserRepository.lockUntil(username, lockedUntil) > 0) {
+            eventPublisher.publishEvent(new AuthUserChangedEvent(username));
+        }
+        log.warn("Locked {} until {} after repeated failed logins", username, lockedUntil);
+    }
+
+    private static long blockedUntil(Cache<String, FailureWindow> windows, String key) {
+        FailureWindow window = key != null ? windows.getIfPresent(key) : null;
+        return window != null ? window.blockedUntil() : 0;
+    }
+
+    private static String remoteAddress(Authentication authentication) {
+        return authentication.getDetails() instanceof WebAuthenticationDetails
+                ? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress() : null;
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public long getThrottledCount() {
+        return throttled.sum();
+    }
+
+    public long getLockoutCount() {
+        return lockouts.sum();
+    }
+
+    public long getTrackedCount() {
+        return usernames.estimatedSize() + addresses.estimatedSize();
+    }
+
+    /**
+     * Sliding-window failure count and block state of one username or address.
+     */
+    private final class FailureWindow {
+
+        private long windowIndex;
+        private int previous;
+        private int current;
+        private long blockedUntil;
+        private long lockedUntil;
+
+        /**
+         * Count a failure and block the key if it is over {@code delayAfter}.
+         *
+         * @return the estimated failures within the last window, this one included
+         */
+        synchronized int recordFailure(long now, int delayAfter) {
+            roll(now);
+            current++;
+            double overlap = 1.0 - (double) (now % windowMillis) / windowMillis;
+            int recent = (int) Math.ceil(previous * overlap) + current;
+            if (recent >= delayAfter) {
+                int doublings = Math.min(recent - delayAfter, 30);
+                long delay = Math.min(maxDelayMillis, baseDelayMillis << doublings);
+                blockedUntil = Math.max(blockedUntil, now + delay);
+            }
+            return recent;
+        }
+
+        /**
+         * Block the key until {@code until}, unless it is already locked.
+         *
+         * @return whether this call started a new lock
+         */
+        synchronized boolean lock(long now, long until) {
+            if (lockedUntil > now) {
+                return false;
+            }
+            lockedUntil = until;
+            blockedUntil = Math.max(blockedUntil, until);
+            return true;
+        }
+
+        synchronized long blockedUntil() {
+            return blockedUntil;
+        }
+
+        private void roll(long now) {
+            long index = now / windowMillis;
+            if (index == windowIndex) {
+                return;
+            }
+            previous = index == windowIndex + 1 ? current : 0;
+            current = 0;
+            windowIndex = index;
+        }
+
+    }
+
+}
@@ -0,0 +1,55 @@
+package com.auth.server.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Turns away form logins whose username or remote address {@link LoginAttemptTracker} has
+ * blocked, with {@code 429 Too Many Requests} and {@code Retry-After}, before the request
+ * reaches the authentication filter and its password hashing.
+ */
+@Slf4j
+public class LoginThrottlingFilter extends OncePerRequestFilter {
+
+    private final LoginAttemptTracker loginAttemptTracker;
+    private final String loginProcessingUrl;
+
+    public LoginThrottlingFilter(LoginAttemptTracker loginAttemptTracker, String loginProcessingUrl) {
+        this.loginAttemptTracker = loginAttemptTracker;
+        this.loginProcessingUrl = loginProcessingUrl;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !loginProcessingUrl.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Duration retryAfter = loginAttemptTracker.retryAfter(request.getParameter("username"), request.getRemoteAddr());
+        if (retryAfter.isZero()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        log.debug("Throttled login from {}", request.getRemoteAddr());
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf((retryAfter.toMillis() + 999) / 1000));
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.getWriter().write("Too many failed login attempts, retry later");
+    }
+
+}
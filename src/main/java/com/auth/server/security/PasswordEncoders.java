@@ -0,0 +1,64 @@
+package com.auth.server.security;
+
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The password hash formats this server stores and verifies.
+ * <p>
+ * New hashes are BCrypt with a {@code {bcrypt}} prefix. Argon2 hashes ({@code {argon2}})
+ * are accepted from imported identity stores. Hashes written before the prefix was
+ * introduced, both user passwords and client secrets, are plain BCrypt and are still
+ * verified as such.
+ */
+public final class PasswordEncoders {
+
+    public static final String BCRYPT = "bcrypt";
+    public static final String ARGON2 = "argon2";
+
+    private static final Pattern PREFIXED = Pattern.compile("^\\{([^}]+)}(.+)$");
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]?\\$\\d\\d\\$[./0-9A-Za-z]{53}$");
+    private static final Pattern ARGON2_HASH = Pattern.compile("^\\$argon2(id|i|d)\\$.+");
+
+    private PasswordEncoders() {
+    }
+
+    public static DelegatingPasswordEncoder create() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(BCRYPT, Map.of(
+                BCRYPT, bcrypt,
+                ARGON2, new Argon2PasswordEncoder()));
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+
+    /**
+     * {@code hash} in the stored, prefixed form, or {@code null} if it is not a BCrypt or
+     * Argon2 hash. Unprefixed hashes are recognised by their modular crypt format.
+     */
+    public static String toStoredForm(String hash) {
+        Matcher prefixed = PREFIXED.matcher(hash);
+        if (prefixed.matches()) {
+            String id = prefixed.group(1);
+            String value = prefixed.group(2);
+            if (BCRYPT.equals(id) && BCRYPT_HASH.matcher(value).matches()
+                    || ARGON2.equals(id) && ARGON2_HASH.matcher(value).matches()) {
+                return hash;
+            }
+            return null;
+        }
+        if (BCRYPT_HASH.matcher(hash).matches()) {
+            return "{" + BCRYPT + "}" + hash;
+        }
+        if (ARGON2_HASH.matcher(hash).matches()) {
+            return "{" + ARGON2 + "}" + hash;
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.auth.server.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small, fixed-size worker pool that runs every password hash and verification.
+ * <p>
+ * BCrypt is deliberately slow; running it on Tomcat request threads lets a login burst
+ * occupy every worker and starve cheap endpoints such as the JWKS or introspection.
+ * Here at most {@code threads} hashes run at once and at most {@code queue-capacity}
+ * wait; anything beyond that, or anything still queued after {@code max-wait}, is rejected
+ * with {@link PasswordHashingRejectedException} and never runs.
+ * <p>
+ * {@code max-wait} bounds the time in the queue only. A hash that has started cannot be
+ * interrupted, so the caller waits for it to finish, which takes at most one BCrypt's time.
+ * <p>
+ * The time each task spends queued before a hashing thread picks it up is recorded as
+ * {@code auth.password.hashing.wait}. Tasks dropped after {@code max-wait} never get a
+ * thread and are counted as rejected instead.
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor executor;
+    private final Duration maxWait;
+
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Timer waitTimer;
+
+    public PasswordHashingExecutor(@Value("${auth-server.password-hashing.threads:0}") int threads,
+                                   @Value("${auth-server.password-hashing.queue-capacity:64}") int queueCapacity,
+                                   @Value("${auth-server.password-hashing.max-wait:PT5S}") Duration maxWait,
+                                   MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.maxWait = maxWait;
+        this.waitTimer = Timer.builder("auth.password.hashing.wait")
+                .description("Time a hashing task spent queued before a thread picked it up")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        log.info("Password hashing pool started with {} threads and a queue of {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Run {@code task} on the hashing pool and wait for its result.
+     *
+     * @throws PasswordHashingRejectedException if the queue is full or the task is still queued after max-wait
+     */
+    public <T> T execute(Callable<T> task) {
+        long submittedAt = System.nanoTime();
+        AtomicBoolean claimed = new AtomicBoolean();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    throw new CancellationException("Abandoned while queued");
+                }
+                waitTimer.record(System.nanoTime() - submittedAt, TimeUnit.NANOSECONDS);
+                return task.call();
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Password hashing queue is full");
+        }
+
+        try {
+            T result = awaitResult(future, claimed);
+            completed.increment();
+            return result;
+        } catch (InterruptedException ex) {
+            abandon(future, claimed);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    /**
+     * Wait up to max-wait for the task to start; once a hashing thread has claimed it, wait
+     * for it to finish.
+     */
+    private <T> T awaitResult(Future<T> future, AtomicBoolean claimed) throws InterruptedException, ExecutionException {
+        try {
+            return future.get(maxWait.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            if (abandon(future, claimed)) {
+                rejected.increment();
+                throw new PasswordHashingRejectedException("Password hashing did not start within " + maxWait);
+            }
+            return future.get();
+        }
+    }
+
+    /**
+     * Take a task that has not started yet out of the queue.
+     *
+     * @return {@code false} if a hashing thread already started it
+     */
+    private boolean abandon(Future<?> future, AtomicBoolean claimed) {
+        if (!claimed.compareAndSet(false, true)) {
+            return false;
+        }
+        future.cancel(false);
+        executor.remove((Runnable) future);
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private static final class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.auth.server.security;
+
+/**
+ * Thrown when the {@link PasswordHashingExecutor} is saturated. Deliberately not an
+ * {@code AuthenticationException}: an overloaded server must not look like bad credentials,
+ * so it escapes the security filters and is turned into a 503 by
+ * {@link PasswordHashingRejectionFilter}.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+}
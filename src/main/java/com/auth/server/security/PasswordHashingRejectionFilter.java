@@ -0,0 +1,59 @@
+package com.auth.server.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Outermost filter that turns a {@link PasswordHashingRejectedException}, thrown anywhere
+ * below it (login, client authentication, registration), into
+ * {@code 503 Service Unavailable} with a {@code Retry-After} header.
+ */
+@Slf4j
+public class PasswordHashingRejectionFilter extends OncePerRequestFilter {
+
+    private final Duration retryAfter;
+
+    public PasswordHashingRejectionFilter(Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | RuntimeException ex) {
+            PasswordHashingRejectedException rejection = findRejection(ex);
+            if (rejection == null || response.isCommitted()) {
+                throw ex;
+            }
+            log.warn("Rejected {} {}: {}", request.getMethod(), request.getRequestURI(), rejection.getMessage());
+            response.resetBuffer();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, retryAfter.getSeconds())));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getWriter().write("{\"error\":\"temporarily_unavailable\","
+                    + "\"error_description\":\"The server is busy, retry later\"}");
+        }
+    }
+
+    private static PasswordHashingRejectedException findRejection(Throwable ex) {
+        for (Throwable current = ex; current != null; current = current.getCause()) {
+            if (current instanceof PasswordHashingRejectedException) {
+                return (PasswordHashingRejectedException) current;
+            }
+        }
+        return null;
+    }
+
+}
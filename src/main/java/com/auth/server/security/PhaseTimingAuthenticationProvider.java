@@ -0,0 +1,40 @@
+package com.auth.server.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * {@link AuthenticationProvider} that adds the time its delegate spends to one
+ * {@link ServerTiming.Phase} of the request being timed, if any.
+ */
+public class PhaseTimingAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final ServerTiming.Phase phase;
+
+    public PhaseTimingAuthenticationProvider(AuthenticationProvider delegate, ServerTiming.Phase phase) {
+        this.delegate = delegate;
+        this.phase = phase;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        ServerTiming timing = ServerTiming.current();
+        if (timing == null) {
+            return delegate.authenticate(authentication);
+        }
+        long start = System.nanoTime();
+        try {
+            return delegate.authenticate(authentication);
+        } finally {
+            timing.record(phase, start);
+        }
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+}
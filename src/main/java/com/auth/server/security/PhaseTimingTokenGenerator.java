@@ -0,0 +1,33 @@
+package com.auth.server.security;
+
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenContext;
+import org.springframework.security.oauth2.server.authorization.token.OAuth2TokenGenerator;
+
+/**
+ * {@link OAuth2TokenGenerator} that adds the time its delegate spends to the
+ * {@link ServerTiming.Phase#TOKEN token} phase of the request being timed, if any.
+ */
+public class PhaseTimingTokenGenerator implements OAuth2TokenGenerator<OAuth2Token> {
+
+    private final OAuth2TokenGenerator<? extends OAuth2Token> delegate;
+
+    public PhaseTimingTokenGenerator(OAuth2TokenGenerator<? extends OAuth2Token> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public OAuth2Token generate(OAuth2TokenContext context) {
+        ServerTiming timing = ServerTiming.current();
+        if (timing == null) {
+            return delegate.generate(context);
+        }
+        long start = System.nanoTime();
+        try {
+            return delegate.generate(context);
+        } finally {
+            timing.record(ServerTiming.Phase.TOKEN, start);
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.auth.server.security;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+
+import javax.servlet.http.HttpServletRequest;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * The client id a token or authorization request names, taken the way the client will
+ * authenticate: from the {@code client_secret_basic} header or the {@code client_id}
+ * parameter. Nothing is verified; filters that run ahead of client authentication use it
+ * to pick per-client behaviour.
+ */
+final class RequestedClientId {
+
+    private static final String BASIC_PREFIX = "Basic ";
+
+    private RequestedClientId() {
+    }
+
+    static String resolve(HttpServletRequest request) {
+        String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BASIC_PREFIX, 0, BASIC_PREFIX.length())) {
+            try {
+                String credentials = new String(Base64.getDecoder().decode(
+                        authorization.substring(BASIC_PREFIX.length()).trim()), StandardCharsets.UTF_8);
+                int colon = credentials.indexOf(':');
+                if (colon > 0) {
+                    return URLDecoder.decode(credentials.substring(0, colon), StandardCharsets.UTF_8);
+                }
+            } catch (IllegalArgumentException ex) {
+                return null;
+            }
+            return null;
+        }
+        return request.getParameter(OAuth2ParameterNames.CLIENT_ID);
+    }
+
+}
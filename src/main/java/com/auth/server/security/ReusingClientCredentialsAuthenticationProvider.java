@@ -0,0 +1,84 @@
+package com.auth.server.security;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2AccessTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientCredentialsAuthenticationToken;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Fronts the framework's {@code OAuth2ClientCredentialsAuthenticationProvider} with a
+ * {@link ClientCredentialsTokenCache}: for clients that opted in, a still-valid token
+ * issued earlier for the same scopes is returned without generating or storing a new one.
+ * Its {@code expires_in} is the lifetime it has left, not the one it was issued with.
+ * <p>
+ * Requests the delegate would reject (grant type not allowed, unknown scope) never reach
+ * the cache, because the same checks run here before a cached token is returned.
+ */
+public class ReusingClientCredentialsAuthenticationProvider implements AuthenticationProvider {
+
+    private final AuthenticationProvider delegate;
+    private final ClientCredentialsTokenCache tokenCache;
+
+    public ReusingClientCredentialsAuthenticationProvider(AuthenticationProvider delegate,
+                                                          ClientCredentialsTokenCache tokenCache) {
+        this.delegate = delegate;
+        this.tokenCache = tokenCache;
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        OAuth2ClientCredentialsAuthenticationToken clientCredentialsAuthentication =
+                (OAuth2ClientCredentialsAuthenticationToken) authentication;
+        Object principal = clientCredentialsAuthentication.getPrincipal();
+        if (!(principal instanceof OAuth2ClientAuthenticationToken)
+                || !((OAuth2ClientAuthenticationToken) principal).isAuthenticated()) {
+            return delegate.authenticate(authentication);
+        }
+        OAuth2ClientAuthenticationToken clientPrincipal = (OAuth2ClientAuthenticationToken) principal;
+        RegisteredClient registeredClient = clientPrincipal.getRegisteredClient();
+        if (registeredClient == null || !ClientCredentialsTokenCache.isEnabled(registeredClient)) {
+            return delegate.authenticate(authentication);
+        }
+
+        Set<String> scopes = clientCredentialsAuthentication.getScopes();
+        if (registeredClient.getAuthorizationGrantTypes().contains(AuthorizationGrantType.CLIENT_CREDENTIALS)
+                && registeredClient.getScopes().containsAll(scopes)) {
+            OAuth2AccessToken accessToken = tokenCache.get(registeredClient, scopes);
+            if (accessToken != null) {
+                return new OAuth2AccessTokenAuthenticationToken(registeredClient, clientPrincipal,
+                        reissuedNow(accessToken));
+            }
+        }
+
+        Authentication result = delegate.authenticate(authentication);
+        if (result instanceof OAuth2AccessTokenAuthenticationToken) {
+            tokenCache.put(registeredClient, scopes,
+                    ((OAuth2AccessTokenAuthenticationToken) result).getAccessToken());
+        }
+        return result;
+    }
+
+    /**
+     * The same token with {@code issuedAt} moved to now. The token response derives
+     * {@code expires_in} from {@code expiresAt - issuedAt}, so a reused token would otherwise
+     * claim its full lifetime although part of it has already passed.
+     */
+    private static OAuth2AccessToken reissuedNow(OAuth2AccessToken accessToken) {
+        return new OAuth2AccessToken(accessToken.getTokenType(), accessToken.getTokenValue(),
+                Instant.now(), accessToken.getExpiresAt(), accessToken.getScopes());
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return OAuth2ClientCredentialsAuthenticationToken.class.isAssignableFrom(authentication);
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.auth.server.security;
+
+import com.auth.server.entity.RevokedToken;
+import com.auth.server.event.AccessTokenRevokedEvent;
+import com.auth.server.repository.RevokedTokenRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Ids ({@code jti}) of access tokens that were revoked before they expired, so that
+ * revocation can be checked without loading the authorization. An entry is only needed
+ * until the token's own expiry; after that the token fails verification anyway.
+ * <p>
+ * Lookups go to an in-memory {@link RevokedTokenSet}, which only learns about a revocation
+ * once its transaction has committed. Every revocation is written to the
+ * {@code revoked_tokens} table, from which the set is rebuilt on startup and to which
+ * it is re-synchronized every {@code sync-interval}, so revocations made on one node reach
+ * the others. Rows committed late, by a transaction that started before the last sync, are
+ * caught by re-reading {@code sync-overlap} worth of revocations each time.
+ */
+@Component
+@Slf4j
+public class RevokedTokenIndex implements InitializingBean {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final RevokedTokenSet revokedTokens;
+    private final Duration syncOverlap;
+
+    private volatile Instant lastSync = Instant.EPOCH;
+
+    public RevokedTokenIndex(RevokedTokenRepository revokedTokenRepository,
+                             @Value("${auth-server.revocation.expected-revocations:100000}") int expectedRevocations,
+                             @Value("${auth-server.revocation.false-positive-rate:0.01}") double falsePositiveRate,
+                             @Value("${auth-server.revocation.sync-overlap:PT30S}") Duration syncOverlap) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.revokedTokens = new RevokedTokenSet(expectedRevocations, falsePositiveRate);
+        this.syncOverlap = syncOverlap;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Instant now = Instant.now();
+        List<RevokedToken> stored = revokedTokenRepository.findByExpiresAtAfter(now);
+        stored.forEach(this::index);
+        lastSync = now;
+        log.info("Rebuilt revoked token index with {} entries ({} bytes)",
+                revokedTokens.size(), revokedTokens.getMemoryFootprintBytes());
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revokedTokens.contains(tokenId, Instant.now().getEpochSecond());
+    }
+
+    /**
+     * Persist a revocation in the caller's transaction. Tokens that have already expired are
+     * ignored. The row is written even if this node already knows the id, so that it always
+     * commits or rolls back together with the caller's change; it is inserted only if absent,
+     * so a repeated or concurrent revocation of the same token never fails that transaction.
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        Instant now = Instant.now();
+        if (!now.isBefore(expiresAt)) {
+            return;
+        }
+        revokedTokenRepository.insertIfAbsent(tokenId, expiresAt, now);
+    }
+
+    /**
+     * Published from inside the authorization store's transaction, so the revocation row
+     * commits or rolls back together with the authorization.
+     */
+    @EventListener
+    public void onAccessTokenRevoked(AccessTokenRevokedEvent event) {
+        revoke(event.getTokenId(), event.getExpiresAt());
+    }
+
+    /**
+     * Index a revocation once it has committed; a rolled-back revocation never reaches the
+     * in-memory set. Without a transaction, the revocation is indexed right away.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAccessTokenRevocationCommitted(AccessTokenRevokedEvent event) {
+        if (Instant.now().isBefore(event.getExpiresAt())) {
+            revokedTokens.add(event.getTokenId(), event.getExpiresAt().getEpochSecond());
+            log.debug("Indexed revoked access token {}", event.getTokenId());
+        }
+    }
+
+    /**
+     * Pick up revocations recorded by other nodes.
+     */
+    @Scheduled(fixedDelayString = "${auth-server.revocation.sync-interval:PT10S}",
+            initialDelayString = "${auth-server.revocation.sync-interval:PT10S}")
+    public void sync() {
+        Instant now = Instant.now();
+        List<RevokedToken> recent = revokedTokenRepository
+                .findByRevokedAtAfterAndExpiresAtAfter(lastSync.minus(syncOverlap), now);
+        recent.forEach(this::index);
+        lastSync = now;
+    }
+
+    @Scheduled(fixedDelayString = "${auth-server.revocation.purge-interval:PT5M}",
+            initialDelayString = "${auth-server.revocation.purge-interval:PT5M}")
+    @Transactional
+    public void purgeExpired() {
+        Instant now = Instant.now();
+        int purged = revokedTokens.purge(now.getEpochSecond());
+        int deleted = revokedTokenRepository.deleteExpired(now);
+        log.debug("Purged {} expired revocations from the index and {} from the store", purged, deleted);
+    }
+
+    public int size() {
+        return revokedTokens.size();
+    }
+
+    public long getMemoryFootprintBytes() {
+        return revokedTokens.getMemoryFootprintBytes();
+    }
+
+    public double getObservedFalsePositiveRate() {
+        return revokedTokens.getObservedFalsePositiveRate();
+    }
+
+    public double getExpectedFalsePositiveRate() {
+        return revokedTokens.getExpectedFalsePositiveRate();
+    }
+
+    public long getLookups() {
+        return revokedTokens.getLookups();
+    }
+
+    /**
+     * Lookups answered by the Bloom filter alone.
+     */
+    public long getBloomFilterRejections() {
+        return revokedTokens.getBloomRejections();
+    }
+
+    private void index(RevokedToken revokedToken) {
+        revokedTokens.add(revokedToken.getTokenId(), revokedToken.getExpiresAt().getEpochSecond());
+    }
+
+}
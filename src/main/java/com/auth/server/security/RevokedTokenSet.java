@@ -0,0 +1,337 @@
+package com.auth.server.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Memory-compact set of revoked token ids, each with the epoch second at which it expires.
+ * <p>
+ * A token id is reduced to 128 bits (the UUID itself for the ids this server issues, a
+ * truncated SHA-256 for anything else) and stored in three parallel {@code long} arrays
+ * with open addressing: 24 bytes per slot instead of a string, a boxed instant and a map
+ * node per entry. A Bloom filter sits in front, so a token that was never revoked, which
+ * is almost every token, is answered from a few bit reads without taking the read lock.
+ * <p>
+ * Neither structure supports removal; {@link #purge(long)} rebuilds both from the entries
+ * that have not expired yet.
+ */
+class RevokedTokenSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final int expectedEntries;
+    private final double falsePositiveRate;
+    private final StampedLock lock = new StampedLock();
+
+    private volatile BloomFilter bloomFilter;
+    private long[] highBits;
+    private long[] lowBits;
+    private long[] expiresAt;
+    private int size;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder bloomRejections = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    RevokedTokenSet(int expectedEntries, double falsePositiveRate) {
+        this.expectedEntries = Math.max(expectedEntries, MIN_CAPACITY);
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = new BloomFilter(this.expectedEntries, falsePositiveRate);
+        allocate(MIN_CAPACITY);
+    }
+
+    boolean contains(String tokenId, long nowSeconds) {
+        lookups.increment();
+        long[] key = key(tokenId);
+        if (!bloomFilter.mightContain(key[0], key[1])) {
+            bloomRejections.increment();
+            return false;
+        }
+
+        long expiry;
+        long stamp = lock.readLock();
+        try {
+            expiry = find(key[0], key[1]);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        if (expiry == 0) {
+            falsePositives.increment();
+        }
+        return expiry > nowSeconds;
+    }
+
+    /**
+     * @return {@code true} if the id was not in the set yet
+     */
+    boolean add(String tokenId, long expiresAtSeconds) {
+        long[] key = key(tokenId);
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > highBits.length) {
+                rehash(highBits.length * 2, 0);
+            }
+            boolean added = insert(key[0], key[1], expiresAtSeconds);
+            BloomFilter filter = bloomFilter;
+            if (filter.getInsertions() >= filter.getExpectedInsertions()) {
+                filter = rebuildBloomFilter();
+            }
+            filter.put(key[0], key[1]);
+            return added;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Drop entries that expired at or before {@code nowSeconds} and rebuild the Bloom filter
+     * without them, which also resets its false-positive rate.
+     *
+     * @return the number of entries removed
+     */
+    int purge(long nowSeconds) {
+        long stamp = lock.writeLock();
+        try {
+            int before = size;
+            rehash(capacityFor(liveEntries(nowSeconds)), nowSeconds);
+            rebuildBloomFilter();
+            return before - size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Bytes held by the hash table and the Bloom filter's bit array.
+     */
+    long getMemoryFootprintBytes() {
+        return 3L * Long.BYTES * highBits.length + bloomFilter.getSizeInBytes();
+    }
+
+    /**
+     * Share of lookups for ids that are not in the set that the Bloom filter let through.
+     */
+    double getObservedFalsePositiveRate() {
+        long negatives = bloomRejections.sum() + falsePositives.sum();
+        return negatives == 0 ? 0.0 : (double) falsePositives.sum() / negatives;
+    }
+
+    /**
+     * False-positive rate predicted from the filter's size and the ids put into it.
+     */
+    double getExpectedFalsePositiveRate() {
+        return bloomFilter.getExpectedFalsePositiveRate();
+    }
+
+    long getLookups() {
+        return lookups.sum();
+    }
+
+    long getBloomRejections() {
+        return bloomRejections.sum();
+    }
+
+    private long find(long high, long low) {
+        long[] highs = highBits;
+        long[] lows = lowBits;
+        long[] expiries = expiresAt;
+        int mask = highs.length - 1;
+        for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+            long expiry = expiries[slot];
+            if (expiry == 0) {
+                return 0;
+            }
+            if (highs[slot] == high && lows[slot] == low) {
+                return expiry;
+            }
+        }
+    }
+
+    private boolean insert(long high, long low, long expiresAtSeconds) {
+        int mask = highBits.length - 1;
+        for (int slot = slot(high, low, mask); ; slot = (slot + 1) & mask) {
+            if (expiresAt[slot] == 0) {
+                highBits[slot] = high;
+                lowBits[slot] = low;
+                expiresAt[slot] = Math.max(expiresAtSeconds, 1);
+                size++;
+                return true;
+            }
+            if (highBits[slot] == high && lowBits[slot] == low) {
+                expiresAt[slot] = Math.max(expiresAt[slot], expiresAtSeconds);
+                return false;
+            }
+        }
+    }
+
+    private void rehash(int capacity, long nowSeconds) {
+        long[] highs = highBits;
+        long[] lows = lowBits;
+        long[] expiries = expiresAt;
+        allocate(capacity);
+        for (int i = 0; i < expiries.length; i++) {
+            if (expiries[i] > nowSeconds) {
+                insert(highs[i], lows[i], expiries[i]);
+            }
+        }
+    }
+
+    private BloomFilter rebuildBloomFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(expectedEntries, size * 2), falsePositiveRate);
+        for (int i = 0; i < expiresAt.length; i++) {
+            if (expiresAt[i] != 0) {
+                filter.put(highBits[i], lowBits[i]);
+            }
+        }
+        bloomFilter = filter;
+        return filter;
+    }
+
+    private void allocate(int capacity) {
+        highBits = new long[capacity];
+        lowBits = new long[capacity];
+        expiresAt = new long[capacity];
+        size = 0;
+    }
+
+    private int liveEntries(long nowSeconds) {
+        int live = 0;
+        for (long expiry : expiresAt) {
+            if (expiry > nowSeconds) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int slot(long high, long low, int mask) {
+        return (int) mix(high ^ Long.rotateLeft(low, 32)) & mask;
+    }
+
+    /**
+     * The id's 128-bit key: the UUID itself, or the first half of its SHA-256 for other ids.
+     */
+    private static long[] key(String tokenId) {
+        UUID uuid = parseUuid(tokenId);
+        if (uuid != null) {
+            return new long[]{uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+        }
+        ByteBuffer digest = ByteBuffer.wrap(sha256(tokenId));
+        return new long[]{digest.getLong(0), digest.getLong(8)};
+    }
+
+    private static UUID parseUuid(String tokenId) {
+        if (tokenId.length() != 36) {
+            return null;
+        }
+        try {
+            return UUID.fromString(tokenId);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 not available", ex);
+        }
+    }
+
+    /**
+     * MurmurHash3's 64-bit finalizer.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Bloom filter over 128-bit keys using double hashing. Bits are only set under the
+     * owner's write lock but read without it, hence the atomic array.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final long numBits;
+        private final int numHashes;
+        private final int expectedInsertions;
+        private long insertions;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.max(1, (bits + 63) / 64));
+            this.numBits = 64L * words.length();
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+            this.expectedInsertions = expectedInsertions;
+        }
+
+        void put(long high, long low) {
+            long hash1 = mix(high);
+            long hash2 = mix(low) | 1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Long.remainderUnsigned(hash1 + i * hash2, numBits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current = words.get(word);
+                if ((current & mask) == 0) {
+                    words.set(word, current | mask);
+                }
+            }
+            insertions++;
+        }
+
+        boolean mightContain(long high, long low) {
+            long hash1 = mix(high);
+            long hash2 = mix(low) | 1;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Long.remainderUnsigned(hash1 + i * hash2, numBits);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long getInsertions() {
+            return insertions;
+        }
+
+        int getExpectedInsertions() {
+            return expectedInsertions;
+        }
+
+        long getSizeInBytes() {
+            return numBits / 8;
+        }
+
+        double getExpectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-numHashes * (double) insertions / numBits), numHashes);
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.auth.server.security;
+
+import java.util.Locale;
+
+/**
+ * Per-phase durations of one {@code /oauth2/token} or {@code /oauth2/authorize} request,
+ * reported by {@link ServerTimingFilter} as a {@code Server-Timing} header and in the slow
+ * request log.
+ * <p>
+ * The components that do the work ({@code TimedJwtEncoder}, {@code TimedOAuth2AuthorizationService},
+ * the consent cache and the {@link PhaseTimingAuthenticationProvider wrapped providers}) add
+ * to the timing bound to the current thread. Requests that are not being timed have none
+ * bound, so for them a phase costs one thread-local lookup and allocates nothing:
+ * <pre>
+ * ServerTiming timing = ServerTiming.current();
+ * long start = timing != null ? System.nanoTime() : 0L;
+ * ...
+ * if (timing != null) {
+ *     timing.record(Phase.SIGN, start);
+ * }
+ * </pre>
+ * Phases may nest: {@code grant} includes the {@code token}, {@code sign} and {@code store}
+ * calls made while the grant is processed, and {@code token} includes {@code sign}.
+ */
+public final class ServerTiming {
+
+    private static final ThreadLocal<ServerTiming> CURRENT = new ThreadLocal<>();
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long startNanos = System.nanoTime();
+    private final long[] phaseNanos = new long[PHASES.length];
+    private final int[] phaseCounts = new int[PHASES.length];
+
+    private ServerTiming() {
+    }
+
+    /**
+     * The timing of the request on this thread, or {@code null} when it is not being timed.
+     */
+    public static ServerTiming current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Start timing the request on this thread. Must be paired with {@link #stop()}.
+     */
+    static ServerTiming start() {
+        ServerTiming timing = new ServerTiming();
+        CURRENT.set(timing);
+        return timing;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Add the time since {@code startNanos}, a {@link System#nanoTime()} reading, to a phase.
+     */
+    public void record(Phase phase, long startNanos) {
+        phaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+        phaseCounts[phase.ordinal()]++;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * The {@code Server-Timing} header value: every phase that ran, then the total, in milliseconds.
+     */
+    String toHeaderValue() {
+        StringBuilder value = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            if (phaseCounts[phase.ordinal()] > 0) {
+                value.append(phase.metricName).append(";dur=").append(millis(phaseNanos[phase.ordinal()])).append(", ");
+            }
+        }
+        return value.append("total;dur=").append(millis(getElapsedNanos())).toString();
+    }
+
+    /**
+     * The phases as {@code key=value} pairs for one log line, with call counts where a phase ran more than once.
+     */
+    String toLogFields() {
+        StringBuilder fields = new StringBuilder(128).append("total_ms=").append(millis(getElapsedNanos()));
+        for (Phase phase : PHASES) {
+            int count = phaseCounts[phase.ordinal()];
+            if (count > 0) {
+                fields.append(' ').append(phase.logName).append("_ms=").append(millis(phaseNanos[phase.ordinal()]));
+                if (count > 1) {
+                    fields.append(' ').append(phase.logName).append("_calls=").append(count);
+                }
+            }
+        }
+        return fields.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    public enum Phase {
+
+        /** Authenticating the client: secret check, assertion or PKCE-only public client. */
+        CLIENT_AUTH("client-auth"),
+        /** Validating the grant or authorization request, including everything below it. */
+        GRANT("grant"),
+        /** Looking up or saving the user's consent. */
+        CONSENT("consent"),
+        /** Generating access, refresh and ID tokens, including signing. */
+        TOKEN("token"),
+        /** Encoding and signing JWTs. */
+        SIGN("sign"),
+        /** Authorization store calls. */
+        STORE("store");
+
+        private final String metricName;
+        private final String logName;
+
+        Phase(String metricName) {
+            this.metricName = metricName;
+            this.logName = metricName.replace('-', '_');
+        }
+
+        public String getMetricName() {
+            return metricName;
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.auth.server.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Breaks {@code /oauth2/token} and {@code /oauth2/authorize} requests down into
+ * {@link ServerTiming.Phase phases} for requests that opt in, and reports them in a
+ * {@code Server-Timing} response header, which browser developer tools display as is.
+ * <p>
+ * A request opts in by naming one of the configured {@code clientIds}, or, where the debug
+ * header is enabled, by sending {@value #DEBUG_HEADER}. The header is added just before the
+ * response is committed, so it covers everything up to writing the response body. With
+ * {@code slowThreshold} set, every request on these endpoints is timed, reported or not, and
+ * the ones that take longer are logged as one line of {@code key=value} fields.
+ * <p>
+ * Requests that neither opt in nor can be logged are passed straight through without a timing,
+ * so the phases they go through find none to record into. Once {@code clientIds} is set, though,
+ * telling them apart costs every request on these endpoints a look at the client id it names,
+ * which decodes the {@code client_secret_basic} header when there is one. The id is resolved
+ * once per request and reused for the slow request log.
+ */
+@Slf4j
+public class ServerTimingFilter extends OncePerRequestFilter {
+
+    /**
+     * Request header that asks for a {@code Server-Timing} response header, if enabled.
+     */
+    public static final String DEBUG_HEADER = "X-Debug-Timing";
+
+    private static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final String tokenEndpointUri;
+    private final String authorizationEndpointUri;
+    private final Set<String> clientIds;
+    private final boolean debugHeaderEnabled;
+    private final long slowThresholdNanos;
+
+    public ServerTimingFilter(String tokenEndpointUri, String authorizationEndpointUri, Set<String> clientIds,
+                              boolean debugHeaderEnabled, Duration slowThreshold) {
+        this.tokenEndpointUri = tokenEndpointUri;
+        this.authorizationEndpointUri = authorizationEndpointUri;
+        this.clientIds = Set.copyOf(clientIds);
+        this.debugHeaderEnabled = debugHeaderEnabled;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !authorizationEndpointUri.equals(path)
+                && !(HttpMethod.POST.matches(request.getMethod()) && tokenEndpointUri.equals(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String clientId = clientIds.isEmpty() ? null : RequestedClientId.resolve(request);
+        boolean report = isRequested(request, clientId);
+        if (!report && slowThresholdNanos <= 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ServerTiming timing = ServerTiming.start();
+        ServerTimingResponse timedResponse = report ? new ServerTimingResponse(response, timing) : null;
+        try {
+            filterChain.doFilter(request, timedResponse != null ? timedResponse : response);
+        } finally {
+            ServerTiming.stop();
+            if (timedResponse != null) {
+                timedResponse.addServerTiming();
+            }
+        }
+
+        if (slowThresholdNanos > 0 && timing.getElapsedNanos() >= slowThresholdNanos && log.isInfoEnabled()) {
+            log.info("Slow OAuth2 request method={} path={} client_id={} status={} {}", request.getMethod(),
+                    request.getRequestURI(), clientId != null ? clientId : RequestedClientId.resolve(request),
+                    response.getStatus(),
+                    timing.toLogFields());
+        }
+    }
+
+    private boolean isRequested(HttpServletRequest request, String clientId) {
+        if (debugHeaderEnabled && request.getHeader(DEBUG_HEADER) != null) {
+            return true;
+        }
+        return clientId != null && clientIds.contains(clientId);
+    }
+
+    /**
+     * Adds the header at the last moment it still can: when the response is committed, or once
+     * the chain returns if nothing committed it.
+     */
+    private static final class ServerTimingResponse extends OnCommittedResponseWrapper {
+
+        private final ServerTiming timing;
+        private boolean added;
+
+        private ServerTimingResponse(HttpServletResponse response, ServerTiming timing) {
+            super(response);
+            this.timing = timing;
+        }
+
+        @Override
+        protected void onResponseCommitted() {
+            addServerTiming();
+        }
+
+        void addServerTiming() {
+            if (!added && !isCommitted()) {
+                added = true;
+                addHeader(SERVER_TIMING_HEADER, timing.toHeaderValue());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.auth.server.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.server.authorization.authentication.OAuth2ClientAuthenticationToken;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Times every token endpoint request as {@code auth.token.requests}, tagged with the grant
+ * type, the client and the response status, with a percentile histogram for latency SLOs.
+ * <p>
+ * The client is taken from the authentication the request ends up with, so only registered
+ * clients become tag values; unauthenticated requests are tagged {@code unknown}, as are
+ * grant types the server does not support, which keeps the tag cardinality bounded.
+ */
+public class TokenEndpointMetricsFilter extends OncePerRequestFilter {
+
+    private static final Set<String> GRANT_TYPES = Set.of(
+            AuthorizationGrantType.AUTHORIZATION_CODE.getValue(),
+            AuthorizationGrantType.REFRESH_TOKEN.getValue(),
+            AuthorizationGrantType.CLIENT_CREDENTIALS.getValue(),
+            AuthorizationGrantType.JWT_BEARER.getValue());
+
+    private static final String UNKNOWN = "unknown";
+
+    private final MeterRegistry meterRegistry;
+    private final String tokenEndpointUri;
+
+    public TokenEndpointMetricsFilter(MeterRegistry meterRegistry, String tokenEndpointUri) {
+        this.meterRegistry = meterRegistry;
+        this.tokenEndpointUri = tokenEndpointUri;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !tokenEndpointUri.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String status = "error";
+        try {
+            filterChain.doFilter(request, response);
+            status = String.valueOf(response.getStatus());
+        } finally {
+            sample.stop(Timer.builder("auth.token.requests")
+                    .description("Token endpoint requests")
+                    .tags("grant_type", grantType(request), "client_id", clientId(), "status", status)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String grantType(HttpServletRequest request) {
+        String grantType = request.getParameter(OAuth2ParameterNames.GRANT_TYPE);
+        return grantType != null && GRANT_TYPES.contains(grantType) ? grantType : UNKNOWN;
+    }
+
+    private static String clientId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication instanceof OAuth2ClientAuthenticationToken && authentication.isAuthenticated()) {
+            OAuth2ClientAuthenticationToken clientAuthentication = (OAuth2ClientAuthenticationToken) authentication;
+            if (clientAuthentication.getRegisteredClient() != null) {
+                return clientAuthentication.getRegisteredClient().getClientId();
+            }
+        }
+        return UNKNOWN;
+    }
+
+}
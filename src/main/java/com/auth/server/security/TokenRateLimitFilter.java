@@ -0,0 +1,84 @@
+package com.auth.server.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Applies the remote address's {@link TokenRateLimiter} bucket to token endpoint requests
+ * before the client is authenticated, so that a throttled address costs neither a secret
+ * check nor a signature.
+ * <p>
+ * Only the address is charged here: the client a request names is not verified yet, and
+ * charging it would let anyone drain a registered client's bucket by sending its id with a
+ * wrong secret. {@link ClientTokenRateLimitFilter} charges the client once it has
+ * authenticated. Responses carry {@code RateLimit-Limit}, {@code RateLimit-Remaining} and
+ * {@code RateLimit-Reset} for the address's bucket, which the client's replaces when it has
+ * one; a rejected request gets {@code 429 Too Many Requests} with {@code Retry-After}.
+ */
+@Slf4j
+public class TokenRateLimitFilter extends OncePerRequestFilter {
+
+    private final TokenRateLimiter rateLimiter;
+    private final String tokenEndpointUri;
+
+    public TokenRateLimitFilter(TokenRateLimiter rateLimiter, String tokenEndpointUri) {
+        this.rateLimiter = rateLimiter;
+        this.tokenEndpointUri = tokenEndpointUri;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return isNotTokenRequest(request, tokenEndpointUri);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        TokenRateLimiter.Decision decision = rateLimiter.acquireForAddress(request.getRemoteAddr());
+        if (apply(decision, response)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        log.debug("Throttled token request from {}", request.getRemoteAddr());
+    }
+
+    static boolean isNotTokenRequest(HttpServletRequest request, String tokenEndpointUri) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !tokenEndpointUri.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    /**
+     * Set the {@code RateLimit-*} headers for a decision and, if it rejects the request, write
+     * the {@code 429} response.
+     *
+     * @return whether the request may proceed
+     */
+    static boolean apply(TokenRateLimiter.Decision decision, HttpServletResponse response) throws IOException {
+        if (decision.isLimited()) {
+            response.setHeader("RateLimit-Limit", String.valueOf(decision.getLimit()));
+            response.setHeader("RateLimit-Remaining", String.valueOf(decision.getRemaining()));
+            response.setHeader("RateLimit-Reset", String.valueOf(decision.getResetSeconds()));
+        }
+        if (decision.isAllowed()) {
+            return true;
+        }
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(decision.getRetryAfterSeconds()));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"temporarily_unavailable\","
+                + "\"error_description\":\"Too many token requests, retry later\"}");
+        return false;
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.auth.server.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token-bucket limits on token endpoint calls, one bucket per client and one per remote
+ * address, each allowing {@code limit} requests per {@code period} with bursts of up to
+ * {@code limit}.
+ * <p>
+ * Buckets are kept as a single theoretical arrival time (the generic cell rate algorithm),
+ * updated by compare-and-set, so a check is one concurrent-map lookup and one CAS, with no
+ * lock and no refill thread. Buckets idle for {@code idle-timeout} are evicted; by then they
+ * are full again anyway, so evicting them changes no decision.
+ */
+@Component
+public class TokenRateLimiter {
+
+    /**
+     * {@code TokenSettings} entry overriding the client limit (requests per period) for one
+     * client, e.g. {@code TokenSettings.builder().setting(TokenRateLimiter.CLIENT_SETTING, 60)}.
+     */
+    public static final String CLIENT_SETTING = "settings.token.rate-limit";
+
+    private final Cache<String, AtomicLong> clientBuckets;
+    private final Cache<String, AtomicLong> addressBuckets;
+    private final long periodNanos;
+    private final int defaultClientLimit;
+    private final int addressLimit;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder throttledClients = new LongAdder();
+    private final LongAdder throttledAddresses = new LongAdder();
+
+    public TokenRateLimiter(@Value("${auth-server.token-rate-limit.period:PT1M}") Duration period,
+                            @Value("${auth-server.token-rate-limit.client-limit:600}") int defaultClientLimit,
+                            @Value("${auth-server.token-rate-limit.address-limit:1200}") int addressLimit,
+                            @Value("${auth-server.token-rate-limit.idle-timeout:PT10M}") Duration idleTimeout,
+                            @Value("${auth-server.token-rate-limit.max-buckets:100000}") long maxBuckets) {
+        this.periodNanos = period.toNanos();
+        this.defaultClientLimit = defaultClientLimit;
+        this.addressLimit = addressLimit;
+        Duration expiry = idleTimeout.compareTo(period) > 0 ? idleTimeout : period;
+        this.clientBuckets = Caffeine.newBuilder().maximumSize(maxBuckets).expireAfterAccess(expiry).build();
+        this.addressBuckets = Caffeine.newBuilder().maximumSize(maxBuckets).expireAfterAccess(expiry).build();
+    }
+
+    public int limitFor(RegisteredClient registeredClient) {
+        Object setting = registeredClient.getTokenSettings().getSetting(CLIENT_SETTING);
+        if (setting instanceof Number) {
+            return ((Number) setting).intValue();
+        }
+        return setting != null ? Integer.parseInt(setting.toString()) : defaultClientLimit;
+    }
+
+    /**
+     * Take one request from the client's bucket. A limit of zero or less means unlimited.
+     */
+    public Decision acquireForClient(String clientId, int limit) {
+        Decision decision = acquire(clientBuckets, clientId, limit);
+        count(decision, throttledClients);
+        return decision;
+    }
+
+    /**
+     * Take one request from the remote address's bucket.
+     */
+    public Decision acquireForAddress(String address) {
+        Decision decision = acquire(addressBuckets, address, addressLimit);
+        count(decision, throttledAddresses);
+        return decision;
+    }
+
+    private void count(Decision decision, LongAdder throttled) {
+        if (decision.isAllowed()) {
+            allowed.increment();
+        } else {
+            throttled.increment();
+        }
+    }
+
+    private Decision acquire(Cache<String, AtomicLong> buckets, String key, int limit) {
+        if (limit <= 0) {
+            return Decision.UNLIMITED;
+        }
+        long interval = periodNanos / limit;
+        long now = System.nanoTime();
+        AtomicLong arrival = buckets.getIfPresent(key);
+        if (arrival == null) {
+            arrival = buckets.get(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long current = arrival.get();
+            long next = (current - now > 0 ? current : now) + interval;
+            long allowedAt = next - periodNanos;
+            if (allowedAt - now > 0) {
+                return new Decision(false, limit, 0, current - now, allowedAt - now);
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return new Decision(true, limit, (periodNanos - (next - now)) / interval, next - now, 0);
+            }
+        }
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getThrottledClientCount() {
+        return throttledClients.sum();
+    }
+
+    public long getThrottledAddressCount() {
+        return throttledAddresses.sum();
+    }
+
+    public long getBucketCount() {
+        return clientBuckets.estimatedSize() + addressBuckets.estimatedSize();
+    }
+
+    /**
+     * Outcome of one check, with what the {@code RateLimit-*} response headers report.
+     */
+    public static final class Decision {
+
+        static final Decision UNLIMITED = new Decision(true, 0, 0, 0, 0);
+
+        private final boolean allowed;
+        private final int limit;
+        private final long remaining;
+        private final long resetNanos;
+        private final long retryAfterNanos;
+
+        private Decision(boolean allowed, int limit, long remaining, long resetNanos, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetNanos = resetNanos;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        public boolean isAllowed() {
+            return allowed;
+        }
+
+        public boolean isLimited() {
+            return limit > 0;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+
+        public long getRemaining() {
+            return remaining;
+        }
+
+        /**
+         * Seconds until the bucket is full again.
+         */
+        public long getResetSeconds() {
+            return toSeconds(resetNanos);
+        }
+
+        /**
+         * Seconds until a rejected request would be allowed.
+         */
+        public long getRetryAfterSeconds() {
+            return Math.max(1, toSeconds(retryAfterNanos));
+        }
+
+        private static long toSeconds(long nanos) {
+            return (nanos + 999_999_999L) / 1_000_000_000L;
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.auth.server.security;
+
+import com.auth.server.event.AuthUserChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of loaded {@link UserDetails} by username, so that form login, refresh
+ * flows and session re-authentication skip the user and role queries.
+ * <p>
+ * Changes made through this node drop the entry once their transaction has committed
+ * ({@link AuthUserChangedEvent}). Changes made elsewhere, including a user being disabled,
+ * are seen within {@code ttl}, which is therefore the bound on stale account state.
+ * <p>
+ * Callers always get a copy: the authentication manager erases the password of the
+ * {@code UserDetails} it authenticated, and that must not reach the cached instance.
+ */
+@Component
+@Slf4j
+public class UserDetailsCache {
+
+    private final Cache<String, UserDetails> cache;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserDetailsCache(@Value("${auth-server.user-cache.ttl:PT1M}") Duration ttl,
+                            @Value("${auth-server.user-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * The cached details for {@code username}, or those returned by {@code loader}, which
+     * are cached. Exceptions from the loader, such as an unknown user, are not cached.
+     */
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        UserDetails cached = cache.getIfPresent(username);
+        if (cached != null) {
+            hits.increment();
+            return copy(cached);
+        }
+        misses.increment();
+        UserDetails loaded = loader.apply(username);
+        cache.put(username, copy(loaded));
+        return loaded;
+    }
+
+    public void invalidate(String username) {
+        cache.invalidate(username);
+        log.debug("Invalidated cached user details for {}", username);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(AuthUserChangedEvent event) {
+        invalidate(event.getUsername());
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static UserDetails copy(UserDetails userDetails) {
+        return User.withUserDetails(userDetails).build();
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.auth.server.security;
+
+import com.auth.server.event.OAuthClientChangedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers client secrets that recently passed password-encoder verification, so that
+ * repeated {@code client_secret_basic}/{@code client_secret_post} calls skip BCrypt.
+ * <p>
+ * Entries are keyed by an HMAC of clientId and presented secret under a random per-process
+ * key, so the cache never holds a secret or an offline-checkable hash of one. Each entry also
+ * records the stored secret hash it was verified against; a rotated secret therefore never
+ * hits an old entry, even before the explicit invalidation arrives.
+ */
+@Component
+@Slf4j
+public class VerifiedClientSecretCache {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, VerifiedSecret> cache;
+    private final ThreadLocal<Mac> macs;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedClientSecretCache(@Value("${auth-server.client-secret-cache.ttl:PT10M}") Duration ttl,
+                                     @Value("${auth-server.client-secret-cache.max-size:10000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .build();
+
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        SecretKeySpec keySpec = new SecretKeySpec(key, HMAC_ALGORITHM);
+        this.macs = ThreadLocal.withInitial(() -> newMac(keySpec));
+    }
+
+    /**
+     * Whether this clientId/secret pair was verified against {@code storedSecret} within the TTL.
+     */
+    public boolean isVerified(String clientId, String rawSecret, String storedSecret) {
+        VerifiedSecret entry = cache.getIfPresent(key(clientId, rawSecret));
+        if (entry != null && entry.storedSecret.equals(storedSecret)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    public void recordVerified(String clientId, String rawSecret, String storedSecret) {
+        cache.put(key(clientId, rawSecret), new VerifiedSecret(clientId, storedSecret));
+    }
+
+    /**
+     * Drop every cached verification for a client, e.g. after its secret was rotated.
+     */
+    public void invalidate(String clientId) {
+        cache.asMap().values().removeIf(entry -> entry.clientId.equals(clientId));
+        log.debug("Invalidated cached secret verifications for client {}", clientId);
+    }
+
+    @EventListener
+    public void onClientChanged(OAuthClientChangedEvent event) {
+        invalidate(event.getClientId());
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Every hit is a password-encoder verification that did not run.
+     */
+    public long getEncoderCallsAvoided() {
+        return hits.sum();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private String key(String clientId, String rawSecret) {
+        Mac mac = macs.get();
+        mac.update(clientId.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] digest = mac.doFinal(rawSecret.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(digest);
+    }
+
+    private static Mac newMac(SecretKeySpec keySpec) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 algorithm not available", e);
+        }
+    }
+
+    private static final class VerifiedSecret {
+
+        private final String clientId;
+        private final String storedSecret;
+
+        private VerifiedSecret(String clientId, String storedSecret) {
+            this.clientId = clientId;
+            this.storedSecret = storedSecret;
+        }
+
+    }
+
+}
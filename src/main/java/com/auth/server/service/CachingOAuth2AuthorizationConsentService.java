@@ -0,0 +1,172 @@
+package com.auth.server.service;
+
+import com.auth.server.security.ServerTiming;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Near cache in front of the persistent consent store. {@code /oauth2/authorize} looks up the
+ * consent for (client, user) on every request, so a repeat SSO login should not have to reach
+ * the database or Redis.
+ * <p>
+ * Absent consents are cached too, for the shorter {@code negativeTtl}, because a first login
+ * to a client looks the consent up several times before the user has answered. Saves and
+ * removals through this node replace the entry immediately. Nodes do not notify each other,
+ * so a change made on another node only becomes visible here once the entry expires:
+ * {@code ttl} bounds how long a consent withdrawn elsewhere is still honoured, which is why
+ * it defaults to one minute.
+ * <p>
+ * Store lookups and saves made for a request that is being timed go to the {@code consent} phase of
+ * its {@link ServerTiming}.
+ */
+public class CachingOAuth2AuthorizationConsentService implements OAuth2AuthorizationConsentService {
+
+    private final OAuth2AuthorizationConsentService delegate;
+    private final Cache<ConsentKey, Optional<OAuth2AuthorizationConsent>> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CachingOAuth2AuthorizationConsentService(OAuth2AuthorizationConsentService delegate,
+                                                    Duration ttl, Duration negativeTtl, long maxSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new ConsentExpiry(ttl.toNanos(), negativeTtl.toNanos()))
+                .build();
+    }
+
+    @Override
+    public void save(OAuth2AuthorizationConsent authorizationConsent) {
+        Assert.notNull(authorizationConsent, "authorizationConsent cannot be null");
+        ServerTiming timing = ServerTiming.current();
+        long start = timing != null ? System.nanoTime() : 0L;
+        ConsentKey key = ConsentKey.of(authorizationConsent);
+        cache.invalidate(key);
+        try {
+            delegate.save(authorizationConsent);
+        } finally {
+            if (timing != null) {
+                timing.record(ServerTiming.Phase.CONSENT, start);
+            }
+        }
+        cache.put(key, Optional.of(authorizationConsent));
+    }
+
+    @Override
+    public void remove(OAuth2AuthorizationConsent authorizationConsent) {
+        Assert.notNull(authorizationConsent, "authorizationConsent cannot be null");
+        ConsentKey key = ConsentKey.of(authorizationConsent);
+        cache.invalidate(key);
+        delegate.remove(authorizationConsent);
+        cache.put(key, Optional.empty());
+    }
+
+    @Override
+    public OAuth2AuthorizationConsent findById(String registeredClientId, String principalName) {
+        Assert.hasText(registeredClientId, "registeredClientId cannot be empty");
+        Assert.hasText(principalName, "principalName cannot be empty");
+        ConsentKey key = new ConsentKey(registeredClientId, principalName);
+        Optional<OAuth2AuthorizationConsent> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached.orElse(null);
+        }
+        misses.increment();
+        ServerTiming timing = ServerTiming.current();
+        long start = timing != null ? System.nanoTime() : 0L;
+        Optional<OAuth2AuthorizationConsent> loaded;
+        try {
+            loaded = Optional.ofNullable(delegate.findById(registeredClientId, principalName));
+        } finally {
+            if (timing != null) {
+                timing.record(ServerTiming.Phase.CONSENT, start);
+            }
+        }
+        // A save or remove that raced with this read has already put the newer value.
+        Optional<OAuth2AuthorizationConsent> current = cache.asMap().putIfAbsent(key, loaded);
+        return (current != null ? current : loaded).orElse(null);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static final class ConsentKey {
+
+        private final String registeredClientId;
+        private final String principalName;
+
+        private ConsentKey(String registeredClientId, String principalName) {
+            this.registeredClientId = registeredClientId;
+            this.principalName = principalName;
+        }
+
+        static ConsentKey of(OAuth2AuthorizationConsent consent) {
+            return new ConsentKey(consent.getRegisteredClientId(), consent.getPrincipalName());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ConsentKey)) {
+                return false;
+            }
+            ConsentKey other = (ConsentKey) o;
+            return registeredClientId.equals(other.registeredClientId) && principalName.equals(other.principalName);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * registeredClientId.hashCode() + principalName.hashCode();
+        }
+
+    }
+
+    private static final class ConsentExpiry implements Expiry<ConsentKey, Optional<OAuth2AuthorizationConsent>> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private ConsentExpiry(long ttlNanos, long negativeTtlNanos) {
+            this.ttlNanos = ttlNanos;
+            this.negativeTtlNanos = negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(ConsentKey key, Optional<OAuth2AuthorizationConsent> value, long currentTime) {
+            return value.isPresent() ? ttlNanos : negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(ConsentKey key, Optional<OAuth2AuthorizationConsent> value,
+                                      long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ConsentKey key, Optional<OAuth2AuthorizationConsent> value,
+                                    long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+}
@@ -0,0 +1,197 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.OAuthClient;
+import com.auth.server.event.OAuthClientChangedEvent;
+import com.auth.server.repository.OAuthClientRepository;
+import com.auth.server.repository.OAuthClientRepository.ClientRow;
+import com.auth.server.repository.OAuthClientRepository.ClientValueRow;
+import com.auth.server.security.TokenRateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.settings.ClientSettings;
+import org.springframework.security.oauth2.server.authorization.settings.TokenSettings;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * {@link RegisteredClientRepository} that serves every lookup from an immutable,
+ * in-memory snapshot of the statically configured clients plus all {@code oauth_clients} rows.
+ * <p>
+ * The snapshot is built with one query per table and replaced wholesale, so readers never
+ * lock and never touch the database. Locally registered clients are written through after
+ * commit via {@link OAuthClientChangedEvent}; a periodic reload picks up changes made on
+ * other nodes.
+ * <p>
+ * {@link #save} is deliberately rejected. Clients are created and changed only through
+ * {@link ClientRegistrationService}, which generates and hashes their secrets and publishes the
+ * event this cache refreshes from; the authorization server itself never saves clients while
+ * dynamic client registration is disabled.
+ */
+@Slf4j
+public class CachingRegisteredClientRepository implements RegisteredClientRepository, InitializingBean {
+
+    private final OAuthClientRepository oAuthClientRepository;
+    private final List<RegisteredClient> staticClients;
+    private final Timer findByIdTimer;
+    private final Timer findByClientIdTimer;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    public CachingRegisteredClientRepository(OAuthClientRepository oAuthClientRepository,
+                                             List<RegisteredClient> staticClients,
+                                             MeterRegistry meterRegistry) {
+        this.oAuthClientRepository = oAuthClientRepository;
+        this.staticClients = List.copyOf(staticClients);
+        this.findByIdTimer = lookupTimer(meterRegistry, "find_by_id");
+        this.findByClientIdTimer = lookupTimer(meterRegistry, "find_by_client_id");
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    @Override
+    public void save(RegisteredClient registeredClient) {
+        throw new UnsupportedOperationException(
+                "Clients are registered through ClientRegistrationService, not the RegisteredClientRepository");
+    }
+
+    @Override
+    public RegisteredClient findById(String id) {
+        return findByIdTimer.record(() -> snapshot.byId.get(id));
+    }
+
+    @Override
+    public RegisteredClient findByClientId(String clientId) {
+        return findByClientIdTimer.record(() -> snapshot.byClientId.get(clientId));
+    }
+
+    /**
+     * Rebuild the whole snapshot from the database.
+     */
+    @Scheduled(fixedDelayString = "${auth-server.client-cache.refresh-interval:PT1M}",
+            initialDelayString = "${auth-server.client-cache.refresh-interval:PT1M}")
+    public synchronized void reload() {
+        Map<Long, Set<String>> redirectUris = groupByClient(oAuthClientRepository.findAllRedirectUris());
+        Map<Long, Set<String>> scopes = groupByClient(oAuthClientRepository.findAllScopes());
+        Map<Long, Set<String>> grantTypes = groupByClient(oAuthClientRepository.findAllGrantTypes());
+
+        List<RegisteredClient> clients = new ArrayList<>(staticClients);
+        for (ClientRow row : oAuthClientRepository.findAllClientRows()) {
+            toRegisteredClient(row.getId(), row.getClientId(), row.getClientSecret(), row.getCreatedAt(),
+                    row.getTokenRateLimit(),
+                    redirectUris.getOrDefault(row.getId(), Collections.emptySet()),
+                    scopes.getOrDefault(row.getId(), Collections.emptySet()),
+                    grantTypes.getOrDefault(row.getId(), Collections.emptySet()))
+                    .ifPresent(clients::add);
+        }
+
+        snapshot = new Snapshot(clients);
+        log.debug("Loaded {} registered clients into the client cache", clients.size());
+    }
+
+    /**
+     * Write-through of a single client once the transaction that changed it has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onClientChanged(OAuthClientChangedEvent event) {
+        Map<String, RegisteredClient> clients = new LinkedHashMap<>(snapshot.byClientId);
+        clients.remove(event.getClientId());
+        oAuthClientRepository.findByClientId(event.getClientId())
+                .flatMap(CachingRegisteredClientRepository::toRegisteredClient)
+                .ifPresent(client -> clients.put(client.getClientId(), client));
+
+        snapshot = new Snapshot(clients.values());
+        log.debug("Refreshed client {} in the client cache", event.getClientId());
+    }
+
+    private static Optional<RegisteredClient> toRegisteredClient(OAuthClient client) {
+        return toRegisteredClient(client.getId(), client.getClientId(), client.getClientSecret(),
+                client.getCreatedAt(), client.getTokenRateLimit(), client.getRedirectUris(), client.getScopes(), client.getGrantTypes());
+    }
+
+    private static Optional<RegisteredClient> toRegisteredClient(Long id, String clientId, String clientSecret,
+                                                                 LocalDateTime createdAt, Integer tokenRateLimit,
+                                                                 Set<String> redirectUris,
+                                                                 Set<String> scopes, Set<String> grantTypes) {
+        try {
+            Instant issuedAt = createdAt != null ? createdAt.atZone(ZoneId.systemDefault()).toInstant() : null;
+            RegisteredClient registeredClient = RegisteredClient.withId(String.valueOf(id))
+                    .clientId(clientId)
+                    .clientSecret(clientSecret)
+                    .clientIdIssuedAt(issuedAt)
+                    .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_BASIC)
+                    .clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST)
+                    .authorizationGrantTypes(types -> grantTypes.forEach(type -> types.add(new AuthorizationGrantType(type))))
+                    .redirectUris(uris -> uris.addAll(redirectUris))
+                    .scopes(values -> values.addAll(scopes))
+                    .tokenSettings(tokenSettings(tokenRateLimit))
+                    .clientSettings(ClientSettings.builder()
+                            .requireAuthorizationConsent(true)
+                            .build())
+                    .build();
+            return Optional.of(registeredClient);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Skipping invalid OAuth2 client {}: {}", clientId, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static TokenSettings tokenSettings(Integer tokenRateLimit) {
+        TokenSettings.Builder settings = TokenSettings.builder()
+                .accessTokenTimeToLive(Duration.ofHours(1))
+                .refreshTokenTimeToLive(Duration.ofDays(30))
+                .reuseRefreshTokens(false);
+        if (tokenRateLimit != null) {
+            settings.setting(TokenRateLimiter.CLIENT_SETTING, tokenRateLimit);
+        }
+        return settings.build();
+    }
+
+    private static Timer lookupTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("auth.client.lookup")
+                .description("Registered client lookups")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    private static Map<Long, Set<String>> groupByClient(List<ClientValueRow> rows) {
+        Map<Long, Set<String>> grouped = new HashMap<>();
+        for (ClientValueRow row : rows) {
+            grouped.computeIfAbsent(row.getClientKey(), key -> new HashSet<>()).add(row.getValue());
+        }
+        return grouped;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<String, RegisteredClient> byId;
+        private final Map<String, RegisteredClient> byClientId;
+
+        private Snapshot(Collection<RegisteredClient> clients) {
+            Map<String, RegisteredClient> ids = new HashMap<>();
+            Map<String, RegisteredClient> clientIds = new LinkedHashMap<>();
+            for (RegisteredClient client : clients) {
+                ids.put(client.getId(), client);
+                clientIds.put(client.getClientId(), client);
+            }
+            this.byId = Collections.unmodifiableMap(ids);
+            this.byClientId = Collections.unmodifiableMap(clientIds);
+        }
+
+    }
+
+}
@@ -0,0 +1,214 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.OAuthClient;
+import com.auth.server.event.OAuthClientChangedEvent;
+import com.auth.server.repository.OAuthClientRepository;
+import com.auth.server.repository.OAuthClientRepository.ClientRow;
+import com.auth.server.repository.OAuthClientRepository.ClientValueRow;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Read model behind the client listing endpoints: an immutable, in-memory snapshot of
+ * {@link ClientSummary client summaries} without secrets.
+ * <p>
+ * Like {@link CachingRegisteredClientRepository}, the snapshot is built with one query per
+ * table and replaced wholesale; a client registered or changed on this node is reloaded on
+ * its own after commit, and a periodic reload picks up changes made on other nodes. Each
+ * snapshot carries an ETag derived from its contents, so pollers get {@code 304 Not Modified}
+ * until something changes, on any node.
+ */
+@Service
+@Slf4j
+public class ClientCatalog implements InitializingBean {
+
+    private final OAuthClientRepository oAuthClientRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList());
+
+    public ClientCatalog(OAuthClientRepository oAuthClientRepository) {
+        this.oAuthClientRepository = oAuthClientRepository;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Rebuild the whole catalog from the database.
+     */
+    @Scheduled(fixedDelayString = "${auth-server.client-catalog.refresh-interval:PT1M}",
+            initialDelayString = "${auth-server.client-catalog.refresh-interval:PT1M}")
+    public synchronized void reload() {
+        Map<Long, Set<String>> redirectUris = groupByClient(oAuthClientRepository.findAllRedirectUris());
+        Map<Long, Set<String>> scopes = groupByClient(oAuthClientRepository.findAllScopes());
+        Map<Long, Set<String>> grantTypes = groupByClient(oAuthClientRepository.findAllGrantTypes());
+
+        List<ClientSummary> clients = new ArrayList<>();
+        for (ClientRow row : oAuthClientRepository.findAllClientRows()) {
+            clients.add(new ClientSummary(row.getId(), row.getClientId(),
+                    sorted(redirectUris.get(row.getId())),
+                    sorted(scopes.get(row.getId())),
+                    sorted(grantTypes.get(row.getId())),
+                    truncated(row.getCreatedAt())));
+        }
+
+        snapshot = new Snapshot(clients);
+        log.debug("Loaded {} clients into the client catalog", clients.size());
+    }
+
+    /**
+     * Reload a single client once the transaction that changed it has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onClientChanged(OAuthClientChangedEvent event) {
+        Map<String, ClientSummary> clients = new HashMap<>(snapshot.byClientId);
+        clients.remove(event.getClientId());
+        oAuthClientRepository.findByClientId(event.getClientId())
+                .map(ClientCatalog::toSummary)
+                .ifPresent(client -> clients.put(client.getClientId(), client));
+
+        snapshot = new Snapshot(clients.values());
+        log.debug("Refreshed client {} in the client catalog", event.getClientId());
+    }
+
+    private static ClientSummary toSummary(OAuthClient client) {
+        return new ClientSummary(client.getId(), client.getClientId(), sorted(client.getRedirectUris()),
+                sorted(client.getScopes()), sorted(client.getGrantTypes()), truncated(client.getCreatedAt()));
+    }
+
+    /**
+     * A just-registered client still has the full-precision timestamp it was created with,
+     * while a reload gets the database's; both must give the same summary and ETag.
+     */
+    private static LocalDateTime truncated(LocalDateTime createdAt) {
+        return createdAt != null ? createdAt.truncatedTo(ChronoUnit.MILLIS) : null;
+    }
+
+    private static List<String> sorted(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return Collections.unmodifiableList(sorted);
+    }
+
+    private static Map<Long, Set<String>> groupByClient(List<ClientValueRow> rows) {
+        Map<Long, Set<String>> grouped = new HashMap<>();
+        for (ClientValueRow row : rows) {
+            grouped.computeIfAbsent(row.getClientKey(), key -> new HashSet<>()).add(row.getValue());
+        }
+        return grouped;
+    }
+
+    /**
+     * A registered client as listed to administrators. Collections are sorted, so equal
+     * clients serialize identically on every node.
+     */
+    @Value
+    public static class ClientSummary {
+
+        Long id;
+        String clientId;
+        List<String> redirectUris;
+        List<String> scopes;
+        List<String> grantTypes;
+        LocalDateTime createdAt;
+
+        /**
+         * Secrets are never part of the catalog; the masked field keeps the response shape
+         * the listing has always had.
+         */
+        public String getClientSecret() {
+            return "********";
+        }
+
+    }
+
+    /**
+     * One page of the catalog. {@code nextCursor} is the {@code after} value for the next
+     * page, or {@code null} on the last page.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class ClientPage {
+        private List<ClientSummary> clients;
+        private Long nextCursor;
+        private int total;
+    }
+
+    /**
+     * One immutable version of the catalog, ordered by id.
+     */
+    public static final class Snapshot {
+
+        private final NavigableMap<Long, ClientSummary> byId;
+        private final Map<String, ClientSummary> byClientId;
+        private final String eTag;
+
+        private Snapshot(Collection<ClientSummary> clients) {
+            NavigableMap<Long, ClientSummary> ids = new TreeMap<>();
+            Map<String, ClientSummary> clientIds = new HashMap<>();
+            for (ClientSummary client : clients) {
+                ids.put(client.getId(), client);
+                clientIds.put(client.getClientId(), client);
+            }
+            this.byId = Collections.unmodifiableNavigableMap(ids);
+            this.byClientId = Collections.unmodifiableMap(clientIds);
+            this.eTag = contentHash(ids.values());
+        }
+
+        /**
+         * Up to {@code limit} clients with an id greater than {@code afterId}, in id order.
+         */
+        public ClientPage page(long afterId, int limit) {
+            List<ClientSummary> clients = new ArrayList<>(Math.min(limit, byId.size()));
+            for (ClientSummary client : byId.tailMap(afterId, false).values()) {
+                if (clients.size() == limit) {
+                    break;
+                }
+                clients.add(client);
+            }
+            Long nextCursor = clients.size() == limit && byId.higherKey(clients.get(limit - 1).getId()) != null
+                    ? clients.get(limit - 1).getId() : null;
+            return new ClientPage(clients, nextCursor, byId.size());
+        }
+
+        public Optional<ClientSummary> findByClientId(String clientId) {
+            return Optional.ofNullable(byClientId.get(clientId));
+        }
+
+        /**
+         * Quoted entity tag of this version's contents.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        private static String contentHash(Collection<ClientSummary> clients) {
+            StringBuilder contents = new StringBuilder();
+            for (ClientSummary client : clients) {
+                contents.append(client).append('\n');
+            }
+            return "\"" + TokenHashes.sha256(contents.toString()).substring(0, 32) + "\"";
+        }
+
+    }
+
+}
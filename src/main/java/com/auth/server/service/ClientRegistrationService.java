@@ -1,9 +1,11 @@
 package com.auth.server.service;
 
 import com.auth.server.entity.OAuthClient;
+import com.auth.server.event.OAuthClientChangedEvent;
 import com.auth.server.repository.OAuthClientRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -18,6 +20,7 @@ public class ClientRegistrationService {
 
     private final OAuthClientRepository oAuthClientRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public OAuthClient registerClient(String clientName, List<String> redirectUris,
@@ -36,12 +39,39 @@ public class ClientRegistrationService {
                 .build();
 
         OAuthClient saved = oAuthClientRepository.save(client);
+        eventPublisher.publishEvent(new OAuthClientChangedEvent(saved.getClientId()));
 
-        // Return with raw secret (only shown once during registration)
-        saved.setClientSecret(rawSecret);
+        // Return a detached copy with the raw secret (only shown once during registration).
+        // Setting it on the managed entity would flush the plaintext secret on commit.
+        OAuthClient response = OAuthClient.builder()
+                .id(saved.getId())
+                .clientId(saved.getClientId())
+                .clientSecret(rawSecret)
+                .redirectUris(new HashSet<>(saved.getRedirectUris()))
+                .scopes(new HashSet<>(saved.getScopes()))
+                .grantTypes(new HashSet<>(saved.getGrantTypes()))
+                .createdAt(saved.getCreatedAt())
+                .build();
 
         log.info("Registered new OAuth2 client: {} (clientId: {})", clientName, clientId);
-        return saved;
+        return response;
+    }
+
+    /**
+     * Replace a client's secret. The new raw secret is returned once and never stored.
+     */
+    @Transactional
+    public Optional<String> rotateClientSecret(String clientId) {
+        return oAuthClientRepository.findByClientId(clientId)
+                .map(client -> {
+                    String rawSecret = generateClientSecret();
+                    client.setClientSecret(passwordEncoder.encode(rawSecret));
+                    oAuthClientRepository.save(client);
+                    eventPublisher.publishEvent(new OAuthClientChangedEvent(clientId));
+
+                    log.info("Rotated client secret for clientId: {}", clientId);
+                    return rawSecret;
+                });
     }
 
     @Transactional(readOnly = true)
@@ -54,7 +84,10 @@ public class ClientRegistrationService {
         return oAuthClientRepository.findByClientId(clientId);
     }
 
-    private String generateClientId(String clientName) {
+    /**
+     * A client id derived from the client's name, with a random suffix.
+     */
+    public static String generateClientId(String clientName) {
         String sanitized = clientName.toLowerCase()
                 .replaceAll("[^a-z0-9]", "-")
                 .replaceAll("-+", "-")
@@ -63,7 +96,10 @@ public class ClientRegistrationService {
         return sanitized + "-" + UUID.randomUUID().toString().substring(0, 8);
     }
 
-    private String generateClientSecret() {
+    /**
+     * A new raw client secret, 48 hex characters.
+     */
+    public static String generateClientSecret() {
         return UUID.randomUUID().toString().replace("-", "") +
                UUID.randomUUID().toString().replace("-", "").substring(0, 16);
     }
@@ -2,6 +2,9 @@ package com.auth.server.service;
 
 import com.auth.server.entity.AuthUser;
 import com.auth.server.repository.AuthUserRepository;
+import com.auth.server.security.UserDetailsCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -12,8 +15,8 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
 @Service
@@ -22,10 +25,27 @@ import java.util.stream.Collectors;
 public class CustomUserDetailsService implements UserDetailsService {
 
     private final AuthUserRepository authUserRepository;
+    private final UserDetailsCache userDetailsCache;
+    private final MeterRegistry meterRegistry;
 
     @Override
-    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String result = "not_found";
+        try {
+            UserDetails userDetails = userDetailsCache.get(username, this::loadFromDatabase);
+            result = "found";
+            return userDetails;
+        } finally {
+            sample.stop(meterRegistry.timer("auth.user.lookup", "result", result));
+        }
+    }
+
+    /**
+     * Roles are fetched eagerly with the user, so no transaction is needed here and a cache
+     * hit never borrows a connection.
+     */
+    private UserDetails loadFromDatabase(String username) {
         log.debug("Loading user details for username: {}", username);
 
         AuthUser authUser = authUserRepository.findByUsername(username)
@@ -50,7 +70,8 @@ public class CustomUserDetailsService implements UserDetailsService {
                 .authorities(authorities)
                 .disabled(!authUser.isEnabled())
                 .accountExpired(false)
-                .accountLocked(false)
+                .accountLocked(authUser.getLockedUntil() != null
+                        && authUser.getLockedUntil().isAfter(LocalDateTime.now()))
                 .credentialsExpired(false)
                 .build();
     }
@@ -0,0 +1,70 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.OAuthAuthorizationConsent;
+import com.auth.server.repository.OAuthAuthorizationConsentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.stream.Collectors;
+
+/**
+ * {@link OAuth2AuthorizationConsentService} backed by the {@code oauth_authorization_consents}
+ * table, one row per client and user.
+ */
+@RequiredArgsConstructor
+public class JpaOAuth2AuthorizationConsentService implements OAuth2AuthorizationConsentService {
+
+    private final OAuthAuthorizationConsentRepository consentRepository;
+    private final RegisteredClientRepository registeredClientRepository;
+
+    @Override
+    public void save(OAuth2AuthorizationConsent authorizationConsent) {
+        Assert.notNull(authorizationConsent, "authorizationConsent cannot be null");
+        consentRepository.save(OAuthAuthorizationConsent.builder()
+                .registeredClientId(authorizationConsent.getRegisteredClientId())
+                .principalName(authorizationConsent.getPrincipalName())
+                .authorities(authorizationConsent.getAuthorities().stream()
+                        .map(GrantedAuthority::getAuthority)
+                        .collect(Collectors.joining(",")))
+                .build());
+    }
+
+    @Override
+    public void remove(OAuth2AuthorizationConsent authorizationConsent) {
+        Assert.notNull(authorizationConsent, "authorizationConsent cannot be null");
+        OAuthAuthorizationConsent.ConsentId id = new OAuthAuthorizationConsent.ConsentId(
+                authorizationConsent.getRegisteredClientId(), authorizationConsent.getPrincipalName());
+        if (consentRepository.existsById(id)) {
+            consentRepository.deleteById(id);
+        }
+    }
+
+    @Override
+    public OAuth2AuthorizationConsent findById(String registeredClientId, String principalName) {
+        Assert.hasText(registeredClientId, "registeredClientId cannot be empty");
+        Assert.hasText(principalName, "principalName cannot be empty");
+        return consentRepository.findById(new OAuthAuthorizationConsent.ConsentId(registeredClientId, principalName))
+                .map(this::toObject)
+                .orElse(null);
+    }
+
+    private OAuth2AuthorizationConsent toObject(OAuthAuthorizationConsent entity) {
+        if (registeredClientRepository.findById(entity.getRegisteredClientId()) == null) {
+            throw new DataRetrievalFailureException(
+                    "The RegisteredClient with id '" + entity.getRegisteredClientId() + "' was not found in the RegisteredClientRepository.");
+        }
+        OAuth2AuthorizationConsent.Builder builder =
+                OAuth2AuthorizationConsent.withId(entity.getRegisteredClientId(), entity.getPrincipalName());
+        StringUtils.commaDelimitedListToSet(entity.getAuthorities())
+                .forEach(authority -> builder.authority(new SimpleGrantedAuthority(authority)));
+        return builder.build();
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.OAuthAuthorization;
+import com.auth.server.event.AccessTokenRevokedEvent;
+import com.auth.server.repository.OAuthAuthorizationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.Assert;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * {@link OAuth2AuthorizationService} backed by the {@code oauth_authorizations} table.
+ * Token lookups hash the presented value and hit the unique index for that token type,
+ * so the cost of a lookup does not depend on the number of live grants.
+ * <p>
+ * The default store; {@code auth-server.authorization-store=redis} selects
+ * {@link RedisOAuth2AuthorizationService} instead.
+ */
+@Service
+@ConditionalOnProperty(name = "auth-server.authorization-store", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaOAuth2AuthorizationService implements OAuth2AuthorizationService {
+
+    private static final OAuth2TokenType STATE_TOKEN_TYPE = new OAuth2TokenType(OAuth2ParameterNames.STATE);
+    private static final OAuth2TokenType CODE_TOKEN_TYPE = new OAuth2TokenType(OAuth2ParameterNames.CODE);
+    private static final OAuth2TokenType ID_TOKEN_TOKEN_TYPE = new OAuth2TokenType(OidcParameterNames.ID_TOKEN);
+
+    private final OAuthAuthorizationRepository authorizationRepository;
+    private final OAuthAuthorizationMapper authorizationMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    @Transactional
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        OAuthAuthorization entity = authorizationMapper.toEntity(authorization);
+
+        // Publish only when the token goes from active to invalidated, not on every later save
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken != null && accessToken.isInvalidated()) {
+            OAuthAuthorization existing = authorizationRepository.findById(entity.getId()).orElse(null);
+            if (!authorizationMapper.isAccessTokenInvalidated(existing, entity.getAccessTokenHash())) {
+                publishRevoked(authorizationMapper.accessTokenId(accessToken), accessToken.getToken().getExpiresAt());
+            }
+        }
+
+        authorizationRepository.save(entity);
+    }
+
+    @Override
+    @Transactional
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken != null && accessToken.isActive()) {
+            publishRevoked(authorizationMapper.accessTokenId(accessToken), accessToken.getToken().getExpiresAt());
+        }
+        authorizationRepository.deleteAuthorizationById(authorization.getId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        return authorizationRepository.findById(id).map(authorizationMapper::toObject).orElse(null);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String tokenHash = TokenHashes.sha256(token);
+
+        Optional<OAuthAuthorization> result;
+        if (tokenType == null) {
+            // One point lookup per token index; an OR across the columns would defeat the indexes.
+            result = authorizationRepository.findByAccessTokenHash(tokenHash)
+                    .or(() -> authorizationRepository.findByRefreshTokenHash(tokenHash))
+                    .or(() -> authorizationRepository.findByAuthorizationCodeHash(tokenHash))
+                    .or(() -> authorizationRepository.findByStateHash(tokenHash))
+                    .or(() -> authorizationRepository.findByOidcIdTokenHash(tokenHash));
+        } else if (STATE_TOKEN_TYPE.equals(tokenType)) {
+            result = authorizationRepository.findByStateHash(tokenHash);
+        } else if (CODE_TOKEN_TYPE.equals(tokenType)) {
+            result = authorizationRepository.findByAuthorizationCodeHash(tokenHash);
+        } else if (OAuth2TokenType.ACCESS_TOKEN.equals(tokenType)) {
+            result = authorizationRepository.findByAccessTokenHash(tokenHash);
+        } else if (OAuth2TokenType.REFRESH_TOKEN.equals(tokenType)) {
+            result = authorizationRepository.findByRefreshTokenHash(tokenHash);
+        } else if (ID_TOKEN_TOKEN_TYPE.equals(tokenType)) {
+            result = authorizationRepository.findByOidcIdTokenHash(tokenHash);
+        } else {
+            result = Optional.empty();
+        }
+
+        // Guard against the (theoretical) hash collision by comparing the stored value.
+        return result
+                .filter(entity -> OAuthAuthorizationMapper.containsToken(entity, token))
+                .map(authorizationMapper::toObject)
+                .orElse(null);
+    }
+
+    private void publishRevoked(String tokenId, Instant expiresAt) {
+        if (tokenId != null && expiresAt != null) {
+            eventPublisher.publishEvent(new AccessTokenRevokedEvent(tokenId, expiresAt));
+        }
+    }
+
+}
@@ -0,0 +1,242 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.OAuthAuthorization;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.security.jackson2.SecurityJackson2Modules;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.OAuth2RefreshToken;
+import org.springframework.security.oauth2.core.OAuth2Token;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.jwt.JwtClaimNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationCode;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClient;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.security.oauth2.server.authorization.jackson2.OAuth2AuthorizationServerJackson2Module;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Converts between {@code OAuth2Authorization} and its persistent form {@link OAuthAuthorization},
+ * for every authorization store. Token metadata and attributes are kept as JSON written with
+ * the framework's Jackson modules.
+ */
+@Component
+@RequiredArgsConstructor
+public class OAuthAuthorizationMapper {
+
+    private final RegisteredClientRepository registeredClientRepository;
+    private final ObjectMapper objectMapper = createObjectMapper();
+
+    /**
+     * Whether {@code token} is one of the values stored in {@code entity}; guards token lookups
+     * by hash against the (theoretical) hash collision.
+     */
+    public static boolean containsToken(OAuthAuthorization entity, String token) {
+        return token.equals(entity.getState())
+                || token.equals(entity.getAuthorizationCodeValue())
+                || token.equals(entity.getAccessTokenValue())
+                || token.equals(entity.getRefreshTokenValue())
+                || token.equals(entity.getOidcIdTokenValue());
+    }
+
+    public OAuth2Authorization toObject(OAuthAuthorization entity) {
+        RegisteredClient registeredClient = registeredClientRepository.findById(entity.getRegisteredClientId());
+        if (registeredClient == null) {
+            throw new DataRetrievalFailureException(
+                    "The RegisteredClient with id '" + entity.getRegisteredClientId() + "' was not found in the RegisteredClientRepository.");
+        }
+
+        OAuth2Authorization.Builder builder = OAuth2Authorization.withRegisteredClient(registeredClient)
+                .id(entity.getId())
+                .principalName(entity.getPrincipalName())
+                .authorizationGrantType(new AuthorizationGrantType(entity.getAuthorizationGrantType()))
+                .authorizedScopes(StringUtils.commaDelimitedListToSet(entity.getAuthorizedScopes()))
+                .attributes(attributes -> attributes.putAll(parseMap(entity.getAttributes())));
+        if (entity.getState() != null) {
+            builder.attribute(OAuth2ParameterNames.STATE, entity.getState());
+        }
+
+        if (entity.getAuthorizationCodeValue() != null) {
+            OAuth2AuthorizationCode authorizationCode = new OAuth2AuthorizationCode(
+                    entity.getAuthorizationCodeValue(),
+                    entity.getAuthorizationCodeIssuedAt(),
+                    entity.getAuthorizationCodeExpiresAt());
+            builder.token(authorizationCode, metadata -> metadata.putAll(parseMap(entity.getAuthorizationCodeMetadata())));
+        }
+
+        if (entity.getAccessTokenValue() != null) {
+            OAuth2AccessToken accessToken = new OAuth2AccessToken(
+                    OAuth2AccessToken.TokenType.BEARER,
+                    entity.getAccessTokenValue(),
+                    entity.getAccessTokenIssuedAt(),
+                    entity.getAccessTokenExpiresAt(),
+                    StringUtils.commaDelimitedListToSet(entity.getAccessTokenScopes()));
+            builder.token(accessToken, metadata -> metadata.putAll(parseMap(entity.getAccessTokenMetadata())));
+        }
+
+        if (entity.getRefreshTokenValue() != null) {
+            OAuth2RefreshToken refreshToken = new OAuth2RefreshToken(
+                    entity.getRefreshTokenValue(),
+                    entity.getRefreshTokenIssuedAt(),
+                    entity.getRefreshTokenExpiresAt());
+            builder.token(refreshToken, metadata -> metadata.putAll(parseMap(entity.getRefreshTokenMetadata())));
+        }
+
+        if (entity.getOidcIdTokenValue() != null) {
+            Map<String, Object> idTokenMetadata = parseMap(entity.getOidcIdTokenMetadata());
+            @SuppressWarnings("unchecked")
+            Map<String, Object> idTokenClaims =
+                    (Map<String, Object>) idTokenMetadata.get(OAuth2Authorization.Token.CLAIMS_METADATA_NAME);
+            OidcIdToken idToken = new OidcIdToken(
+                    entity.getOidcIdTokenValue(),
+                    entity.getOidcIdTokenIssuedAt(),
+                    entity.getOidcIdTokenExpiresAt(),
+                    idTokenClaims);
+            builder.token(idToken, metadata -> metadata.putAll(idTokenMetadata));
+        }
+
+        return builder.build();
+    }
+
+    public OAuthAuthorization toEntity(OAuth2Authorization authorization) {
+        OAuthAuthorization entity = new OAuthAuthorization();
+        entity.setId(authorization.getId());
+        entity.setRegisteredClientId(authorization.getRegisteredClientId());
+        entity.setPrincipalName(authorization.getPrincipalName());
+        entity.setAuthorizationGrantType(authorization.getAuthorizationGrantType().getValue());
+        entity.setAuthorizedScopes(StringUtils.collectionToCommaDelimitedString(authorization.getAuthorizedScopes()));
+        entity.setAttributes(writeMap(authorization.getAttributes()));
+
+        String state = authorization.getAttribute(OAuth2ParameterNames.STATE);
+        entity.setState(state);
+        entity.setStateHash(TokenHashes.sha256(state));
+
+        setTokenValues(authorization.getToken(OAuth2AuthorizationCode.class),
+                entity::setAuthorizationCodeValue,
+                entity::setAuthorizationCodeHash,
+                entity::setAuthorizationCodeIssuedAt,
+                entity::setAuthorizationCodeExpiresAt,
+                entity::setAuthorizationCodeMetadata);
+
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getToken(OAuth2AccessToken.class);
+        setTokenValues(accessToken,
+                entity::setAccessTokenValue,
+                entity::setAccessTokenHash,
+                entity::setAccessTokenIssuedAt,
+                entity::setAccessTokenExpiresAt,
+                entity::setAccessTokenMetadata);
+        if (accessToken != null) {
+            entity.setAccessTokenType(accessToken.getToken().getTokenType().getValue());
+            entity.setAccessTokenScopes(StringUtils.collectionToCommaDelimitedString(accessToken.getToken().getScopes()));
+        }
+
+        setTokenValues(authorization.getToken(OAuth2RefreshToken.class),
+                entity::setRefreshTokenValue,
+                entity::setRefreshTokenHash,
+                entity::setRefreshTokenIssuedAt,
+                entity::setRefreshTokenExpiresAt,
+                entity::setRefreshTokenMetadata);
+
+        setTokenValues(authorization.getToken(OidcIdToken.class),
+                entity::setOidcIdTokenValue,
+                entity::setOidcIdTokenHash,
+                entity::setOidcIdTokenIssuedAt,
+                entity::setOidcIdTokenExpiresAt,
+                entity::setOidcIdTokenMetadata);
+
+        return entity;
+    }
+
+    private void setTokenValues(OAuth2Authorization.Token<?> token,
+                                Consumer<String> valueConsumer,
+                                Consumer<String> hashConsumer,
+                                Consumer<Instant> issuedAtConsumer,
+                                Consumer<Instant> expiresAtConsumer,
+                                Consumer<String> metadataConsumer) {
+        if (token == null) {
+            return;
+        }
+        OAuth2Token oAuth2Token = token.getToken();
+        valueConsumer.accept(oAuth2Token.getTokenValue());
+        hashConsumer.accept(TokenHashes.sha256(oAuth2Token.getTokenValue()));
+        issuedAtConsumer.accept(oAuth2Token.getIssuedAt());
+        expiresAtConsumer.accept(oAuth2Token.getExpiresAt());
+        metadataConsumer.accept(writeMap(token.getMetadata()));
+    }
+
+    /**
+     * The {@code jti} of the authorization's access token, or {@code null} if it has none.
+     */
+    public String accessTokenId(OAuth2Authorization.Token<OAuth2AccessToken> accessToken) {
+        return accessToken != null ? tokenId(accessToken.getClaims()) : null;
+    }
+
+    /**
+     * The {@code jti} of a stored access token, read from its metadata.
+     */
+    public String accessTokenId(OAuthAuthorization entity) {
+        if (entity.getAccessTokenMetadata() == null) {
+            return null;
+        }
+        Object claims = parseMap(entity.getAccessTokenMetadata()).get(OAuth2Authorization.Token.CLAIMS_METADATA_NAME);
+        return claims instanceof Map ? tokenId((Map<?, ?>) claims) : null;
+    }
+
+    /**
+     * Whether {@code entity} already holds the access token with {@code accessTokenHash}
+     * and has it marked invalidated, i.e. whether that token's revocation was already stored.
+     */
+    public boolean isAccessTokenInvalidated(OAuthAuthorization entity, String accessTokenHash) {
+        if (entity == null || accessTokenHash == null || !accessTokenHash.equals(entity.getAccessTokenHash())) {
+            return false;
+        }
+        Object invalidated = parseMap(entity.getAccessTokenMetadata()).get(OAuth2Authorization.Token.INVALIDATED_METADATA_NAME);
+        return Boolean.TRUE.equals(invalidated);
+    }
+
+    private static String tokenId(Map<?, ?> claims) {
+        Object tokenId = claims != null ? claims.get(JwtClaimNames.JTI) : null;
+        return tokenId != null ? tokenId.toString() : null;
+    }
+
+    private Map<String, Object> parseMap(String data) {
+        if (data == null) {
+            return Map.of();
+        }
+        try {
+            return objectMapper.readValue(data, new TypeReference<Map<String, Object>>() {});
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    private String writeMap(Map<String, Object> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    private static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ClassLoader classLoader = OAuthAuthorizationMapper.class.getClassLoader();
+        List<Module> securityModules = SecurityJackson2Modules.getModules(classLoader);
+        objectMapper.registerModules(securityModules);
+        objectMapper.registerModule(new OAuth2AuthorizationServerJackson2Module());
+        return objectMapper;
+    }
+
+}
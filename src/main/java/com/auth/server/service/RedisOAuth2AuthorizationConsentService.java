@@ -0,0 +1,74 @@
+package com.auth.server.service;
+
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsent;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationConsentService;
+import org.springframework.security.oauth2.server.authorization.client.RegisteredClientRepository;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+import java.util.stream.Collectors;
+
+/**
+ * {@link OAuth2AuthorizationConsentService} backed by Redis: one key per client and user,
+ * {@code consent:<registered client id>:<principal name>}, holding the granted authorities
+ * as a comma-delimited list. Consents do not expire.
+ */
+public class RedisOAuth2AuthorizationConsentService implements OAuth2AuthorizationConsentService {
+
+    private final StringRedisTemplate redisTemplate;
+    private final RegisteredClientRepository registeredClientRepository;
+    private final String keyPrefix;
+
+    public RedisOAuth2AuthorizationConsentService(StringRedisTemplate redisTemplate,
+                                                  RegisteredClientRepository registeredClientRepository,
+                                                  String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.registeredClientRepository = registeredClientRepository;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public void save(OAuth2AuthorizationConsent authorizationConsent) {
+        Assert.notNull(authorizationConsent, "authorizationConsent cannot be null");
+        String authorities = authorizationConsent.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.joining(","));
+        redisTemplate.opsForValue().set(
+                key(authorizationConsent.getRegisteredClientId(), authorizationConsent.getPrincipalName()),
+                authorities);
+    }
+
+    @Override
+    public void remove(OAuth2AuthorizationConsent authorizationConsent) {
+        Assert.notNull(authorizationConsent, "authorizationConsent cannot be null");
+        redisTemplate.delete(key(authorizationConsent.getRegisteredClientId(), authorizationConsent.getPrincipalName()));
+    }
+
+    @Override
+    public OAuth2AuthorizationConsent findById(String registeredClientId, String principalName) {
+        Assert.hasText(registeredClientId, "registeredClientId cannot be empty");
+        Assert.hasText(principalName, "principalName cannot be empty");
+        String authorities = redisTemplate.opsForValue().get(key(registeredClientId, principalName));
+        if (authorities == null) {
+            return null;
+        }
+        if (registeredClientRepository.findById(registeredClientId) == null) {
+            throw new DataRetrievalFailureException(
+                    "The RegisteredClient with id '" + registeredClientId + "' was not found in the RegisteredClientRepository.");
+        }
+
+        OAuth2AuthorizationConsent.Builder builder = OAuth2AuthorizationConsent.withId(registeredClientId, principalName);
+        StringUtils.commaDelimitedListToSet(authorities)
+                .forEach(authority -> builder.authority(new SimpleGrantedAuthority(authority)));
+        return builder.build();
+    }
+
+    private String key(String registeredClientId, String principalName) {
+        return keyPrefix + "consent:" + registeredClientId + ':' + principalName;
+    }
+
+}
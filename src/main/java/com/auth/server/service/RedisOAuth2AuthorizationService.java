@@ -0,0 +1,254 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.OAuthAuthorization;
+import com.auth.server.event.AccessTokenRevokedEvent;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+import org.springframework.security.oauth2.core.oidc.endpoint.OidcParameterNames;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.Assert;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link OAuth2AuthorizationService} backed by Redis, so that every node behind the load
+ * balancer sees the same authorization codes and tokens.
+ * <p>
+ * Each authorization is one JSON value under {@code authorization:<id>}. Each token has a
+ * secondary key, {@code <token type>:<sha256 of the value>}, that holds the authorization id.
+ * Every key carries a native TTL. A token's secondary key expires with the token. The
+ * authorization itself expires with its longest-lived token, or after
+ * {@code pending-authorization-ttl} while it is still waiting for consent. Nothing has
+ * to be purged.
+ * <p>
+ * A save writes the authorization, its secondary keys and the deletion of keys for
+ * replaced tokens in one pipelined round trip.
+ */
+@Service
+@ConditionalOnProperty(name = "auth-server.authorization-store", havingValue = "redis")
+public class RedisOAuth2AuthorizationService implements OAuth2AuthorizationService {
+
+    private static final OAuth2TokenType STATE_TOKEN_TYPE = new OAuth2TokenType(OAuth2ParameterNames.STATE);
+    private static final OAuth2TokenType CODE_TOKEN_TYPE = new OAuth2TokenType(OAuth2ParameterNames.CODE);
+    private static final OAuth2TokenType ID_TOKEN_TOKEN_TYPE = new OAuth2TokenType(OidcParameterNames.ID_TOKEN);
+
+    /**
+     * Lookup order when the token type is unknown, most frequently presented first.
+     */
+    private static final List<OAuth2TokenType> LOOKUP_ORDER = List.of(OAuth2TokenType.ACCESS_TOKEN,
+            OAuth2TokenType.REFRESH_TOKEN, CODE_TOKEN_TYPE, STATE_TOKEN_TYPE, ID_TOKEN_TOKEN_TYPE);
+
+    private final StringRedisTemplate redisTemplate;
+    private final OAuthAuthorizationMapper authorizationMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final String keyPrefix;
+    private final Duration pendingAuthorizationTtl;
+    private final ObjectMapper entityMapper = createEntityMapper();
+
+    public RedisOAuth2AuthorizationService(StringRedisTemplate redisTemplate,
+                                           OAuthAuthorizationMapper authorizationMapper,
+                                           ApplicationEventPublisher eventPublisher,
+                                           @Value("${auth-server.redis.key-prefix:oauth2:}") String keyPrefix,
+                                           @Value("${auth-server.redis.pending-authorization-ttl:PT10M}") Duration pendingAuthorizationTtl) {
+        this.redisTemplate = redisTemplate;
+        this.authorizationMapper = authorizationMapper;
+        this.eventPublisher = eventPublisher;
+        this.keyPrefix = keyPrefix;
+        this.pendingAuthorizationTtl = pendingAuthorizationTtl;
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        OAuthAuthorization entity = authorizationMapper.toEntity(authorization);
+        OAuthAuthorization existing = read(authorization.getId());
+
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken != null && accessToken.isInvalidated()
+                && !authorizationMapper.isAccessTokenInvalidated(existing, entity.getAccessTokenHash())) {
+            publishRevoked(authorizationMapper.accessTokenId(accessToken), accessToken.getToken().getExpiresAt());
+        }
+
+        Instant now = Instant.now();
+        Instant expiresAt = expiresAt(entity, now);
+        Map<String, Instant> indexKeys = indexKeys(entity, expiresAt);
+        String[] staleKeys = existing == null ? new String[0] : indexKeys(existing, expiresAt).keySet().stream()
+                .filter(key -> !indexKeys.containsKey(key))
+                .toArray(String[]::new);
+        String value = writeEntity(entity);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            stringConnection.pSetEx(authorizationKey(entity.getId()), ttlMillis(now, expiresAt), value);
+            indexKeys.forEach((key, keyExpiresAt) ->
+                    stringConnection.pSetEx(key, ttlMillis(now, keyExpiresAt), entity.getId()));
+            if (staleKeys.length > 0) {
+                stringConnection.del(staleKeys);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        Assert.notNull(authorization, "authorization cannot be null");
+        OAuth2Authorization.Token<OAuth2AccessToken> accessToken = authorization.getAccessToken();
+        if (accessToken != null && accessToken.isActive()) {
+            publishRevoked(authorizationMapper.accessTokenId(accessToken), accessToken.getToken().getExpiresAt());
+        }
+
+        OAuthAuthorization existing = read(authorization.getId());
+        Stream<String> tokenKeys = indexKeys(authorizationMapper.toEntity(authorization), Instant.MAX).keySet().stream();
+        if (existing != null) {
+            tokenKeys = Stream.concat(tokenKeys, indexKeys(existing, Instant.MAX).keySet().stream());
+        }
+        Set<String> keys = Stream.concat(Stream.of(authorizationKey(authorization.getId())), tokenKeys)
+                .collect(Collectors.toSet());
+        redisTemplate.delete(keys);
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        Assert.hasText(id, "id cannot be empty");
+        OAuthAuthorization entity = read(id);
+        return entity != null ? authorizationMapper.toObject(entity) : null;
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        Assert.hasText(token, "token cannot be empty");
+        String tokenHash = TokenHashes.sha256(token);
+
+        String id;
+        if (tokenType == null) {
+            List<String> ids = redisTemplate.opsForValue().multiGet(LOOKUP_ORDER.stream()
+                    .map(type -> indexKey(type, tokenHash))
+                    .collect(Collectors.toList()));
+            id = ids == null ? null : ids.stream().filter(Objects::nonNull).findFirst().orElse(null);
+        } else if (LOOKUP_ORDER.contains(tokenType)) {
+            id = redisTemplate.opsForValue().get(indexKey(tokenType, tokenHash));
+        } else {
+            id = null;
+        }
+        if (id == null) {
+            return null;
+        }
+
+        OAuthAuthorization entity = read(id);
+        if (entity == null || !OAuthAuthorizationMapper.containsToken(entity, token)) {
+            return null;
+        }
+        return authorizationMapper.toObject(entity);
+    }
+
+    /**
+     * The authorization lives as long as its longest-lived token; one without tokens is
+     * waiting for the user's consent.
+     */
+    private Instant expiresAt(OAuthAuthorization entity, Instant now) {
+        return Stream.of(entity.getAuthorizationCodeExpiresAt(), entity.getAccessTokenExpiresAt(),
+                        entity.getRefreshTokenExpiresAt(), entity.getOidcIdTokenExpiresAt())
+                .filter(Objects::nonNull)
+                .max(Instant::compareTo)
+                .orElseGet(() -> now.plus(pendingAuthorizationTtl));
+    }
+
+    /**
+     * Secondary key of every token in {@code entity}, with the instant it expires at.
+     */
+    private Map<String, Instant> indexKeys(OAuthAuthorization entity, Instant authorizationExpiresAt) {
+        Map<String, Instant> keys = new LinkedHashMap<>();
+        if (entity.getStateHash() != null) {
+            keys.put(indexKey(STATE_TOKEN_TYPE, entity.getStateHash()), authorizationExpiresAt);
+        }
+        if (entity.getAuthorizationCodeHash() != null) {
+            keys.put(indexKey(CODE_TOKEN_TYPE, entity.getAuthorizationCodeHash()), entity.getAuthorizationCodeExpiresAt());
+        }
+        if (entity.getAccessTokenHash() != null) {
+            keys.put(indexKey(OAuth2TokenType.ACCESS_TOKEN, entity.getAccessTokenHash()), entity.getAccessTokenExpiresAt());
+        }
+        if (entity.getRefreshTokenHash() != null) {
+            keys.put(indexKey(OAuth2TokenType.REFRESH_TOKEN, entity.getRefreshTokenHash()),
+                    entity.getRefreshTokenExpiresAt() != null ? entity.getRefreshTokenExpiresAt() : authorizationExpiresAt);
+        }
+        if (entity.getOidcIdTokenHash() != null) {
+            keys.put(indexKey(ID_TOKEN_TOKEN_TYPE, entity.getOidcIdTokenHash()), entity.getOidcIdTokenExpiresAt());
+        }
+        return keys;
+    }
+
+    private String authorizationKey(String id) {
+        return keyPrefix + "authorization:" + id;
+    }
+
+    private String indexKey(OAuth2TokenType tokenType, String tokenHash) {
+        return keyPrefix + tokenType.getValue() + ':' + tokenHash;
+    }
+
+    /**
+     * Never zero or negative: Redis rejects those, and an already expired key only needs to
+     * outlive this write by a moment.
+     */
+    private static long ttlMillis(Instant now, Instant expiresAt) {
+        if (expiresAt == null) {
+            return 1;
+        }
+        return Math.max(1, Duration.between(now, expiresAt).toMillis());
+    }
+
+    private void publishRevoked(String tokenId, Instant expiresAt) {
+        if (tokenId != null && expiresAt != null) {
+            eventPublisher.publishEvent(new AccessTokenRevokedEvent(tokenId, expiresAt));
+        }
+    }
+
+    private OAuthAuthorization read(String id) {
+        String value = redisTemplate.opsForValue().get(authorizationKey(id));
+        if (value == null) {
+            return null;
+        }
+        try {
+            return entityMapper.readValue(value, OAuthAuthorization.class);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    private String writeEntity(OAuthAuthorization entity) {
+        try {
+            return entityMapper.writeValueAsString(entity);
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(ex.getMessage(), ex);
+        }
+    }
+
+    private static ObjectMapper createEntityMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return objectMapper;
+    }
+
+}
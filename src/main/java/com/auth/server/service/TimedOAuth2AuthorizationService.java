@@ -0,0 +1,81 @@
+package com.auth.server.service;
+
+import com.auth.server.security.ServerTiming;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.security.oauth2.server.authorization.OAuth2Authorization;
+import org.springframework.security.oauth2.server.authorization.OAuth2AuthorizationService;
+import org.springframework.security.oauth2.server.authorization.OAuth2TokenType;
+
+import java.util.function.Supplier;
+
+/**
+ * {@link OAuth2AuthorizationService} that records the latency of every call to the
+ * configured authorization store as {@code auth.authorization.store}, tagged with the store
+ * and the operation. The calls made for a request that is being timed also go to the
+ * {@code store} phase of its {@link ServerTiming}.
+ */
+public class TimedOAuth2AuthorizationService implements OAuth2AuthorizationService {
+
+    private final OAuth2AuthorizationService delegate;
+    private final Timer saveTimer;
+    private final Timer removeTimer;
+    private final Timer findByIdTimer;
+    private final Timer findByTokenTimer;
+
+    public TimedOAuth2AuthorizationService(OAuth2AuthorizationService delegate, String store,
+                                           MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.saveTimer = timer(meterRegistry, store, "save");
+        this.removeTimer = timer(meterRegistry, store, "remove");
+        this.findByIdTimer = timer(meterRegistry, store, "find_by_id");
+        this.findByTokenTimer = timer(meterRegistry, store, "find_by_token");
+    }
+
+    @Override
+    public void save(OAuth2Authorization authorization) {
+        record(saveTimer, () -> {
+            delegate.save(authorization);
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(OAuth2Authorization authorization) {
+        record(removeTimer, () -> {
+            delegate.remove(authorization);
+            return null;
+        });
+    }
+
+    @Override
+    public OAuth2Authorization findById(String id) {
+        return record(findByIdTimer, () -> delegate.findById(id));
+    }
+
+    @Override
+    public OAuth2Authorization findByToken(String token, OAuth2TokenType tokenType) {
+        return record(findByTokenTimer, () -> delegate.findByToken(token, tokenType));
+    }
+
+    private static <T> T record(Timer timer, Supplier<T> call) {
+        ServerTiming timing = ServerTiming.current();
+        if (timing == null) {
+            return timer.record(call);
+        }
+        long start = System.nanoTime();
+        try {
+            return timer.record(call);
+        } finally {
+            timing.record(ServerTiming.Phase.STORE, start);
+        }
+    }
+
+    private static Timer timer(MeterRegistry meterRegistry, String store, String operation) {
+        return Timer.builder("auth.authorization.store")
+                .description("Latency of authorization store calls")
+                .tags("store", store, "operation", operation)
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.auth.server.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fixed-length fingerprints of token values, used as lookup keys so that
+ * indexes never have to cover the (potentially kilobyte-sized) raw token.
+ */
+public final class TokenHashes {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private TokenHashes() {
+    }
+
+    /**
+     * SHA-256 of the token value as 64 lower-case hex characters,
+     * or {@code null} when there is no token.
+     */
+    public static String sha256(String tokenValue) {
+        if (tokenValue == null) {
+            return null;
+        }
+        byte[] digest = newDigest().digest(tokenValue.getBytes(StandardCharsets.UTF_8));
+        char[] hex = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            hex[i * 2] = HEX[(digest[i] >> 4) & 0x0f];
+            hex[i * 2 + 1] = HEX[digest[i] & 0x0f];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 algorithm not available", e);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.UserRole;
+import com.auth.server.repository.AuthUserRepository;
+import com.auth.server.repository.AuthUserRepository.UserExportRow;
+import com.auth.server.repository.AuthUserRepository.UserRoleRow;
+import com.auth.server.repository.AuthUserRepository.UserRow;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Read-only listing of users for the admin API, without loading {@code AuthUser} entities.
+ * <p>
+ * Pages are keyset-paginated on the user id: a page costs one indexed range query plus one
+ * query for its roles, however deep into the table it is. The export streams every matching
+ * user as NDJSON from a single forward-only query, holding only the current user in memory.
+ */
+@Service
+@RequiredArgsConstructor
+public class UserDirectoryService {
+
+    private final AuthUserRepository authUserRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Up to {@code limit} users with an id greater than {@code afterId}, in id order.
+     */
+    public UserPage findUsers(UserFilter filter, long afterId, int limit) {
+        List<UserRow> rows = authUserRepository.findUserRows(afterId, filter.getRole(), filter.getEnabled(),
+                filter.getCreatedFrom(), filter.getCreatedTo(), PageRequest.of(0, limit));
+        if (rows.isEmpty()) {
+            return new UserPage(Collections.emptyList(), null);
+        }
+
+        Map<Long, Set<UserRole>> roles = new HashMap<>();
+        for (UserRoleRow row : authUserRepository.findUserRoles(
+                rows.stream().map(UserRow::getId).collect(Collectors.toList()))) {
+            roles.computeIfAbsent(row.getUserId(), id -> new HashSet<>()).add(row.getRole());
+        }
+
+        List<UserSummary> users = new ArrayList<>(rows.size());
+        for (UserRow row : rows) {
+            users.add(toSummary(row, roles.getOrDefault(row.getId(), Collections.emptySet())));
+        }
+        Long nextCursor = rows.size() == limit ? rows.get(rows.size() - 1).getId() : null;
+        return new UserPage(users, nextCursor);
+    }
+
+    /**
+     * Write every matching user to {@code out} as one JSON object per line.
+     *
+     * @return the number of users written
+     */
+    @Transactional(readOnly = true)
+    public long exportUsers(UserFilter filter, OutputStream out) throws IOException {
+        long count = 0;
+        try (Stream<UserExportRow> rows = authUserRepository.streamUserRows(filter.getRole(), filter.getEnabled(),
+                filter.getCreatedFrom(), filter.getCreatedTo());
+             SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out)) {
+            // Rows arrive ordered by id, one per role; consecutive rows make up one user.
+            Iterator<UserExportRow> iterator = rows.iterator();
+            UserExportRow current = null;
+            Set<UserRole> roles = new HashSet<>();
+            while (iterator.hasNext()) {
+                UserExportRow row = iterator.next();
+                if (current != null && !current.getId().equals(row.getId())) {
+                    writer.write(toSummary(current, roles));
+                    count++;
+                    roles = new HashSet<>();
+                }
+                current = row;
+                if (row.getRole() != null) {
+                    roles.add(row.getRole());
+                }
+            }
+            if (current != null) {
+                writer.write(toSummary(current, roles));
+                count++;
+                writer.flush();
+                out.write('\n');
+            }
+        }
+        return count;
+    }
+
+    private static UserSummary toSummary(UserRow row, Set<UserRole> roles) {
+        return new UserSummary(row.getId(), row.getUsername(), row.getEmail(), roles,
+                Boolean.TRUE.equals(row.getEnabled()), row.getCreatedAt());
+    }
+
+    @Value
+    @Builder
+    public static class UserFilter {
+        UserRole role;
+        Boolean enabled;
+        LocalDateTime createdFrom;
+        LocalDateTime createdTo;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class UserSummary {
+        private Long id;
+        private String username;
+        private String email;
+        private Set<UserRole> roles;
+        private boolean enabled;
+        private LocalDateTime createdAt;
+    }
+
+    /**
+     * One page of users. {@code nextCursor} is the {@code after} value for the next page, or
+     * {@code null} on the last page.
+     */
+    @Data
+    @AllArgsConstructor
+    public static class UserPage {
+        private List<UserSummary> users;
+        private Long nextCursor;
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.auth.server.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads a bulk import file one record at a time, so that a file of any size needs only the
+ * current record in memory.
+ * <p>
+ * NDJSON is one JSON object per line. CSV follows RFC 4180 (quoted fields may contain commas,
+ * doubled quotes and line breaks) and starts with a header naming the columns; roles are
+ * separated by {@code ;}. Both formats use the fields of {@link UserImportRecord}, and unknown
+ * fields or columns are ignored.
+ */
+abstract class UserImportReader implements Closeable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+
+    protected final BufferedReader reader;
+
+    private long recordNumber;
+
+    private UserImportReader(InputStream inputStream) {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    static UserImportReader open(UserImportService.Format format, InputStream inputStream) {
+        return format == UserImportService.Format.CSV
+                ? new CsvReader(inputStream)
+                : new NdjsonReader(inputStream);
+    }
+
+    /**
+     * The next record, or {@code null} at the end of the file. A record that cannot be
+     * parsed still counts and is returned with {@link UserImportRecord#getParseError()} set.
+     */
+    UserImportRecord next() throws IOException {
+        UserImportRecord record = read();
+        if (record != null) {
+            record.setRecordNumber(++recordNumber);
+        }
+        return record;
+    }
+
+    protected abstract UserImportRecord read() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private static final class NdjsonReader extends UserImportReader {
+
+        private NdjsonReader(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        protected UserImportRecord read() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            try {
+                return OBJECT_MAPPER.readValue(line, UserImportRecord.class);
+            } catch (JsonProcessingException e) {
+                return UserImportRecord.malformed("Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+
+    }
+
+    private static final class CsvReader extends UserImportReader {
+
+        private Map<String, Integer> columns;
+
+        private CsvReader(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        protected UserImportRecord read() throws IOException {
+            if (columns == null) {
+                List<String> header = readRow();
+                if (header == null) {
+                    return null;
+                }
+                columns = new HashMap<>();
+                for (int i = 0; i < header.size(); i++) {
+                    columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+                }
+            }
+            List<String> row;
+            do {
+                row = readRow();
+                if (row == null) {
+                    return null;
+                }
+            } while (row.size() == 1 && row.get(0).isBlank());
+
+            UserImportRecord record = new UserImportRecord();
+            record.setUsername(column(row, "username"));
+            record.setEmail(column(row, "email"));
+            record.setPassword(column(row, "password"));
+            record.setPasswordHash(column(row, "passwordhash"));
+            String roles = column(row, "roles");
+            if (roles != null) {
+                record.setRoles(Arrays.asList(roles.split(";")));
+            }
+            String enabled = column(row, "enabled");
+            if (enabled != null) {
+                record.setEnabled(Boolean.valueOf(enabled.trim()));
+            }
+            return record;
+        }
+
+        private String column(List<String> row, String name) {
+            Integer index = columns.get(name);
+            if (index == null || index >= row.size() || row.get(index).isEmpty()) {
+                return null;
+            }
+            return row.get(index);
+        }
+
+        /**
+         * One row's fields, or {@code null} at the end of the file.
+         */
+        private List<String> readRow() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (c != -1) {
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+    }
+
+    /**
+     * One user as it appears in the import file.
+     */
+    @Data
+    static class UserImportRecord {
+
+        @JsonIgnore
+        private long recordNumber;
+        private String username;
+        private String email;
+        private String password;
+        private String passwordHash;
+        private List<String> roles;
+        private Boolean enabled;
+        @JsonIgnore
+        private String parseError;
+
+        static UserImportRecord malformed(String parseError) {
+            UserImportRecord record = new UserImportRecord();
+            record.setParseError(parseError);
+            return record;
+        }
+
+    }
+
+}
@@ -0,0 +1,406 @@
+package com.auth.server.service;
+
+import com.auth.server.entity.AuthUser;
+import com.auth.server.entity.UserImportCheckpoint;
+import com.auth.server.entity.UserRole;
+import com.auth.server.repository.AuthUserRepository;
+import com.auth.server.repository.UserImportCheckpointRepository;
+import com.auth.server.security.PasswordEncoders;
+import com.auth.server.service.UserImportReader.UserImportRecord;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk import of users from an NDJSON or CSV stream (see {@link UserImportReader}).
+ * <p>
+ * The file is read in chunks of {@code chunk-size} records; only the current chunk is held in
+ * memory. Each record carries either a plaintext {@code password}, hashed here on a dedicated
+ * pool of {@code hashing-threads} so that an import does not take the login hashing pool, or
+ * a {@code passwordHash} in BCrypt or Argon2 format, stored as given. A chunk's users and
+ * roles are inserted as JDBC batches of {@code jdbc-batch-size} and committed together with
+ * the import's {@link UserImportCheckpoint}, so an interrupted import re-run with the same
+ * {@code importId} continues after the last committed chunk.
+ * <p>
+ * Invalid records and users whose username or email already exists are rejected and
+ * reported; they do not stop the import. Existing users are never modified.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final int MAX_USERNAME_LENGTH = 50;
+    private static final int MAX_EMAIL_LENGTH = 100;
+    private static final int MAX_IMPORT_ID_LENGTH = 100;
+
+    private final AuthUserRepository authUserRepository;
+    private final UserImportCheckpointRepository checkpointRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordEncoder passwordEncoder = PasswordEncoders.create();
+    private final int chunkSize;
+    private final int jdbcBatchSize;
+    private final int hashingThreads;
+    private final int maxRejectionDetails;
+
+    private final Set<String> runningImports = ConcurrentHashMap.newKeySet();
+
+    public UserImportService(AuthUserRepository authUserRepository,
+                             UserImportCheckpointRepository checkpointRepository,
+                             EntityManager entityManager,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${auth-server.user-import.chunk-size:1000}") int chunkSize,
+                             @Value("${auth-server.user-import.jdbc-batch-size:500}") int jdbcBatchSize,
+                             @Value("${auth-server.user-import.hashing-threads:0}") int hashingThreads,
+                             @Value("${auth-server.user-import.max-rejection-details:1000}") int maxRejectionDetails) {
+        this.authUserRepository = authUserRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.chunkSize = chunkSize;
+        this.jdbcBatchSize = jdbcBatchSize;
+        this.hashingThreads = hashingThreads > 0
+                ? hashingThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.maxRejectionDetails = maxRejectionDetails;
+    }
+
+    /**
+     * Import every record of {@code inputStream}, resuming after the checkpoint of
+     * {@code importId} if there is one.
+     *
+     * @throws IllegalArgumentException if {@code importId} is blank or too long
+     * @throws IllegalStateException    if an import with the same id is already running
+     */
+    public ImportReport importUsers(String importId, Format format, InputStream inputStream) {
+        if (importId == null || importId.isBlank() || importId.length() > MAX_IMPORT_ID_LENGTH) {
+            throw new IllegalArgumentException("importId must be 1 to " + MAX_IMPORT_ID_LENGTH + " characters");
+        }
+        if (!runningImports.add(importId)) {
+            throw new IllegalStateException("Import " + importId + " is already running");
+        }
+        ExecutorService hashingPool = Executors.newFixedThreadPool(hashingThreads);
+        try (UserImportReader reader = UserImportReader.open(format, inputStream)) {
+            return run(importId, reader, hashingPool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            hashingPool.shutdownNow();
+            runningImports.remove(importId);
+        }
+    }
+
+    private ImportReport run(String importId, UserImportReader reader, ExecutorService hashingPool) throws IOException {
+        long startedAt = System.nanoTime();
+        UserImportCheckpoint checkpoint = checkpointRepository.findById(importId)
+                .orElseGet(() -> UserImportCheckpoint.builder().importId(importId).build());
+        ImportReport report = new ImportReport(importId);
+        log.info("Starting user import {} after record {}", importId, checkpoint.getRecordsProcessed());
+
+        List<UserImportRecord> chunk = new ArrayList<>(chunkSize);
+        UserImportRecord record;
+        while ((record = reader.next()) != null) {
+            if (record.getRecordNumber() <= checkpoint.getRecordsProcessed()) {
+                report.skipped++;
+                continue;
+            }
+            chunk.add(record);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, checkpoint, report, hashingPool);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, checkpoint, report, hashingPool);
+        }
+
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+        double seconds = elapsed.toNanos() / 1_000_000_000.0;
+        report.elapsed = elapsed.toString();
+        report.rowsPerSecond = seconds > 0 ? Math.round((report.imported + report.rejected) / seconds) : 0;
+        log.info("User import {} finished: {} imported, {} rejected, {} skipped in {} ({} rows/s)",
+                importId, report.imported, report.rejected, report.skipped, elapsed, report.rowsPerSecond);
+        return report;
+    }
+
+    private void importChunk(List<UserImportRecord> chunk, UserImportCheckpoint checkpoint,
+                             ImportReport report, ExecutorService hashingPool) {
+        List<Rejection> rejections = new ArrayList<>();
+        Map<UserImportRecord, Set<UserRole>> valid = new LinkedHashMap<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        for (UserImportRecord record : chunk) {
+            String error = validate(record);
+            Set<UserRole> roles = null;
+            if (error == null) {
+                try {
+                    roles = parseRoles(record.getRoles());
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error == null && !usernames.add(record.getUsername())) {
+                error = "Duplicate username in file";
+            }
+            if (error == null && !emails.add(record.getEmail())) {
+                error = "Duplicate email in file";
+            }
+            if (error != null) {
+                rejections.add(new Rejection(record.getRecordNumber(), record.getUsername(), error));
+            } else {
+                valid.put(record, roles);
+            }
+        }
+
+        // One query per column for the whole chunk instead of two lookups per user.
+        if (!valid.isEmpty()) {
+            Set<String> existingUsernames = new HashSet<>(authUserRepository.findExistingUsernames(usernames));
+            Set<String> existingEmails = new HashSet<>(authUserRepository.findExistingEmails(emails));
+            valid.keySet().removeIf(record -> {
+                String error = existingUsernames.contains(record.getUsername()) ? "Username already exists"
+                        : existingEmails.contains(record.getEmail()) ? "Email already registered" : null;
+                if (error != null) {
+                    rejections.add(new Rejection(record.getRecordNumber(), record.getUsername(), error));
+                }
+                return error != null;
+            });
+        }
+
+        List<AuthUser> users = toUsers(valid, hashingPool);
+        long lastRecord = chunk.get(chunk.size() - 1).getRecordNumber();
+        int imported;
+        try {
+            persist(users, checkpoint, lastRecord, users.size(), rejections.size());
+            imported = users.size();
+        } catch (DataIntegrityViolationException e) {
+            // A user registered since the lookup: insert one at a time to find which.
+            log.debug("Chunk ending at record {} hit a constraint, retrying row by row", lastRecord);
+            imported = persistIndividually(users, valid, rejections);
+            persist(List.of(), checkpoint, lastRecord, imported, rejections.size());
+        }
+
+        report.imported += imported;
+        report.rejected += rejections.size();
+        rejections.sort((a, b) -> Long.compare(a.recordNumber, b.recordNumber));
+        for (Rejection rejection : rejections) {
+            if (report.rejections.size() < maxRejectionDetails) {
+                report.rejections.add(rejection);
+            }
+        }
+        log.debug("User import {} committed through record {}", checkpoint.getImportId(), lastRecord);
+    }
+
+    private void persist(List<AuthUser> users, UserImportCheckpoint checkpoint,
+                         long lastRecord, long imported, long rejected) {
+        UserImportCheckpoint next = UserImportCheckpoint.builder()
+                .importId(checkpoint.getImportId())
+                .recordsProcessed(lastRecord)
+                .imported(checkpoint.getImported() + imported)
+                .rejected(checkpoint.getRejected() + rejected)
+                .updatedAt(Instant.now())
+                .build();
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+            authUserRepository.saveAll(users);
+            checkpointRepository.save(next);
+            authUserRepository.flush();
+            entityManager.clear();
+        });
+        checkpoint.setRecordsProcessed(next.getRecordsProcessed());
+        checkpoint.setImported(next.getImported());
+        checkpoint.setRejected(next.getRejected());
+        checkpoint.setUpdatedAt(next.getUpdatedAt());
+    }
+
+    private int persistIndividually(List<AuthUser> users, Map<UserImportRecord, Set<UserRole>> valid,
+                                    List<Rejection> rejections) {
+        int imported = 0;
+        int i = 0;
+        for (UserImportRecord record : valid.keySet()) {
+            // A fresh entity: the one from the rolled-back batch already has an id.
+            AuthUser user = copyOf(users.get(i++));
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    authUserRepository.saveAndFlush(user);
+                    entityManager.clear();
+                });
+                imported++;
+            } catch (DataIntegrityViolationException e) {
+                rejections.add(new Rejection(record.getRecordNumber(), record.getUsername(),
+                        "Username or email already exists"));
+            }
+        }
+        return imported;
+    }
+
+    private static AuthUser copyOf(AuthUser user) {
+        return AuthUser.builder()
+                .username(user.getUsername())
+                .email(user.getEmail())
+                .password(user.getPassword())
+                .roles(new HashSet<>(user.getRoles()))
+                .enabled(user.isEnabled())
+                .createdAt(user.getCreatedAt())
+                .build();
+    }
+
+    /**
+     * Users for the valid records, with plaintext passwords hashed in parallel.
+     */
+    private List<AuthUser> toUsers(Map<UserImportRecord, Set<UserRole>> valid, ExecutorService hashingPool) {
+        List<Future<String>> passwords = new ArrayList<>(valid.size());
+        for (UserImportRecord record : valid.keySet()) {
+            if (record.getPasswordHash() != null) {
+                String storedForm = PasswordEncoders.toStoredForm(record.getPasswordHash());
+                passwords.add(CompletableFuture.completedFuture(storedForm));
+            } else {
+                String password = record.getPassword();
+                passwords.add(hashingPool.submit(() -> passwordEncoder.encode(password)));
+            }
+        }
+
+        List<AuthUser> users = new ArrayList<>(valid.size());
+        LocalDateTime now = LocalDateTime.now();
+        int i = 0;
+        for (Map.Entry<UserImportRecord, Set<UserRole>> entry : valid.entrySet()) {
+            UserImportRecord record = entry.getKey();
+            users.add(AuthUser.builder()
+                    .username(record.getUsername())
+                    .email(record.getEmail())
+                    .password(await(passwords.get(i++)))
+                    .roles(entry.getValue())
+                    .enabled(record.getEnabled() == null || record.getEnabled())
+                    .createdAt(now)
+                    .build());
+        }
+        return users;
+    }
+
+    private static String await(Future<String> password) {
+        try {
+            return password.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException("Interrupted while hashing imported passwords", e);
+        } catch (ExecutionException e) {
+            throw new CompletionException("Could not hash an imported password", e.getCause());
+        }
+    }
+
+    /**
+     * Why {@code record} cannot be imported, or {@code null} if it can.
+     */
+    private static String validate(UserImportRecord record) {
+        if (record.getParseError() != null) {
+            return record.getParseError();
+        }
+        if (record.getUsername() == null || record.getUsername().isBlank()) {
+            return "Username is required";
+        }
+        if (record.getUsername().length() > MAX_USERNAME_LENGTH) {
+            return "Username is longer than " + MAX_USERNAME_LENGTH + " characters";
+        }
+        if (record.getEmail() == null || !record.getEmail().contains("@")) {
+            return "A valid email is required";
+        }
+        if (record.getEmail().length() > MAX_EMAIL_LENGTH) {
+            return "Email is longer than " + MAX_EMAIL_LENGTH + " characters";
+        }
+        if (record.getPassword() == null && record.getPasswordHash() == null) {
+            return "Either password or passwordHash is required";
+        }
+        if (record.getPassword() != null && record.getPasswordHash() != null) {
+            return "Only one of password and passwordHash may be given";
+        }
+        if (record.getPasswordHash() != null && PasswordEncoders.toStoredForm(record.getPasswordHash()) == null) {
+            return "Unsupported password hash format";
+        }
+        return null;
+    }
+
+    private static Set<UserRole> parseRoles(List<String> names) {
+        Set<UserRole> roles = new HashSet<>();
+        if (names != null) {
+            for (String name : names) {
+                String role = name.trim().toUpperCase(Locale.ROOT);
+                if (role.startsWith("ROLE_")) {
+                    role = role.substring("ROLE_".length());
+                }
+                if (role.isEmpty()) {
+                    continue;
+                }
+                try {
+                    roles.add(UserRole.valueOf(role));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown role " + name.trim());
+                }
+            }
+        }
+        if (roles.isEmpty()) {
+            roles.add(UserRole.USER);
+        }
+        return roles;
+    }
+
+    @Data
+    public static class ImportReport {
+
+        private final String importId;
+        private long skipped;
+        private long imported;
+        private long rejected;
+        private String elapsed;
+        private long rowsPerSecond;
+        /**
+         * The first {@code max-rejection-details} rejections, in record order.
+         */
+        private final List<Rejection> rejections = new ArrayList<>();
+
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Rejection {
+
+        private long recordNumber;
+        private String username;
+        private String reason;
+
+    }
+
+}
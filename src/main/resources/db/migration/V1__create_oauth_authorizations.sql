@@ -0,0 +1,46 @@
+-- Authorization store: one row per authorization, with each token looked up by the SHA-256
+-- hash of its value.
+CREATE TABLE IF NOT EXISTS oauth_authorizations (
+    id                            varchar(100)  NOT NULL,
+    registered_client_id          varchar(100)  NOT NULL,
+    principal_name                varchar(200)  NOT NULL,
+    authorization_grant_type      varchar(100)  NOT NULL,
+    authorized_scopes             varchar(1000),
+    attributes                    text,
+    state                         varchar(500),
+    state_hash                    varchar(64),
+    authorization_code_value      text,
+    authorization_code_hash       varchar(64),
+    authorization_code_issued_at  timestamp,
+    authorization_code_expires_at timestamp,
+    authorization_code_metadata   text,
+    access_token_value            text,
+    access_token_hash             varchar(64),
+    access_token_issued_at        timestamp,
+    access_token_expires_at       timestamp,
+    access_token_metadata         text,
+    access_token_type             varchar(100),
+    access_token_scopes           varchar(1000),
+    refresh_token_value           text,
+    refresh_token_hash            varchar(64),
+    refresh_token_issued_at       timestamp,
+    refresh_token_expires_at      timestamp,
+    refresh_token_metadata        text,
+    oidc_id_token_value           text,
+    oidc_id_token_hash            varchar(64),
+    oidc_id_token_issued_at       timestamp,
+    oidc_id_token_expires_at      timestamp,
+    oidc_id_token_metadata        text,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_oauth_authorization_state
+    ON oauth_authorizations (state_hash);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_oauth_authorization_code
+    ON oauth_authorizations (authorization_code_hash);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_oauth_authorization_access_token
+    ON oauth_authorizations (access_token_hash);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_oauth_authorization_refresh_token
+    ON oauth_authorizations (refresh_token_hash);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_oauth_authorization_id_token
+    ON oauth_authorizations (oidc_id_token_hash);
@@ -0,0 +1,10 @@
+-- Ids of revoked access tokens, kept until the token would have expired anyway.
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_id   varchar(100) NOT NULL,
+    expires_at timestamp    NOT NULL,
+    revoked_at timestamp    NOT NULL,
+    PRIMARY KEY (token_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_token_revoked_at ON revoked_tokens (revoked_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_token_expires_at ON revoked_tokens (expires_at);
@@ -0,0 +1,7 @@
+-- Scopes a user has consented to, per client.
+CREATE TABLE IF NOT EXISTS oauth_authorization_consents (
+    registered_client_id varchar(100)  NOT NULL,
+    principal_name       varchar(200)  NOT NULL,
+    authorities          varchar(1000) NOT NULL,
+    PRIMARY KEY (registered_client_id, principal_name)
+);
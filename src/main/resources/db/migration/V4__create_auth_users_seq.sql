@@ -0,0 +1,5 @@
+-- Pooled id sequence for auth_users (allocation size 50), replacing the identity column.
+-- setval starts it past every id already handed out, so existing rows cannot collide.
+CREATE SEQUENCE IF NOT EXISTS auth_users_seq INCREMENT BY 50;
+
+SELECT setval('auth_users_seq', (SELECT COALESCE(MAX(id), 0) FROM auth_users) + 50);
@@ -0,0 +1,9 @@
+-- Progress of resumable bulk user imports.
+CREATE TABLE IF NOT EXISTS user_import_checkpoints (
+    import_id         varchar(100) NOT NULL,
+    records_processed bigint       NOT NULL,
+    imported          bigint       NOT NULL,
+    rejected          bigint       NOT NULL,
+    updated_at        timestamp    NOT NULL,
+    PRIMARY KEY (import_id)
+);
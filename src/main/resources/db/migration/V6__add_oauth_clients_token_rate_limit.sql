@@ -0,0 +1,2 @@
+-- Per-client override of the token endpoint rate limit; NULL uses the server default.
+ALTER TABLE oauth_clients ADD COLUMN IF NOT EXISTS token_rate_limit integer;
@@ -0,0 +1,2 @@
+-- End of the lockout after repeated failed logins; NULL when the account is not locked.
+ALTER TABLE auth_users ADD COLUMN IF NOT EXISTS locked_until timestamp;